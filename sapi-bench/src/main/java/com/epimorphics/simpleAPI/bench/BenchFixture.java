@@ -0,0 +1,172 @@
+/******************************************************************
+ * File:        BenchFixture.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.ResultSetFactory;
+import org.apache.jena.query.ResultSetRewindable;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.apache.jena.vocabulary.SKOS;
+
+import com.epimorphics.appbase.core.App;
+import com.epimorphics.simpleAPI.core.API;
+import com.epimorphics.simpleAPI.query.impl.SparqlQuery;
+import com.epimorphics.simpleAPI.requests.Call;
+import com.epimorphics.simpleAPI.requests.Request;
+import com.epimorphics.simpleAPI.results.Result;
+import com.epimorphics.simpleAPI.results.ResultStreamSparqlSelect;
+import com.epimorphics.util.EpiException;
+import com.epimorphics.webapi.test.MockUriInfo;
+
+/**
+ * Shared set up for the benchmarks. Loads an App configured like the
+ * webapi/basetest end-to-end tests and generates data sets of the same
+ * shape as the test data, but of arbitrary size.
+ */
+public class BenchFixture {
+    public static final String CONFIG_PROPERTY = "sapi.bench.config";
+    public static final String DEFAULT_CONFIG  = "src/main/config/app.conf";
+
+    public static final String EG  = "http://localhost/example/";
+    public static final String EGG = "http://localhost/exampleGeo/";
+
+    protected static App app;
+
+    /**
+     * Return the benchmark App, loading it on first use
+     */
+    public static synchronized App getApp() {
+        if (app == null) {
+            String config = System.getProperty(CONFIG_PROPERTY, DEFAULT_CONFIG);
+            try {
+                app = new App("bench", new File(config));
+            } catch (IOException e) {
+                throw new EpiException("Failed to load benchmark configuration from " + config, e);
+            }
+        }
+        return app;
+    }
+
+    public static API getAPI() {
+        return getApp().getA(API.class);
+    }
+
+    /**
+     * Generate n skos:Concepts in the style of the end-to-end test data. Each
+     * top level concept has two narrower concepts so that list views with
+     * nested narrower values need multiple rows per result.
+     */
+    public static Model generateConcepts(int n) {
+        Model model = ModelFactory.createDefaultModel();
+        Property group = model.createProperty(EG + "group");
+        for (int i = 0; i < n; i++) {
+            Resource a = concept(model, "A" + i, i, group);
+            a.addProperty(SKOS.narrower, concept(model, "B" + i, n + i, group));
+            a.addProperty(SKOS.narrower, model.createResource(EG + "B" + (i + 1) % n));
+        }
+        return model;
+    }
+
+    private static Resource concept(Model model, String name, int notation, Property group) {
+        return model.createResource(EG + name)
+                .addProperty(RDF.type, SKOS.Concept)
+                .addProperty(RDFS.label, name)
+                .addProperty(SKOS.notation, model.createTypedLiteral(Integer.toString(notation), XSDDatatype.XSDinteger))
+                .addProperty(group, notation % 2 == 0 ? "A" : "B \"quoted\", with comma");
+    }
+
+    /**
+     * Generate n egG:GeoTest resources in the style of the geodata test fixture.
+     */
+    public static Model generateGeo(int n) {
+        Model model = ModelFactory.createDefaultModel();
+        Resource type = model.createResource(EGG + "GeoTest");
+        Property nested = model.createProperty(EGG + "nested");
+        Property geometry = model.createProperty(EGG + "geometry");
+        for (int i = 0; i < n; i++) {
+            double x = 100.0 + (i % 50);
+            model.createResource(EGG + "G" + i)
+                .addProperty(RDF.type, type)
+                .addProperty(RDFS.label, "G" + i)
+                .addProperty(SKOS.notation, model.createTypedLiteral(Integer.toString(i), XSDDatatype.XSDinteger))
+                .addProperty(nested, model.createResource().addProperty(RDFS.label, "G" + i + " nested"))
+                .addProperty(geometry, String.format(
+                        "{\"type\": \"LineString\", \"coordinates\": [[%.1f, 0.0],[%.1f, 1.0],[%.1f, 0.0]]}", x, x + 2, x + 4));
+        }
+        return model;
+    }
+
+    /**
+     * Set up a call to a named endpoint with query parameters given as a URL query string
+     */
+    public static Call call(String endpoint, String query) {
+        API api = getAPI();
+        MockUriInfo uri = new MockUriInfo(endpoint + "?" + query);
+        return api.getCall(endpoint, new Request(api.getBaseURI() + endpoint, uri.getQueryParameters()));
+    }
+
+    /**
+     * Build the query for a call and run it over the given in-memory data,
+     * returning a copy of the results which can be replayed.
+     */
+    public static ResultSetRewindable select(Call call, Model data) {
+        SparqlQuery query = (SparqlQuery) call.finalizeQueryBuilder().build();
+        try (QueryExecution qexec = QueryExecutionFactory.create(query.getQuery(), data)) {
+            return ResultSetFactory.copyResults( qexec.execSelect() );
+        }
+    }
+
+    /**
+     * Replay a result set through the row coalescing, materializing the results
+     */
+    public static List<Result> coalesce(Call call, ResultSetRewindable rows) {
+        rows.reset();
+        List<Result> results = new ArrayList<>();
+        ResultStreamSparqlSelect stream = new ResultStreamSparqlSelect(rows, call);
+        while (stream.hasNext()) {
+            results.add( stream.next() );
+        }
+        return results;
+    }
+
+    /**
+     * Output sink which just counts the bytes written
+     */
+    public static class CountingOutputStream extends OutputStream {
+        protected long count = 0;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
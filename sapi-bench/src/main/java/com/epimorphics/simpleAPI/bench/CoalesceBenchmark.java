@@ -0,0 +1,67 @@
+/******************************************************************
+ * File:        CoalesceBenchmark.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.query.ResultSetRewindable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.epimorphics.simpleAPI.requests.Call;
+import com.epimorphics.simpleAPI.results.ResultStreamSparqlSelect;
+
+/**
+ * Coalescing of SPARQL result rows into results, replayed from an in-memory
+ * result set so that query execution is excluded. The default view of listTest2
+ * nests the narrower concepts (two rows per result), the compact view is flat.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoalesceBenchmark {
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"default", "compact"})
+    public String view;
+
+    protected Call call;
+    protected ResultSetRewindable rows;
+
+    @Setup
+    public void setup() {
+        call = BenchFixture.call("listTest2", "_view=" + view + "&_sort=@id");
+        rows = BenchFixture.select(call, BenchFixture.generateConcepts(size));
+    }
+
+    @Benchmark
+    public void coalesce(Blackhole bh) {
+        rows.reset();
+        ResultStreamSparqlSelect stream = new ResultStreamSparqlSelect(rows, call);
+        while (stream.hasNext()) {
+            bh.consume( stream.next() );
+        }
+    }
+}
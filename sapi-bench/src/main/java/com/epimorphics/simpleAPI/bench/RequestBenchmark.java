@@ -0,0 +1,95 @@
+/******************************************************************
+ * File:        RequestBenchmark.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.UriInfo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.epimorphics.simpleAPI.core.API;
+import com.epimorphics.simpleAPI.query.Query;
+import com.epimorphics.simpleAPI.query.QueryBuilder;
+import com.epimorphics.simpleAPI.requests.Call;
+import com.epimorphics.simpleAPI.requests.Request;
+import com.epimorphics.webapi.test.MockUriInfo;
+
+/**
+ * Per-request overheads ahead of running the query: parameter parsing,
+ * endpoint dispatch, request processing and query generation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBenchmark {
+    static final String DISPATCH_URL = "default/test4/B?_sort=label&_limit=10";
+    static final String LIST_URL     = "basetest/list?group=B&_sort=label&_limit=10&_offset=20";
+
+    protected API api;
+    protected UriInfo dispatchUri;
+    protected UriInfo listUri;
+    protected String listRequestedURI;
+    protected MultivaluedMap<String, String> listParams;
+    protected QueryBuilder finalized;
+
+    @Setup
+    public void setup() {
+        api = BenchFixture.getAPI();
+        dispatchUri = new MockUriInfo(DISPATCH_URL);
+        listUri = new MockUriInfo(LIST_URL);
+        listRequestedURI = api.getBaseURI() + listUri.getPath();
+        listParams = listUri.getQueryParameters();
+        finalized = listCall().finalizeQueryBuilder();
+    }
+
+    protected Call listCall() {
+        return api.getCall("listTest2", new Request(listRequestedURI, listParams));
+    }
+
+    @Benchmark
+    public Request parseRequest() {
+        return Request.from(api, listUri, null);
+    }
+
+    /**
+     * Parse plus URL template matching, subtract parseRequest for the dispatch cost alone
+     */
+    @Benchmark
+    public Call dispatch() {
+        return api.getCall(dispatchUri, Request.from(api, dispatchUri, null));
+    }
+
+    /**
+     * Apply the standard request processors (filter, sort, limit, view) to the base query
+     */
+    @Benchmark
+    public QueryBuilder finalizeQueryBuilder() {
+        return listCall().finalizeQueryBuilder();
+    }
+
+    @Benchmark
+    public Query buildQuery() {
+        return finalized.build();
+    }
+}
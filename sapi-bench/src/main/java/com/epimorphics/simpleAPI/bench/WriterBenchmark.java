@@ -0,0 +1,126 @@
+/******************************************************************
+ * File:        WriterBenchmark.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.epimorphics.simpleAPI.bench.BenchFixture.CountingOutputStream;
+import com.epimorphics.simpleAPI.requests.Call;
+import com.epimorphics.simpleAPI.results.Result;
+import com.epimorphics.simpleAPI.results.ResultStream;
+import com.epimorphics.simpleAPI.results.ResultStreamList;
+import com.epimorphics.simpleAPI.results.TreeResult;
+import com.epimorphics.simpleAPI.webapi.marshalling.ResultStreamCSV;
+import com.epimorphics.simpleAPI.webapi.marshalling.ResultStreamGeoJSON;
+import com.epimorphics.simpleAPI.webapi.marshalling.ResultStreamJSON;
+import com.epimorphics.simpleAPI.webapi.marshalling.ResultStreamTurtle;
+
+/**
+ * Serialization of already coalesced results through the JAX-RS writers,
+ * to a sink which discards the output. The legacy CSV case gives the baseline
+ * for the current CSV writer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriterBenchmark {
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"default", "compact"})
+    public String view;
+
+    protected Call call;
+    protected List<Result> results;
+
+    @Setup
+    public void setup() {
+        call = BenchFixture.call("listTest2", "_view=" + view + "&_sort=@id");
+        results = BenchFixture.coalesce(call, BenchFixture.select(call, BenchFixture.generateConcepts(size)));
+    }
+
+    /**
+     * GeoJSON needs a view with a geometry, so uses the listGeo endpoint over generated geo data
+     */
+    @State(Scope.Benchmark)
+    public static class GeoState {
+        @Param({"1000", "10000"})
+        public int size;
+
+        protected Call call;
+        protected List<Result> results;
+
+        @Setup
+        public void setup() {
+            call = BenchFixture.call("listGeo", "_sort=@id");
+            results = BenchFixture.coalesce(call, BenchFixture.select(call, BenchFixture.generateGeo(size)));
+        }
+    }
+
+    @Benchmark
+    public long json() throws IOException {
+        return write(new ResultStreamJSON(), MediaType.APPLICATION_JSON_TYPE, results, call);
+    }
+
+    @Benchmark
+    public long csv() throws IOException {
+        return write(new ResultStreamCSV(), new MediaType("text", "csv"), results, call);
+    }
+
+    @Benchmark
+    public long csvLegacy() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        LegacyCSVWriter writer = new LegacyCSVWriter(out);
+        for (Result result : results) {
+            writer.write( (TreeResult) result );
+        }
+        writer.close();
+        return out.getCount();
+    }
+
+    @Benchmark
+    public long turtle() throws IOException {
+        return write(new ResultStreamTurtle(), new MediaType("text", "turtle"), results, call);
+    }
+
+    @Benchmark
+    public long geojson(GeoState geo) throws IOException {
+        return write(new ResultStreamGeoJSON(), new MediaType("application", "geo+json"), geo.results, geo.call);
+    }
+
+    protected static long write(MessageBodyWriter<ResultStream> writer, MediaType type, List<Result> results, Call call) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        ResultStream stream = new ResultStreamList(results, call);
+        writer.writeTo(stream, stream.getClass(), null, null, type, new MultivaluedHashMap<String, Object>(), out);
+        return out.getCount();
+    }
+}
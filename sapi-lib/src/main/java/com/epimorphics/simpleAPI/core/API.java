@@ -11,8 +11,14 @@ package com.epimorphics.simpleAPI.core;
 
 import static com.epimorphics.simpleAPI.core.ConfigConstants.DEFAULT_MODEL;
 
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -42,10 +48,17 @@ import com.epimorphics.simpleAPI.requests.Call;
 import com.epimorphics.simpleAPI.requests.Request;
 import com.epimorphics.simpleAPI.sapi2.BaseEngine;
 import com.epimorphics.simpleAPI.sapi2.Sapi2BaseEndpointSpec;
+import com.epimorphics.simpleAPI.util.Bulkhead;
+import com.epimorphics.simpleAPI.util.EndpointMetrics;
 import com.epimorphics.simpleAPI.util.LastModified;
+import com.epimorphics.simpleAPI.util.ResultCache;
+import com.epimorphics.simpleAPI.util.WorkerPool;
 import com.epimorphics.simpleAPI.views.ModelSpec;
 import com.epimorphics.simpleAPI.views.PropertySpec;
 import com.epimorphics.simpleAPI.views.ViewMap;
+import com.epimorphics.simpleAPI.writers.JSFullWriterEmitter;
+import com.epimorphics.simpleAPI.writers.JsonEmitter;
+import com.epimorphics.simpleAPI.writers.Utf8JsonWriter;
 import com.epimorphics.sparql.terms.URI;
 import com.epimorphics.util.NameUtils;
 
@@ -90,6 +103,25 @@ public class API extends ComponentBase implements Startup {
     
     protected LastModified timestampService;
     
+    protected ResultCache resultCache;
+    
+    protected EndpointMetrics metrics;
+    
+    protected Bulkhead bulkhead;
+    
+    protected int prefetchThreads = 16;
+    protected ExecutorService prefetchPool;
+    protected int branchQueryThreads = 16;
+    protected ExecutorService branchQueryPool;
+    
+    protected int maxBatchSize = 200;
+    
+    protected final Map<String, Optional<PropertySpec>> defaultViewEntries = new ConcurrentHashMap<>();
+    
+    protected boolean legacyJsonWriter = false;
+    protected boolean compactGeoJson = false;
+    protected volatile byte[][] encodedMetadata;
+    
     protected Engine defaultEngine = new BaseEngine();
     
     // TODO review the supported formats
@@ -106,17 +138,75 @@ public class API extends ComponentBase implements Startup {
     // ---- Metadata support --------------------------------------------
     
     public void startMetadata(JSFullWriter out) {
+        startMetadata( new JSFullWriterEmitter(out) );
+    }
+    
+    public void startMetadata(JsonEmitter out) {
+        if (out instanceof Utf8JsonWriter) {
+            byte[][] fragments = getEncodedMetadata();
+            Utf8JsonWriter writer = (Utf8JsonWriter) out;
+            writer.members( fragments[0] );
+            writer.key("meta");
+            writer.startObject();
+            writer.members( fragments[1] );
+        } else {
+            writeRootMetadata(out);
+            out.key("meta");
+            out.startObject();
+            writeMetaMembers(out);
+        }
+    }
+    
+    protected void writeRootMetadata(JsonEmitter out) {
         condOut(out, "@context", contextURL);
-        out.key("meta");
-        out.startObject();
+    }
+    
+    protected void writeMetaMembers(JsonEmitter out) {
         condOut(out, "publisher", publisher);
         condOut(out, "licence",   licence);
         condOut(out, "documentation", documentation);
         condOut(out, "version", version);
         condOut(out, "comment", comment);
-    }    
+    }
+    
+    /**
+     * The constant metadata members encoded as UTF-8 JSON, the top level
+     * members and the members of the meta object. Built on first use, after configuration.
+     */
+    protected byte[][] getEncodedMetadata() {
+        byte[][] fragments = encodedMetadata;
+        if (fragments == null) {
+            ByteArrayOutputStream root = new ByteArrayOutputStream();
+            Utf8JsonWriter writer = new Utf8JsonWriter(root);
+            writer.startObject();
+            writeRootMetadata(writer);
+            writer.finishObject();
+            writer.flush();
+            
+            ByteArrayOutputStream meta = new ByteArrayOutputStream();
+            writer = new Utf8JsonWriter(meta);
+            writer.startObject();
+            writeMetaMembers(writer);
+            writer.finishObject();
+            writer.flush();
+            
+            fragments = new byte[][]{ members(root), members(meta) };
+            encodedMetadata = fragments;
+        }
+        return fragments;
+    }
+    
+    // Strip the enclosing braces from an encoded object
+    private static byte[] members(ByteArrayOutputStream object) {
+        byte[] bytes = object.toByteArray();
+        return Arrays.copyOfRange(bytes, 1, bytes.length - 1);
+    }
     
     public void writeFormats(JSFullWriter out, String requestURI, String... skipFormat) {
+        writeFormats( new JSFullWriterEmitter(out), requestURI, skipFormat );
+    }
+    
+    public void writeFormats(JsonEmitter out, String requestURI, String... skipFormat) {
         boolean started = false;
         for (String format : getFormats(requestURI, skipFormat)) {
             if (!started) {
@@ -164,6 +254,10 @@ public class API extends ComponentBase implements Startup {
         out.finishObject();
     }
     
+    public void finishMetadata(JsonEmitter out) {
+        out.finishObject();
+    }
+    
     /**
      * Inject a page description into a description model
      * @param meta the resource to which the metadata should be attached
@@ -246,9 +340,14 @@ public class API extends ComponentBase implements Startup {
     }
 
     /**
-     * Return the default specification for how to render a given short name
+     * Return the default specification for how to render a given short name,
+     * null if the default view has no entry for it. Misses are cached as well.
      */
     public PropertySpec getDefaultViewFor(String name) {
+        return defaultViewEntries.computeIfAbsent(name, n -> Optional.ofNullable( findDefaultViewFor(n) )).orElse(null);
+    }
+    
+    protected PropertySpec findDefaultViewFor(String name) {
         ViewMap defview = getView(DEFAULT_VIEWNAME);
         if (defview != null) {
             return defview.findEntry(name);
@@ -257,6 +356,13 @@ public class API extends ComponentBase implements Startup {
         }
     }
     
+    /**
+     * Discard the cached default view entries, called when the configuration is reloaded
+     */
+    public void clearDefaultViewEntries() {
+        defaultViewEntries.clear();
+    }
+    
     public PrefixMapping getPrefixes() {
         if (getApp() == null) {
             // Must be in a testing setup
@@ -376,6 +482,17 @@ public class API extends ComponentBase implements Startup {
         monitor.setUseWatcher(true);
     }   
     
+    /**
+     * True once the initial load of any endpoint specifications has completed
+     */
+    public boolean isReady() {
+        return monitor == null || monitor.isReady();
+    }
+    
+    public SpecMonitor getSpecMonitor() {
+        return monitor;
+    }
+    
     @Override
     public void startup(App app) {
         super.startup(app);
@@ -586,9 +703,114 @@ public class API extends ComponentBase implements Startup {
         this.timestampService = timestampService;
     }
     
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Set the maximum number of items that can be requested in a single batch item lookup
+     */
+    public void setMaxBatchSize(long maxBatchSize) {
+        this.maxBatchSize = (int) maxBatchSize;
+    }
+    
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Set a cache to hold the results of repeated calls, invalidated
+     * by changes to the timestamp service if there is one
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+    
+    
+    public EndpointMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Set a collector for per-endpoint timing metrics, exposed via the metrics endpoint
+     */
+    public void setMetrics(EndpointMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    /**
+     * Set an admission controller to limit the number of concurrent queries
+     */
+    public void setBulkhead(Bulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+    
+    /**
+     * Set the maximum number of background threads used to prefetch results, shared
+     * by all endpoints. Once they are all busy further results are streamed directly.
+     */
+    public void setPrefetchThreads(long prefetchThreads) {
+        this.prefetchThreads = (int) prefetchThreads;
+    }
+    
+    /**
+     * Return the pool of threads used to prefetch results
+     */
+    public synchronized ExecutorService getPrefetchPool() {
+        if (prefetchPool == null) {
+            prefetchPool = WorkerPool.create("sapi-prefetch", prefetchThreads);
+        }
+        return prefetchPool;
+    }
+    
+    /**
+     * Set the maximum number of background threads used to run branch queries, shared
+     * by all endpoints. Once they are all busy further branch queries run on the calling thread.
+     */
+    public void setBranchQueryThreads(long branchQueryThreads) {
+        this.branchQueryThreads = (int) branchQueryThreads;
+    }
+    
+    /**
+     * Return the pool of threads used to run branch queries
+     */
+    public synchronized ExecutorService getBranchQueryPool() {
+        if (branchQueryPool == null) {
+            branchQueryPool = WorkerPool.create("sapi-branch-query", branchQueryThreads);
+        }
+        return branchQueryPool;
+    }
     
     // ---- Internals -----------------------------------------------
 
+    public boolean isLegacyJsonWriter() {
+        return legacyJsonWriter;
+    }
+
+    /**
+     * If set to true then JSON result streams are written using JSFullWriter rather
+     * than the default byte level Utf8JsonWriter, as a fall back
+     */
+    public void setLegacyJsonWriter(boolean legacyJsonWriter) {
+        this.legacyJsonWriter = legacyJsonWriter;
+    }
+
+    public boolean isCompactGeoJson() {
+        return compactGeoJson;
+    }
+
+    /**
+     * If set to true then GeoJSON is written, unindented, using the byte level Utf8JsonWriter
+     * rather than the default pretty printed JSFullWriter (ignored if the legacy JSON writer is set)
+     */
+    public void setCompactGeoJson(boolean compactGeoJson) {
+        this.compactGeoJson = compactGeoJson;
+    }
+
     public boolean isGenerateCSVfilenames() {
         return generateCSVfilenames;
     }
@@ -597,7 +819,7 @@ public class API extends ComponentBase implements Startup {
         this.generateCSVfilenames = generateCSVfilenames;
     }
 
-    private void condOut(JSFullWriter out, String key, String value) {
+    private void condOut(JsonEmitter out, String key, String value) {
         if (value != null) {
             out.pair(key, value);
         }
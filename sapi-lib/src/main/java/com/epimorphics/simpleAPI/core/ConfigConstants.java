@@ -50,6 +50,17 @@ public class ConfigConstants {
     public static final String ALIAS       = "alias"; 
     public static final String PROCESSORS  = "processors"; 
     public static final String BINDINGS    = "bindings"; 
+    public static final String CACHE       = "cache"; 
+    public static final String CURSOR      = "cursor"; 
+    public static final String SPLIT_MULTIVALUED = "splitMultivalued"; 
+    public static final String ITEM_QUERY  = "itemQuery"; 
+    public static final String ITEM_QUERY_DESCRIBE = "describe"; 
+    public static final String ITEM_QUERY_VIEW = "view"; 
+    public static final String TIMEOUT     = "timeout"; 
+    public static final String MAX_CONCURRENT = "maxConcurrent"; 
+    public static final String MAX_QUEUE   = "maxQueue"; 
+    public static final String PREFETCH    = "prefetch"; 
+    public static final String COALESCE_WINDOW = "coalesceWindow"; 
     
     public static final String PROPERTY    = "prop";
     public static final String OPTIONAL    = "optional";
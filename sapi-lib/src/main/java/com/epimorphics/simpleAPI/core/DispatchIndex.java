@@ -0,0 +1,173 @@
+/******************************************************************
+ * File:        DispatchIndex.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.core.MultivaluedMap;
+
+import com.epimorphics.simpleAPI.endpoints.EndpointSpec;
+import com.epimorphics.webapi.dispatch.TemplateSet;
+
+/**
+ * Immutable index of endpoint URL templates used to dispatch requests.
+ * Templates made up of literal path segments and whole segment variables
+ * (<code>{var}</code>) are held in a trie over the path segments so that lookup
+ * cost depends on the depth of the path rather than the number of endpoints.
+ * Literal segments are preferred to variables when more than one template matches.
+ * Any other templates (partial segment variables, query parameters) are
+ * matched by a conventional TemplateSet, which is only consulted if the
+ * trie finds no match or only a match with fewer literal characters.
+ */
+public class DispatchIndex {
+    protected static final Pattern VAR_SEGMENT = Pattern.compile("\\{[\\w.-]+\\}");
+
+    protected final Node root = new Node();
+    protected final TemplateSet<EndpointSpec> others = new TemplateSet<>();
+    protected final boolean hasOthers;
+
+    /**
+     * Build an index over the given map from URL templates to endpoints
+     */
+    public DispatchIndex(Map<String, EndpointSpec> templates) {
+        boolean anyOthers = false;
+        for (Map.Entry<String, EndpointSpec> e : templates.entrySet()) {
+            String template = e.getKey();
+            List<String> segments = segments(template);
+            if (isIndexable(template, segments)) {
+                add(segments, e.getValue());
+            } else {
+                others.register(template, e.getValue());
+                anyOthers = true;
+            }
+        }
+        hasOthers = anyOthers;
+    }
+
+    /**
+     * Find the endpoint matching the given path, adding any template variable
+     * values to the bindings. Returns null if there is no match.
+     */
+    public EndpointSpec lookup(Map<String, String> bindings, String path, MultivaluedMap<String, String> queryParameters) {
+        return lookup(bindings::put, path, queryParameters);
+    }
+
+    /**
+     * Find the endpoint matching the given path, passing any template variable
+     * values to the binding action. Returns null if there is no match, in which
+     * case nothing is bound.
+     */
+    public EndpointSpec lookup(BiConsumer<String, String> bind, String path, MultivaluedMap<String, String> queryParameters) {
+        List<String> segments = segments(path);
+        Node match = match(root, segments, 0);
+        if (hasOthers && (match == null || match.hasVars)) {
+            Map<String, String> otherBindings = new HashMap<>();
+            EndpointSpec other = others.lookup(otherBindings, path, queryParameters);
+            if (other != null && (match == null || literalLength(other.getURL()) > match.literalLength)) {
+                otherBindings.forEach(bind);
+                return other;
+            }
+        }
+        if (match == null) {
+            return null;
+        }
+        // The matched template has a variable at exactly the positions where the path took a variable branch
+        for (int i = 0; i < segments.size(); i++) {
+            if (match.vars[i] != null) {
+                bind.accept(match.vars[i], segments.get(i));
+            }
+        }
+        return match.endpoint;
+    }
+
+    protected Node match(Node node, List<String> segments, int i) {
+        if (i == segments.size()) {
+            return node.endpoint == null ? null : node;
+        }
+        String segment = segments.get(i);
+        Node next = node.literals.get(segment);
+        if (next != null) {
+            Node match = match(next, segments, i + 1);
+            if (match != null) {
+                return match;
+            }
+        }
+        if (node.variable != null) {
+            return match(node.variable, segments, i + 1);
+        }
+        return null;
+    }
+
+    protected void add(List<String> segments, EndpointSpec endpoint) {
+        Node node = root;
+        String[] vars = new String[ segments.size() ];
+        int literalLength = 0;
+        boolean hasVars = false;
+        for (int i = 0; i < segments.size(); i++) {
+            String segment = segments.get(i);
+            if (VAR_SEGMENT.matcher(segment).matches()) {
+                if (node.variable == null) {
+                    node.variable = new Node();
+                }
+                node = node.variable;
+                vars[i] = segment.substring(1, segment.length() - 1);
+                hasVars = true;
+            } else {
+                node = node.literals.computeIfAbsent(segment, s -> new Node());
+                literalLength += segment.length();
+            }
+        }
+        // Same shape as an earlier template, last registration wins
+        node.endpoint = endpoint;
+        node.vars = vars;
+        node.literalLength = literalLength;
+        node.hasVars = hasVars;
+    }
+
+    protected static boolean isIndexable(String template, List<String> segments) {
+        if (template.indexOf('?') != -1) {
+            return false;
+        }
+        for (String segment : segments) {
+            if ( !VAR_SEGMENT.matcher(segment).matches() && (segment.indexOf('{') != -1 || segment.indexOf('}') != -1 || segment.indexOf('*') != -1) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected static int literalLength(String template) {
+        return template == null ? 0 : template.replaceAll("\\{[^}]*\\}", "").replace("/", "").length();
+    }
+
+    protected static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if ( !segment.isEmpty() ) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    protected static class Node {
+        protected final Map<String, Node> literals = new HashMap<>();
+        protected Node variable;
+        protected EndpointSpec endpoint;
+        protected String[] vars;
+        protected int literalLength;
+        protected boolean hasVars;
+    }
+}
@@ -9,32 +9,116 @@
 
 package com.epimorphics.simpleAPI.core;
 
+import static com.epimorphics.simpleAPI.core.ConfigConstants.DEFAULT_MODEL;
+
 import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.core.UriInfo;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epimorphics.appbase.core.App;
 import com.epimorphics.appbase.monitor.ConfigInstance;
 import com.epimorphics.appbase.monitor.ConfigMonitor;
 import com.epimorphics.simpleAPI.endpoints.EndpointSpec;
 import com.epimorphics.simpleAPI.requests.Call;
 import com.epimorphics.simpleAPI.requests.Request;
-import com.epimorphics.webapi.dispatch.TemplateSet;
+import com.epimorphics.simpleAPI.views.ModelSpec;
+import com.epimorphics.simpleAPI.views.ViewMap;
 
+/**
+ * Monitors a directory of endpoint, view and model specifications. The initial
+ * load parses the files in parallel, later changes reparse just the changed file.
+ */
 public class SpecMonitor extends ConfigMonitor<ConfigInstance> {
+    static final Logger log = LoggerFactory.getLogger( SpecMonitor.class );
+    
     protected API api;
-    protected TemplateSet<EndpointSpec> endpoints = new TemplateSet<>();
+    protected String directory;
+    protected final Map<String, Collection<ConfigInstance>> preparsed = new ConcurrentHashMap<>();
+    protected volatile boolean ready = false;
+    protected long loadTime;
+    protected final Map<String, EndpointSpec> templates = new LinkedHashMap<>();
+    protected volatile DispatchIndex endpoints = new DispatchIndex(templates);
+    // Names of the views and models each entry is derived from, and the reverse
+    protected final Map<String, Set<String>> references = new HashMap<>();
+    protected final Map<String, Set<String>> dependents = new HashMap<>();
     
     public SpecMonitor(API api) {
         this.api = api;
     }
 
+    @Override
+    public void setDirectory(String directory) {
+        super.setDirectory(directory);
+        this.directory = directory;
+    }
+    
+    @Override
+    public void startup(App app) {
+        long start = System.currentTimeMillis();
+        preparse();
+        super.startup(app);
+        preparsed.clear();
+        loadTime = System.currentTimeMillis() - start;
+        synchronized (templates) {
+            // The dispatch index is built once after the initial load, then rebuilt for each change
+            endpoints = new DispatchIndex(templates);
+            ready = true;
+        }
+        log.info( String.format("Loaded %d specifications in %dms", getEntries().size(), loadTime) );
+    }
+    
+    /**
+     * Parse all the spec files in parallel ahead of the monitor's own scan,
+     * which then just collects the results. Files which fail to parse are
+     * left for the scan to reparse and report.
+     */
+    protected void preparse() {
+        File[] files = directory == null ? null : new File(directory).listFiles();
+        if (files == null || files.length < 2) {
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            pool.submit( () -> Arrays.stream(files).parallel().filter(File::isFile).forEach(file -> {
+                try {
+                    preparsed.put( file.getAbsolutePath(), parse(file) );
+                } catch (Exception e) {
+                    // Reported when reparsed by the scan
+                }
+            }) ).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Parallel parse of specifications failed, falling back to serial", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     @Override
     protected Collection<ConfigInstance> configure(File file) {
+        Collection<ConfigInstance> items = preparsed.remove( file.getAbsolutePath() );
+        return items == null ? parse(file) : items;
+    }
+    
+    protected Collection<ConfigInstance> parse(File file) {
         ConfigInstance item = ConfigSpecFactory.read(api, file.getPath());
         if (item == null) {
             return Collections.emptyList();
@@ -43,15 +127,34 @@ public class SpecMonitor extends ConfigMonitor<ConfigInstance> {
         }
     }
     
+    /**
+     * True once the initial load of the specifications has completed
+     */
+    public boolean isReady() {
+        return ready;
+    }
+    
+    /**
+     * Time taken, in ms, for the initial load
+     */
+    public long getLoadTime() {
+        return loadTime;
+    }
+    
     @Override
     protected void doAddEntry(ConfigInstance entry) {
         super.doAddEntry(entry);
         if (entry instanceof EndpointSpec) {
             EndpointSpec ep = (EndpointSpec)entry;
             if (ep.getURL() != null) {
-                endpoints.register(ep.getURL(), ep);
+                synchronized (templates) {
+                    templates.put(ep.getURL(), ep);
+                    reindex();
+                }
             }
         }
+        setReferences(entry.getName(), referencesOf(entry));
+        entryChanged(entry);
     }
 
     @Override
@@ -60,10 +163,128 @@ public class SpecMonitor extends ConfigMonitor<ConfigInstance> {
         if (entry instanceof EndpointSpec) {
             EndpointSpec ep = (EndpointSpec)entry;
             if (ep.getURL() != null) {
-                endpoints.unregister(ep.getURL());
+                synchronized (templates) {
+                    templates.remove(ep.getURL());
+                    reindex();
+                }
+            }
+        }
+        // The entry may already have been replaced by a reloaded version
+        ConfigInstance current = entry.getName() == null ? null : get(entry.getName());
+        setReferences(entry.getName(), current == null ? Collections.emptySet() : referencesOf(current));
+        entryChanged(entry);
+    }
+    
+    /**
+     * Rebuild the dispatch index after a change to the templates, deferred
+     * during the initial load. Call while holding the templates lock.
+     */
+    protected void reindex() {
+        if (ready) {
+            endpoints = new DispatchIndex(templates);
+        }
+    }
+    
+    /**
+     * Return the names of the views and models an entry is derived from
+     */
+    protected Set<String> referencesOf(ConfigInstance entry) {
+        if (entry instanceof EndpointSpec) {
+            return ((EndpointSpec)entry).getViewReferences();
+        } else if (entry instanceof ViewMap && ((ViewMap)entry).getReference() != null) {
+            return Collections.singleton( ((ViewMap)entry).getReference() );
+        }
+        return Collections.emptySet();
+    }
+    
+    /**
+     * Record the views and models a named entry is derived from, replacing any earlier record
+     */
+    protected void setReferences(String name, Set<String> refs) {
+        if (name == null) {
+            return;
+        }
+        synchronized (dependents) {
+            Set<String> old = references.remove(name);
+            if (old != null) {
+                for (String ref : old) {
+                    Set<String> users = dependents.get(ref);
+                    if (users != null) {
+                        users.remove(name);
+                        if (users.isEmpty()) {
+                            dependents.remove(ref);
+                        }
+                    }
+                }
+            }
+            if ( !refs.isEmpty() ) {
+                references.put(name, refs);
+                for (String ref : refs) {
+                    dependents.computeIfAbsent(ref, k -> new HashSet<>()).add(name);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Invalidate state derived from a changed entry. Nothing has been derived during
+     * the initial load. A changed endpoint only affects itself, its compiled patterns go
+     * with it, but a changed view or model affects the endpoints derived from it.
+     * Cached results are always dropped.
+     */
+    protected void entryChanged(ConfigInstance entry) {
+        if (!ready) {
+            return;
+        }
+        if (api.getResultCache() != null) {
+            api.getResultCache().clear();
+        }
+        if ( !(entry instanceof EndpointSpec) ) {
+            clearCompiledViews(entry);
+        }
+    }
+    
+    /**
+     * Drop query patterns compiled by the endpoints derived from a changed view or
+     * model, and the default view entries if the default view is derived from it
+     */
+    protected void clearCompiledViews(ConfigInstance changed) {
+        Set<String> affected = dependentsOf(changed);
+        if (affected.contains(API.DEFAULT_VIEWNAME)) {
+            api.clearDefaultViewEntries();
+        }
+        for (String name : affected) {
+            ConfigInstance entry = get(name);
+            if (entry instanceof EndpointSpec) {
+                ((EndpointSpec)entry).clearCompiledViews();
             }
         }
     }
+    
+    /**
+     * Return the names of the entries derived, directly or through other views,
+     * from the given entry, including the entry itself
+     */
+    protected Set<String> dependentsOf(ConfigInstance changed) {
+        Set<String> affected = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        if (changed.getName() != null) {
+            pending.add( changed.getName() );
+        }
+        if (changed instanceof ModelSpec) {
+            // Any model may be the default if it is the only one
+            pending.add(DEFAULT_MODEL);
+        }
+        synchronized (dependents) {
+            while ( !pending.isEmpty() ) {
+                String name = pending.pop();
+                if (affected.add(name) && dependents.containsKey(name)) {
+                    pending.addAll( dependents.get(name) );
+                }
+            }
+        }
+        return affected;
+    }
 
     /**
      * Locate a registered endpoint which matches the requested URI
@@ -72,15 +293,12 @@ public class SpecMonitor extends ConfigMonitor<ConfigInstance> {
      * @throws NotFoundException if there is no matching endpoint
      */
     public Call getCall(UriInfo uriInfo, Request request) {
-        Map<String, String> bindings = new HashMap<>();
         String path = uriInfo.getPath();
-        EndpointSpec endpoint = endpoints.lookup(bindings, path, uriInfo.getQueryParameters());
+        // Template variable bindings go straight to the request, only on a successful match
+        EndpointSpec endpoint = endpoints.lookup(request::add, path, uriInfo.getQueryParameters());
         if (endpoint == null) {
             throw new NotFoundException("No endpoint matched request: " + path);
         }
-        for (Map.Entry<String, String> binding : bindings.entrySet()) {
-            request.add(binding.getKey(), binding.getValue());
-        }
         return new Call(endpoint, request);
     }
     
@@ -9,7 +9,9 @@
 
 package com.epimorphics.simpleAPI.endpoints;
 
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.jena.shared.PrefixMapping;
 
@@ -98,4 +100,63 @@ public interface EndpointSpec extends ConfigInstance {
      * as if passed as query/path callparameters but will be overriden by any actual call parameters.
      */
     public Map<String, String> getBindings();
+    
+    /**
+     * Return true if results for this endpoint should be cached, false if they should never
+     * be cached or null to use the default set on the API's result cache
+     */
+    public default Boolean getUseCache() {
+        return null;
+    }
+    
+    /**
+     * Return the time limit, in milliseconds, for queries from this endpoint to return
+     * their first result, null if there is no limit
+     */
+    public default Long getTimeout() {
+        return null;
+    }
+    
+    /**
+     * Return the maximum number of concurrent queries for this endpoint, null if there is no endpoint specific limit
+     */
+    public default Integer getMaxConcurrent() {
+        return null;
+    }
+    
+    /**
+     * Return the maximum number of calls that may wait for this endpoint's concurrency limit, null to use the default
+     */
+    public default Integer getMaxQueue() {
+        return null;
+    }
+    
+    /**
+     * Return the number of results to fetch ahead of the client on a background thread, null if results are not prefetched
+     */
+    public default Integer getPrefetch() {
+        return null;
+    }
+    
+    /**
+     * Return the number of results which may be open while merging rows by id, null if only adjacent rows are merged
+     */
+    public default Integer getCoalesceWindow() {
+        return null;
+    }
+    
+    /**
+     * Return the names of the shared views and models which this endpoint's views are derived from
+     */
+    public default Set<String> getViewReferences() {
+        return Collections.emptySet();
+    }
+    
+    /**
+     * Discard any state derived from this endpoint's views, called when a view
+     * or model they are derived from is reloaded
+     */
+    public default void clearCompiledViews() {
+        // Nothing derived by default
+    }
 }
@@ -9,6 +9,15 @@
 
 package com.epimorphics.simpleAPI.endpoints;
 
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jena.rdf.model.Resource;
+
+import com.epimorphics.simpleAPI.query.ListQuery;
+import com.epimorphics.simpleAPI.requests.Call;
+import com.epimorphics.simpleAPI.views.ViewMap;
+
 public interface ListEndpointSpec extends EndpointSpec {
 
     /**
@@ -26,4 +35,27 @@ public interface ListEndpointSpec extends EndpointSpec {
      * May be null if no hard limit has been specified.
      */
     public Long getHardLimit() ;
+    
+    /**
+     * True if limited results should be paged by _cursor continuation tokens
+     */
+    public default boolean isCursorPaging() {
+        return false;
+    }
+    
+    /**
+     * True if some properties of the view are fetched by separate branch queries
+     * rather than by the main list query
+     */
+    public default boolean hasBranchQueries(ViewMap view) {
+        return false;
+    }
+    
+    /**
+     * Return the branch queries which fetch the separately queried properties
+     * of the given items, results from these are merged into the main results by id
+     */
+    public default List<ListQuery> getBranchQueries(Call call, List<Resource> ids) {
+        return Collections.emptyList();
+    }
 }
@@ -15,7 +15,9 @@ import static com.epimorphics.simpleAPI.core.ConfigConstants.ROOT_VAR;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.jena.atlas.json.JsonObject;
 import org.apache.jena.rdf.model.ResourceFactory;
@@ -52,6 +54,12 @@ public abstract class EndpointSpecBase extends ConfigItem implements EndpointSpe
     protected boolean suppressID;
     protected Engine engine;
     protected Map<String, String> bindings = new HashMap<>();
+    protected Boolean useCache;
+    protected Long timeout;
+    protected Integer maxConcurrent;
+    protected Integer maxQueue;
+    protected Integer prefetch;
+    protected Integer coalesceWindow;
     
     public EndpointSpecBase(API api) {
         super();
@@ -96,6 +104,17 @@ public abstract class EndpointSpecBase extends ConfigItem implements EndpointSpe
     public Collection<String> listViewNames() {
         return views.keySet();
     }
+    
+    @Override
+    public Set<String> getViewReferences() {
+        Set<String> references = new HashSet<>();
+        for (ViewMap view : views.values()) {
+            if (view.getReference() != null) {
+                references.add( view.getReference() );
+            }
+        }
+        return references;
+    }
 
     @Override public QueryBuilder getQueryBuilder() {
         return getQueryBuilder(DEFAULT_VIEWNAME);
@@ -259,4 +278,82 @@ public abstract class EndpointSpecBase extends ConfigItem implements EndpointSpe
     public void addBinding(String key, String value) {
         bindings.put(key, value);
     }
+    
+    @Override
+    public Boolean getUseCache() {
+        return useCache;
+    }
+    
+    /**
+     * Set to true to cache results of this endpoint, false to never cache them.
+     * Only has an effect if the API has been configured with a result cache.
+     */
+    public void setUseCache(boolean useCache) {
+        this.useCache = useCache;
+    }
+    
+    @Override
+    public Long getTimeout() {
+        return timeout;
+    }
+    
+    /**
+     * Set the time limit, in milliseconds, for queries from this endpoint to return
+     * their first result. Streamed queries with no results by the time limit are aborted.
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+    
+    @Override
+    public Integer getMaxConcurrent() {
+        return maxConcurrent;
+    }
+    
+    /**
+     * Set the maximum number of concurrent queries for this endpoint.
+     * Only has an effect if the API has been configured with a bulkhead.
+     */
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+    
+    @Override
+    public Integer getMaxQueue() {
+        return maxQueue;
+    }
+    
+    /**
+     * Set the maximum number of calls that may wait for this endpoint's concurrency limit
+     */
+    public void setMaxQueue(int maxQueue) {
+        this.maxQueue = maxQueue;
+    }
+    
+    @Override
+    public Integer getPrefetch() {
+        return prefetch;
+    }
+    
+    /**
+     * Set the number of results to fetch and assemble ahead of the client.
+     * Streamed results are then read from the data source on a background
+     * thread, overlapping with serialization of earlier results.
+     */
+    public void setPrefetch(int prefetch) {
+        this.prefetch = prefetch;
+    }
+    
+    @Override
+    public Integer getCoalesceWindow() {
+        return coalesceWindow;
+    }
+    
+    /**
+     * Merge query rows by id within a window of this many results, rather than
+     * only merging adjacent rows.
+     */
+    public void setCoalesceWindow(int coalesceWindow) {
+        this.coalesceWindow = coalesceWindow;
+    }
 }
@@ -9,6 +9,9 @@
 
 package com.epimorphics.simpleAPI.query;
 
+import javax.ws.rs.core.Response.Status;
+
+import com.epimorphics.appbase.webapi.WebApiException;
 import com.epimorphics.simpleAPI.requests.Call;
 import com.epimorphics.simpleAPI.results.Result;
 import com.epimorphics.simpleAPI.results.ResultStream;
@@ -25,4 +28,12 @@ public interface DataSource {
 
     public ResultStream query(ListQuery query, Call call);
     
+    /**
+     * Retrieve a batch of items in one query, the ids are given by the query's batch ids.
+     * Returns one result per item found, in request order, items not found are omitted.
+     */
+    public default ResultStream queryBatch(ItemQuery query, Call call) {
+        throw new WebApiException(Status.BAD_REQUEST, "Batch item lookup not supported by this data source");
+    }
+    
 }
@@ -9,6 +9,8 @@
 
 package com.epimorphics.simpleAPI.query;
 
+import java.util.List;
+
 /**
  * Base abstraction for an Item query, might be a SPARQL describe or a NoSQL retrieve
  * 
@@ -16,4 +18,10 @@ package com.epimorphics.simpleAPI.query;
  */
 public interface ItemQuery extends Query {
 
+    /**
+     * Return the ids of the items to retrieve if this is a batch lookup, otherwise null
+     */
+    public default List<String> getBatchIds() {
+        return null;
+    }
 }
@@ -13,6 +13,7 @@ import java.util.Collection;
 
 import org.apache.jena.rdf.model.RDFNode;
 
+import com.epimorphics.simpleAPI.requests.Cursor;
 import com.epimorphics.simpleAPI.views.ViewMap;
 import com.epimorphics.simpleAPI.views.ViewPath;
 import com.epimorphics.sparql.geo.GeoQuery;
@@ -71,6 +72,11 @@ public interface ListQueryBuilder extends QueryBuilder {
      */
     public ListQueryBuilder limit(long limit, long offset);
     
+    /**
+     * Restrict the query to results which sort after the position recorded by the cursor
+     */
+    public ListQueryBuilder after(Cursor cursor);
+    
     /**
      * Set a geoquery filter
      */
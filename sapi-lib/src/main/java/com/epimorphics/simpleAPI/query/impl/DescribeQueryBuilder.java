@@ -9,17 +9,21 @@
 
 package com.epimorphics.simpleAPI.query.impl;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
 
 import org.apache.jena.graph.Node;
 import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.shared.PrefixMapping;
 
 import com.epimorphics.simpleAPI.query.ItemQuery;
 import com.epimorphics.simpleAPI.query.QueryBuilder;
 import com.epimorphics.sparql.graphpatterns.Bind;
+import com.epimorphics.sparql.graphpatterns.GraphPatternText;
 import com.epimorphics.sparql.query.QueryShape;
 import com.epimorphics.sparql.templates.Settings;
 import com.epimorphics.sparql.terms.IsExpr;
@@ -31,6 +35,7 @@ import com.epimorphics.util.PrefixUtils;
 public class DescribeQueryBuilder implements QueryBuilder {
     protected QueryShape query;
     protected PrefixMapping prefixes;
+    protected List<String> batchIds;
     
     public DescribeQueryBuilder(QueryShape query) {
         this.query = query;
@@ -40,22 +45,57 @@ public class DescribeQueryBuilder implements QueryBuilder {
         this.prefixes = prefixes;
         this.query = query;
     }
+    
+    protected DescribeQueryBuilder(QueryShape query, PrefixMapping prefixes, List<String> batchIds) {
+        this(query, prefixes);
+        this.batchIds = batchIds;
+    }
 
     @Override public QueryBuilder bind(String varname, RDFNode value) {
-        return new DescribeQueryBuilder( bindQueryParam(query, varname, value), prefixes );
+        return derive( bindQueryParam(query, varname, value), batchIds );
     }
-
-    @Override public ItemQuery build() {
+    
+    /**
+     * Return a builder of the same kind for a modified query
+     */
+    protected DescribeQueryBuilder derive(QueryShape query, List<String> batchIds) {
+        return new DescribeQueryBuilder(query, prefixes, batchIds);
+    }
+    
+    /**
+     * Bind a variable to each of a list of resources, using a VALUES block,
+     * to describe a batch of items in a single query.
+     * The resources are assumed to be legal, absolute, URIs.
+     */
+    public DescribeQueryBuilder bindValues(String varname, List<Resource> values) {
+        List<String> ids = new ArrayList<>( values.size() );
+        StringBuilder block = new StringBuilder();
+        block.append("VALUES ?").append(varname).append(" {");
+        for (Resource value : values) {
+            ids.add( value.getURI() );
+            block.append(" <").append( value.getURI() ).append(">");
+        }
+        block.append(" }");
+        QueryShape q = query.copy();
+        q.addEarlyPattern( new GraphPatternText(block.toString()) );
+        return derive(q, ids);
+    }
+    
+    protected Settings getSettings() {
         Settings s = new Settings();
         Set<Entry<String, String>> es = prefixes.getNsPrefixMap().entrySet();
         for (Map.Entry<String, String> e: es) {
             s.setPrefix(e.getKey(), e.getValue());
         }
-    	String queryString = query.toSparqlDescribe(s);
+        return s;
+    }
+
+    @Override public ItemQuery build() {
+    	String queryString = query.toSparqlDescribe( getSettings() );
         return new SparqlDescribeQuery
         	( prefixes == null 
         	? queryString 
-        	: PrefixUtils.expandQuery(queryString, prefixes) )
+        	: PrefixUtils.expandQuery(queryString, prefixes), batchIds )
         	;
     }
     
@@ -44,6 +44,7 @@ import com.epimorphics.util.PrefixUtils;
  */
 public class NestedSparqlQueryBuilder extends SparqlQueryBuilder {
     protected QueryShape outerQuery;
+    protected Edits outerEdits;
     protected List<String> additionalProjectionVars = null;
     
     public NestedSparqlQueryBuilder(QueryShape innerQuery, QueryShape outerQuery, PrefixMapping prefixes) {
@@ -57,6 +58,13 @@ public class NestedSparqlQueryBuilder extends SparqlQueryBuilder {
         this.additionalProjectionVars = additionalProjectVars;
     }
     
+    protected NestedSparqlQueryBuilder(QueryShape innerQuery, Edits edits, QueryShape outerQuery, Edits outerEdits, PrefixMapping prefixes, List<String> additionalProjectVars) {
+        super(innerQuery, edits, prefixes);
+        this.outerQuery = outerQuery;
+        this.outerEdits = outerEdits;
+        this.additionalProjectionVars = additionalProjectVars;
+    }
+    
     /**
      * Construct a nested query builder from a base query and view mapping
      */
@@ -80,7 +88,7 @@ public class NestedSparqlQueryBuilder extends SparqlQueryBuilder {
     public ListQueryBuilder filterExists(ViewPath path, ViewMap map, boolean mustExist) {
         GraphPattern pathPattern = new Optional( map.patternForPath(path) );
         GraphPattern merged = new And( pathPattern, filterExistsPattern( path.asVariableName(), mustExist ) );
-        return updateQuery( query.copy().addLaterPattern(merged) );
+        return edit( q -> q.addLaterPattern(merged) );
     }
     
     public void setAdditionalProjectionVars(List<String> vars) {
@@ -90,17 +98,19 @@ public class NestedSparqlQueryBuilder extends SparqlQueryBuilder {
     public ListQueryBuilder pathAndFilter(ViewPath path, ViewMap map, GraphPattern filter) {
         GraphPattern pathPattern = map.patternForPath(path);
         GraphPattern merged = new And( pathPattern, filter );
-        return updateQuery( query.copy().addLaterPattern(merged) );
+        return edit( q -> q.addLaterPattern(merged) );
     }
     
     @Override public ListQueryBuilder sort(ViewPath path, ViewMap map, boolean down) {
         Order sc = (down ? Order.DESC : Order.ASC);
-        QueryShape q = query.copy().addOrder(sc, new Var(path.asVariableName()));
-        if ( ! path.isEmpty() ) {
-            GraphPattern pathPattern = map.patternForPath(path);
-            q.addLaterPattern(pathPattern);
-        }
-        return updateQuery( q );
+        Var var = new Var(path.asVariableName());
+        GraphPattern pathPattern = path.isEmpty() ? null : map.patternForPath(path);
+        return edit( q -> {
+            q.addOrder(sc, var);
+            if (pathPattern != null) {
+                q.addLaterPattern(pathPattern);
+            }
+        } );
     }
     
     /**
@@ -114,16 +124,22 @@ public class NestedSparqlQueryBuilder extends SparqlQueryBuilder {
      * Insert an arbitrary sparql query in the filter position of the outer query
      */
     public SparqlQueryBuilder filterOuter(GraphPattern pattern) {
-        return new NestedSparqlQueryBuilder(query, outerQuery.addLaterPattern(pattern), prefixes, additionalProjectionVars);
+        Edits outer = new Edits(outerEdits, q -> q.addLaterPattern(pattern));
+        return new NestedSparqlQueryBuilder(query, edits, outerQuery, outer, prefixes, additionalProjectionVars);
     }
     
     @Override
     protected SparqlQueryBuilder updateQuery(QueryShape q) {
-        return new NestedSparqlQueryBuilder(q, outerQuery, prefixes, additionalProjectionVars);
+        return new NestedSparqlQueryBuilder(q, null, outerQuery, outerEdits, prefixes, additionalProjectionVars);
+    }
+    
+    @Override
+    protected SparqlQueryBuilder withEdits(Edits edits) {
+        return new NestedSparqlQueryBuilder(query, edits, outerQuery, outerEdits, prefixes, additionalProjectionVars);
     }
 
     @Override public ListQuery build() {
-        QueryShape innerQS = query.copy();
+        QueryShape innerQS = copyQuery();
         innerQS.addProjection( new Var(ConfigConstants.ROOT_VAR) );
         if (additionalProjectionVars != null) {
             for (String var : additionalProjectionVars) {
@@ -132,7 +148,7 @@ public class NestedSparqlQueryBuilder extends SparqlQueryBuilder {
         }
         String inner = "{ " + innerQS.toSparqlSelect( new Settings() ) + "}";
         
-        QueryShape outerQS = outerQuery.copy();
+        QueryShape outerQS = Edits.apply(outerQuery, outerEdits);
         outerQS.addEarlyPattern( new GraphPatternText(inner) );
         
         Settings s = new Settings();
@@ -152,7 +168,7 @@ public class NestedSparqlQueryBuilder extends SparqlQueryBuilder {
      * @return
      */
     public String buildQueryBodyProjecting(String projection, boolean removeLimits) {
-        QueryShape qs = outerQuery.copy();
+        QueryShape qs = Edits.apply(outerQuery, outerEdits);
         if (removeLimits){
             qs.setLimit(-1);
             qs.setOffset(-1);
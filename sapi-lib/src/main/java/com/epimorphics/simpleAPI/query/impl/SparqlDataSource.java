@@ -9,12 +9,26 @@
 
 package com.epimorphics.simpleAPI.query.impl;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import javax.ws.rs.NotFoundException;
 
 import org.apache.jena.graph.Graph;
+import org.apache.jena.query.ResultSet;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.rdf.model.StmtIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,7 +40,10 @@ import com.epimorphics.simpleAPI.requests.Call;
 import com.epimorphics.simpleAPI.results.RDFResult;
 import com.epimorphics.simpleAPI.results.Result;
 import com.epimorphics.simpleAPI.results.ResultStream;
+import com.epimorphics.simpleAPI.results.ResultStreamList;
 import com.epimorphics.simpleAPI.results.ResultStreamSparqlSelect;
+import com.epimorphics.simpleAPI.results.TreeResult;
+import com.epimorphics.simpleAPI.util.SingleFlight;
 import com.epimorphics.util.EpiException;
 
 /**
@@ -37,6 +54,7 @@ public class SparqlDataSource implements DataSource {
     static final Logger log = LoggerFactory.getLogger( SparqlDataSource.class );
     
     protected SparqlSource source;
+    protected SingleFlight singleFlight;
     
     public SparqlDataSource(){
     }
@@ -44,14 +62,51 @@ public class SparqlDataSource implements DataSource {
     public void setSource(SparqlSource source) {
         this.source = source;
     }
+    
+    /**
+     * If set to true then concurrent identical queries share a single execution
+     */
+    public void setSingleFlight(boolean singleFlight) {
+        if (singleFlight && this.singleFlight == null) {
+            this.singleFlight = new SingleFlight();
+        } else if (!singleFlight) {
+            this.singleFlight = null;
+        }
+    }
+    
+    /**
+     * Set the maximum number of rows of a select that will be shared between concurrent queries,
+     * enables single flight execution
+     */
+    public void setSingleFlightMaxRows(long maxRows) {
+        setSingleFlight(true);
+        singleFlight.setMaxRows(maxRows);
+    }
+    
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
 
     @Override
     public Result query(ItemQuery query, Call call) {
-        if (query instanceof SparqlQuery) {
+        if (query instanceof SparqlItemSelectQuery) {
+            String queryString = ((SparqlQuery) query).getQuery();
+            log.debug( "Query: " + queryString );
+            ResultStream results = new ResultStreamSparqlSelect( select(queryString), call );
+            try {
+                Result result = results.next();
+                if (result == null) {
+                    throw new NotFoundException(call.toString());
+                }
+                return result;
+            } finally {
+                results.close();
+            }
+        } else if (query instanceof SparqlQuery) {
             SparqlQuery sq = (SparqlQuery) query;
             String queryString = sq.getQuery();
             log.debug( "Query: " + queryString );
-			Graph graph = source.describe(queryString);
+            Graph graph = describe(queryString);
             Model model = ModelFactory.createModelForGraph(graph);
             if (model.isEmpty()) {
             	// System.err.println(">> No results for query: " + queryString);
@@ -70,12 +125,103 @@ public class SparqlDataSource implements DataSource {
         if (query instanceof SparqlQuery) {
             log.debug( "Query: " + ((SparqlQuery) query).getQuery() );
             SparqlQuery sq = (SparqlQuery) query;
-            return new ResultStreamSparqlSelect( source.streamableSelect( sq.getQuery() ), call );
+            return new ResultStreamSparqlSelect( select( sq.getQuery() ), call );
         } else {
             throw new EpiException("SPARQL source given non-SPARQL query");
         }
     }
     
+    /**
+     * Run a single describe for the whole batch then split the returned
+     * graph into a separate description for each item.
+     */
+    @Override
+    public ResultStream queryBatch(ItemQuery query, Call call) {
+        if (query instanceof SparqlItemSelectQuery && query.getBatchIds() != null) {
+            String queryString = ((SparqlQuery) query).getQuery();
+            log.debug( "Batch query: " + queryString );
+            // Rows for an item need not be adjacent so merge any partial results
+            Map<RDFNode, TreeResult> found = new HashMap<>();
+            ResultStream stream = new ResultStreamSparqlSelect( select(queryString), call );
+            try {
+                for (Result result : stream) {
+                    TreeResult item = (TreeResult) result;
+                    TreeResult prior = found.putIfAbsent(item.getId(), item);
+                    if (prior != null) {
+                        prior.addAll(item);
+                    }
+                }
+            } finally {
+                stream.close();
+            }
+            List<Result> results = new ArrayList<>( found.size() );
+            for (String id : query.getBatchIds()) {
+                TreeResult item = found.get( ResourceFactory.createResource(id) );
+                if (item != null) {
+                    results.add(item);
+                }
+            }
+            return new ResultStreamList(results, call);
+        } else if (query instanceof SparqlQuery && query.getBatchIds() != null) {
+            String queryString = ((SparqlQuery) query).getQuery();
+            log.debug( "Batch query: " + queryString );
+            Model model = ModelFactory.createModelForGraph( describe(queryString) );
+            List<String> ids = query.getBatchIds();
+            Set<Resource> roots = new HashSet<>();
+            for (String id : ids) {
+                roots.add( model.createResource(id) );
+            }
+            List<Result> results = new ArrayList<>( ids.size() );
+            for (String id : ids) {
+                Resource root = model.getResource(id);
+                if ( model.contains(root, null, (RDFNode) null) ) {
+                    results.add( new RDFResult(extractDescription(root, roots), call) );
+                }
+            }
+            return new ResultStreamList(results, call);
+        } else {
+            throw new EpiException("SPARQL source given non-SPARQL or non-batch query");
+        }
+    }
+    
+    protected Graph describe(String queryString) {
+        if (singleFlight == null) {
+            return source.describe(queryString);
+        }
+        return singleFlight.describe(queryString, () -> source.describe(queryString));
+    }
+    
+    protected ResultSet select(String queryString) {
+        if (singleFlight == null) {
+            return source.streamableSelect(queryString);
+        }
+        return singleFlight.select(queryString, () -> source.streamableSelect(queryString));
+    }
+    
+    /**
+     * Copy the part of the model reachable from the root, without going
+     * through any of the other roots, into a separate model 
+     */
+    protected Resource extractDescription(Resource root, Set<Resource> roots) {
+        Model description = ModelFactory.createDefaultModel();
+        description.setNsPrefixes( root.getModel() );
+        Set<Resource> seen = new HashSet<>();
+        Deque<Resource> pending = new ArrayDeque<>();
+        seen.add(root);
+        pending.add(root);
+        while ( !pending.isEmpty() ) {
+            for (StmtIterator i = pending.removeFirst().listProperties(); i.hasNext();) {
+                Statement s = i.next();
+                description.add(s);
+                RDFNode o = s.getObject();
+                if (o.isResource() && !roots.contains(o) && seen.add( o.asResource() )) {
+                    pending.add( o.asResource() );
+                }
+            }
+        }
+        return root.inModel(description);
+    }
+    
     public SparqlSource getSource() {
         return source;
     }
@@ -9,6 +9,8 @@
 
 package com.epimorphics.simpleAPI.query.impl;
 
+import java.util.List;
+
 import com.epimorphics.simpleAPI.query.ItemQuery;
 
 /**
@@ -19,9 +21,23 @@ import com.epimorphics.simpleAPI.query.ItemQuery;
  * @author <a href="mailto:dave@epimorphics.com">Dave Reynolds</a>
  */
 public class SparqlDescribeQuery extends SparqlQuery implements ItemQuery {
+    protected List<String> batchIds;
 
     public SparqlDescribeQuery(String query) {
         super(query);
     }
     
+    /**
+     * Construct a query for a batch of items, the query should bind the root variable to each id
+     */
+    public SparqlDescribeQuery(String query, List<String> batchIds) {
+        super(query);
+        this.batchIds = batchIds;
+    }
+    
+    @Override
+    public List<String> getBatchIds() {
+        return batchIds;
+    }
+    
 }
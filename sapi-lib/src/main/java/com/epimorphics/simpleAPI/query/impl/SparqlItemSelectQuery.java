@@ -0,0 +1,40 @@
+/******************************************************************
+ * File:        SparqlItemSelectQuery.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.query.impl;
+
+import java.util.List;
+
+import com.epimorphics.simpleAPI.query.ItemQuery;
+
+/**
+ * An item query implemented as a SPARQL select over the view's pattern,
+ * whose rows are coalesced into results in the same way as list queries.
+ */
+public class SparqlItemSelectQuery extends SparqlQuery implements ItemQuery {
+    protected List<String> batchIds;
+
+    public SparqlItemSelectQuery(String query) {
+        super(query);
+    }
+    
+    /**
+     * Construct a query for a batch of items, the query should bind the root variable to each id
+     */
+    public SparqlItemSelectQuery(String query, List<String> batchIds) {
+        super(query);
+        this.batchIds = batchIds;
+    }
+    
+    @Override
+    public List<String> getBatchIds() {
+        return batchIds;
+    }
+    
+}
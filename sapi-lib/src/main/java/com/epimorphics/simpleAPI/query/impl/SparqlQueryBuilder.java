@@ -9,20 +9,27 @@
 
 package com.epimorphics.simpleAPI.query.impl;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.Consumer;
 
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.sparql.util.FmtUtils;
 
 import com.epimorphics.simpleAPI.core.ConfigConstants;
 import com.epimorphics.simpleAPI.query.ListQuery;
 import com.epimorphics.simpleAPI.query.ListQueryBuilder;
 import com.epimorphics.simpleAPI.query.QueryBuilder;
+import com.epimorphics.simpleAPI.requests.Cursor;
 import com.epimorphics.simpleAPI.views.ViewMap;
 import com.epimorphics.simpleAPI.views.ViewPath;
 import com.epimorphics.sparql.exprs.Call;
@@ -47,15 +54,27 @@ import com.epimorphics.util.PrefixUtils;
  * Implements query as a SPARQL string. This version uses low level string hacking.
  * Assumes the query has text markers for where injects can occur (done that way so
  * as to support nested queries where the injections are not obvious).
+ * <p>
+ * Builders are immutable. Rather than copy the query shape on each operation
+ * a derived builder records the operation in a persistent list of edits which
+ * shares its tail with the builder it was derived from. The base shape is only
+ * copied, and the edits applied, when the query is built.
+ * </p>
  * 
  * @author <a href="mailto:dave@epimorphics.com">Dave Reynolds</a>
  */
 public class SparqlQueryBuilder implements ListQueryBuilder {
     protected QueryShape query;
+    protected Edits edits;
     protected PrefixMapping prefixes = PrefixMapping.Factory.create();
 
     protected SparqlQueryBuilder(QueryShape query, PrefixMapping prefixes) {
+        this(query, null, prefixes);
+    }
+
+    protected SparqlQueryBuilder(QueryShape query, Edits edits, PrefixMapping prefixes) {
         this.query = query;
+        this.edits = edits;
         setPrefixes(prefixes);
     }
     
@@ -84,9 +103,33 @@ public class SparqlQueryBuilder implements ListQueryBuilder {
         this.prefixes = prefixes;
     }
     
+    /**
+     * Return a builder for a replacement base query, discarding any pending edits
+     */
     protected SparqlQueryBuilder updateQuery(QueryShape q) {
         return new SparqlQueryBuilder(q, prefixes);
     }
+
+    /**
+     * Return a builder for the same base query with the given list of edits
+     */
+    protected SparqlQueryBuilder withEdits(Edits edits) {
+        return new SparqlQueryBuilder(query, edits, prefixes);
+    }
+
+    /**
+     * Return a builder which applies one further edit to the query shape
+     */
+    protected SparqlQueryBuilder edit(Consumer<QueryShape> edit) {
+        return withEdits( new Edits(edits, edit) );
+    }
+
+    /**
+     * Return a fresh copy of the query shape with all edits applied, may be freely modified
+     */
+    protected QueryShape copyQuery() {
+        return Edits.apply(query, edits);
+    }
     
     /**
      * Insert an arbitrary sparql query string before the base query element.
@@ -100,7 +143,7 @@ public class SparqlQueryBuilder implements ListQueryBuilder {
      * Insert an arbitrary sparql query string before the base query element.
      */
     public SparqlQueryBuilder inject(GraphPattern pattern) {
-        return updateQuery( query.copy().injectEarlyPattern(pattern) );
+        return edit( q -> q.injectEarlyPattern(pattern) );
     }
     
     /**
@@ -115,7 +158,7 @@ public class SparqlQueryBuilder implements ListQueryBuilder {
      * Insert an arbitrary sparql query string in the filter region of the query.
      */
     public SparqlQueryBuilder filter(GraphPattern pattern) {
-        return updateQuery( query.copy().addLaterPattern(pattern) );
+        return edit( q -> q.addLaterPattern(pattern) );
     }
     
     /**
@@ -123,7 +166,7 @@ public class SparqlQueryBuilder implements ListQueryBuilder {
      * Mostly used internally in the builder but public to support legacy apps.
      */
     protected SparqlQueryBuilder modifier(String s) {
-        return updateQuery( query.copy().addRawModifier(s) );
+        return edit( q -> q.addRawModifier(s) );
     }
 	
 	@Override public ListQueryBuilder filter(String shortname, RDFNode value) {
@@ -178,14 +221,13 @@ public class SparqlQueryBuilder implements ListQueryBuilder {
     }
     
 	@Override public ListQueryBuilder geoQuery(GeoQuery gq) {
-		QueryShape q = query.copy();
-		q.setGeoQuery(gq);
-		return updateQuery(q);
+		return edit( q -> q.setGeoQuery(gq) );
 	}
 	
 	@Override public ListQueryBuilder sort(String shortname, boolean down) {
 		Order sc = (down ? Order.DESC : Order.ASC);
-		return updateQuery( query.copy().addOrder(sc, new Var(shortname)) );
+		Var var = new Var(shortname);
+		return edit( q -> q.addOrder(sc, var) );
 	}
 	
 	@Override public ListQueryBuilder sort(ViewPath path, ViewMap map, boolean down) {
@@ -193,17 +235,68 @@ public class SparqlQueryBuilder implements ListQueryBuilder {
 	}
 
 	@Override public ListQueryBuilder limit(long limit, long offset) {
-		QueryShape q = query.copy();
-		q.setLimit(limit);
-		q.setOffset(offset);
-		return updateQuery(q);
+		return edit( q -> {
+		    q.setLimit(limit);
+		    q.setOffset(offset);
+		} );
 	}
 
+	@Override public ListQueryBuilder after(Cursor cursor) {
+	    return filter( cursorPattern(cursor) );
+	}
+	
+    /**
+     * Filter matching rows which sort after the cursor, for keys k1..kn this is
+     * (k1 after v1) || (k1 = v1 && k2 after v2) || ...
+     */
+    protected GraphPattern cursorPattern(Cursor cursor) {
+        StringBuilder expr = new StringBuilder();
+        StringBuilder equal = new StringBuilder();
+        for (int i = 0; i < cursor.size(); i++) {
+            String var = "?" + cursor.getVar(i);
+            Node value = cursor.getValue(i);
+            String after = afterCondition(var, value, cursor.isDown(i));
+            if (after != null) {
+                if (expr.length() > 0) {
+                    expr.append(" || ");
+                }
+                expr.append("(").append(equal).append(after).append(")");
+            }
+            if (value == null) {
+                equal.append("!bound(" + var + ") && ");
+            } else {
+                equal.append("sameTerm(" + var + ", " + FmtUtils.stringForNode(value) + ") && ");
+            }
+        }
+        return new GraphPatternText( "FILTER(" + (expr.length() == 0 ? "false" : expr) + ")" );
+    }
+    
+    /**
+     * Condition for a variable to sort after the value, given that unbound values
+     * sort first. URIs are compared by their string form. Returns null if nothing can sort after the value.
+     */
+    protected String afterCondition(String var, Node value, boolean down) {
+        if (value == null) {
+            return down ? null : "bound(" + var + ")";
+        }
+        String lhs = var;
+        String term = FmtUtils.stringForNode(value);
+        if (value.isURI()) {
+            lhs = "str(" + var + ")";
+            term = FmtUtils.stringForNode( NodeFactory.createLiteral(value.getURI()) );
+        }
+        if (down) {
+            return "(" + lhs + " < " + term + " || !bound(" + var + "))";
+        } else {
+            return lhs + " > " + term;
+        }
+    }
+
 	@Override public ListQueryBuilder bind(String varname, RDFNode value) {
 		final Var var = new Var(varname);
 		final IsExpr val = TermUtils.nodeToTerm(value);
-		QueryShape q = query.copy().addPreBinding(new Bind(val, var));
-        return updateQuery(q);
+		final Bind bind = new Bind(val, var);
+        return edit( q -> q.addPreBinding(bind) );
 	}
 
     @Override public ListQuery build() {
@@ -212,7 +305,7 @@ public class SparqlQueryBuilder implements ListQueryBuilder {
 		for (Map.Entry<String, String> e: es) {
     		s.setPrefix(e.getKey(), e.getValue());
     	}
-		String queryString = query.toSparqlSelect(s);
+		String queryString = (edits == null ? query : copyQuery()).toSparqlSelect(s);
         String expanded = PrefixUtils.expandQuery(queryString, prefixes);
 		return new SparqlSelectQuery( expanded );
     }
@@ -224,7 +317,7 @@ public class SparqlQueryBuilder implements ListQueryBuilder {
      * @return
      */
     public String buildQueryBodyProjecting(String projection, boolean removeLimits) {
-        QueryShape qs = query.copy();
+        QueryShape qs = copyQuery();
         if (removeLimits){
             qs.setLimit(-1);
             qs.setOffset(-1);
@@ -233,5 +326,32 @@ public class SparqlQueryBuilder implements ListQueryBuilder {
         return qs.toSparqlSelect(new Settings());
     }
 
+    /**
+     * Persistent list of edits to a query shape, most recent first. Derived
+     * builders share the edits of the builder they were derived from.
+     */
+    protected static final class Edits {
+        protected final Edits previous;
+        protected final Consumer<QueryShape> edit;
 
+        public Edits(Edits previous, Consumer<QueryShape> edit) {
+            this.previous = previous;
+            this.edit = edit;
+        }
+
+        /**
+         * Copy the base query shape and apply the edits to it, oldest first
+         */
+        public static QueryShape apply(QueryShape base, Edits edits) {
+            Deque<Consumer<QueryShape>> ordered = new ArrayDeque<>();
+            for (Edits e = edits; e != null; e = e.previous) {
+                ordered.push(e.edit);
+            }
+            QueryShape q = base.copy();
+            for (Consumer<QueryShape> edit : ordered) {
+                edit.accept(q);
+            }
+            return q;
+        }
+    }
 }
@@ -0,0 +1,44 @@
+/******************************************************************
+ * File:        ViewItemQueryBuilder.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.query.impl;
+
+import java.util.List;
+
+import org.apache.jena.shared.PrefixMapping;
+
+import com.epimorphics.simpleAPI.query.ItemQuery;
+import com.epimorphics.sparql.query.QueryShape;
+import com.epimorphics.util.PrefixUtils;
+
+/**
+ * Builds item queries which only fetch the properties in a view. Supports the
+ * same binding of the item id, or batch of ids, as a describe but generates
+ * a select over the view's pattern.
+ */
+public class ViewItemQueryBuilder extends DescribeQueryBuilder {
+    
+    public ViewItemQueryBuilder(QueryShape query, PrefixMapping prefixes) {
+        super(query, prefixes);
+    }
+    
+    protected ViewItemQueryBuilder(QueryShape query, PrefixMapping prefixes, List<String> batchIds) {
+        super(query, prefixes, batchIds);
+    }
+
+    @Override
+    protected DescribeQueryBuilder derive(QueryShape query, List<String> batchIds) {
+        return new ViewItemQueryBuilder(query, prefixes, batchIds);
+    }
+
+    @Override public ItemQuery build() {
+        String queryString = query.toSparqlSelect( getSettings() );
+        return new SparqlItemSelectQuery( PrefixUtils.expandQuery(queryString, prefixes), batchIds );
+    }
+}
@@ -28,12 +28,21 @@ import com.epimorphics.appbase.webapi.WebApiException;
 import com.epimorphics.rdfutil.TypeUtil;
 import com.epimorphics.simpleAPI.core.API;
 import com.epimorphics.simpleAPI.endpoints.EndpointSpec;
+import com.epimorphics.simpleAPI.endpoints.ListEndpointSpec;
 import com.epimorphics.simpleAPI.query.DataSource;
 import com.epimorphics.simpleAPI.query.ItemQuery;
 import com.epimorphics.simpleAPI.query.ListQuery;
 import com.epimorphics.simpleAPI.query.Query;
 import com.epimorphics.simpleAPI.query.QueryBuilder;
 import com.epimorphics.simpleAPI.results.ResultOrStream;
+import com.epimorphics.simpleAPI.results.ResultStream;
+import com.epimorphics.simpleAPI.results.ResultStreamBranchJoin;
+import com.epimorphics.simpleAPI.results.ResultStreamGuard;
+import com.epimorphics.simpleAPI.results.ResultStreamPrefetch;
+import com.epimorphics.simpleAPI.util.Bulkhead;
+import com.epimorphics.simpleAPI.util.CallMetrics;
+import com.epimorphics.simpleAPI.util.CallMetrics.Phase;
+import com.epimorphics.simpleAPI.util.ResultCache;
 import com.epimorphics.simpleAPI.views.PropertySpec;
 import com.epimorphics.simpleAPI.views.ViewMap;
 import com.epimorphics.simpleAPI.views.ViewPath;
@@ -54,6 +63,8 @@ public class Call {
     protected String templateName;
     protected QueryBuilder builder;
     protected DataSource dataSource ;
+    protected ResultCache.Entry cacheEntry;
+    protected CallMetrics metrics;
     
     public Call(EndpointSpec endpoint, Request request) {
         this.endpoint = endpoint;
@@ -179,20 +190,36 @@ public class Call {
      * cases where no custom processing of request or query is needed.
      */
     public ResultOrStream getResults() {
+        long start = System.nanoTime();
         Query query = finalizeQueryBuilder().build();
+        getMetrics().record(Phase.BUILD, start);
         checkRequestRecognized();
+        if (getTemplateName() == null) {
+            templateName = (query instanceof ListQuery || isBatch(query)) ? getAPI().getDefaultListTemplate() : getAPI().getDefaultItemTemplate();
+        }
+        ResultCache cache = getResultCache();
+        String cacheKey = null;
+        if (cache != null) {
+            cacheKey = cache.keyFor(this, query);
+            ResultOrStream cached = cache.lookup(cacheKey, this);
+            if (cached != null) {
+                return Cursor.page(this, cached);
+            }
+        }
+        Bulkhead bulkhead = getAPI().getBulkhead();
+        Bulkhead.Permit permit = bulkhead == null ? null : bulkhead.acquire(endpoint);
         try {
-            if (query instanceof ListQuery) {
-                if (getTemplateName() == null) {
-                    templateName = getAPI().getDefaultListTemplate();
-                }
-                return getDataSource().query((ListQuery)query, this);
-            } else {
-                if (getTemplateName() == null) {
-                    templateName = getAPI().getDefaultItemTemplate();
-                }
-                return getDataSource().query((ItemQuery)query, this);
+            ResultOrStream results = getResults(query);
+            Integer prefetch = endpoint.getPrefetch();
+            if (prefetch != null && results instanceof ResultStream) {
+                results = ResultStreamPrefetch.prefetch((ResultStream)results, prefetch, getAPI().getPrefetchPool());
             }
+            if (permit != null && results instanceof ResultStream) {
+                // Streamed queries run until the results are consumed
+                results = new ResultStreamGuard((ResultStream)results, permit::release);
+                permit = null;
+            }
+            return Cursor.page(this, cache == null ? results : cache.record(cacheKey, this, results));
         } catch (QueryExceptionHTTP e) {
             if (e.getResponseCode() == 503) {
                 throw new WebApiException(e.getResponseCode(), "Query timed out");
@@ -209,6 +236,10 @@ public class Call {
             } else {
                 throw e3;
             }
+        } finally {
+            if (permit != null) {
+                permit.release();
+            }
         }
     }
     
@@ -227,11 +258,61 @@ public class Call {
      * Return the results for this call using a built (and possible modified) query. 
      */
     public ResultOrStream getResults(Query query) {
+        getMetrics().queryStarted();
+        ResultOrStream results;
         if (query instanceof ListQuery) {
-            return getDataSource().query((ListQuery)query, this);
+            results = getDataSource().query((ListQuery)query, this);
+        } else if (isBatch(query)) {
+            results = getDataSource().queryBatch((ItemQuery)query, this);
         } else {
-            return getDataSource().query((ItemQuery)query, this);
+            results = getDataSource().query((ItemQuery)query, this);
+        }
+        if ( !(results instanceof ResultStream && ((ResultStream)results).isTimed()) ) {
+            getMetrics().firstRow();
+        }
+        if (query instanceof ListQuery && endpoint instanceof ListEndpointSpec) {
+            ListEndpointSpec lspec = (ListEndpointSpec) endpoint;
+            if ( lspec.hasBranchQueries( getView() ) ) {
+                results = new ResultStreamBranchJoin( (ResultStream)results, ids -> lspec.getBranchQueries(this, ids) );
+            }
+        }
+        return results;
+    }
+    
+    protected boolean isBatch(Query query) {
+        return query instanceof ItemQuery && ((ItemQuery)query).getBatchIds() != null;
+    }
+    
+    /**
+     * Return the result cache to use for this call, null if results should not be cached
+     */
+    protected ResultCache getResultCache() {
+        ResultCache cache = getAPI().getResultCache();
+        if (cache != null && cache.isEnabledFor(endpoint)) {
+            return cache;
+        }
+        return null;
+    }
+    
+    /**
+     * Return the cache entry holding the results of this call, null if they are not being cached
+     */
+    public ResultCache.Entry getCacheEntry() {
+        return cacheEntry;
+    }
+
+    public void setCacheEntry(ResultCache.Entry cacheEntry) {
+        this.cacheEntry = cacheEntry;
+    }
+    
+    /**
+     * Return the timing breakdown for this call
+     */
+    public CallMetrics getMetrics() {
+        if (metrics == null) {
+            metrics = new CallMetrics();
         }
+        return metrics;
     }
     
     /**
@@ -0,0 +1,258 @@
+/******************************************************************
+ * File:        Cursor.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.requests;
+
+import static com.epimorphics.simpleAPI.core.ConfigConstants.ROOT_VAR;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+import javax.ws.rs.core.Response.Status;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.sparql.util.FmtUtils;
+import org.apache.jena.sparql.util.NodeFactoryExtra;
+import org.apache.jena.sparql.util.NodeUtils;
+
+import com.epimorphics.appbase.webapi.WebApiException;
+import com.epimorphics.simpleAPI.endpoints.EndpointSpec;
+import com.epimorphics.simpleAPI.endpoints.ListEndpointSpec;
+import com.epimorphics.simpleAPI.requests.SortRequestProcessor.SortKey;
+import com.epimorphics.simpleAPI.results.Result;
+import com.epimorphics.simpleAPI.results.ResultOrStream;
+import com.epimorphics.simpleAPI.results.ResultStream;
+import com.epimorphics.simpleAPI.results.ResultStreamList;
+import com.epimorphics.simpleAPI.results.TreeResult;
+
+/**
+ * Continuation token for keyset paging of list endpoints. Records the sort
+ * keys of a page and their values for the last item on the page, with the item
+ * id as the final tie breaking key, so that the next page can be selected by a
+ * filter on the sort variables rather than an OFFSET.
+ * <p>
+ * Tokens are opaque to clients, they are the base64url encoding of one line per
+ * key giving direction, variable name and the value in N-Triples syntax
+ * (empty if the value was unbound). Sort keys are expected to be single valued,
+ * for multivalued keys the value furthest along the sort order is used.
+ * </p>
+ */
+public class Cursor {
+    public static final String CURSOR = "_cursor";
+    public static final String NEXT_CURSOR = "_next_cursor";
+
+    protected final List<String> vars;
+    protected final List<Boolean> down;
+    protected final List<Node> values;
+
+    protected Cursor(List<String> vars, List<Boolean> down, List<Node> values) {
+        this.vars = vars;
+        this.down = down;
+        this.values = values;
+    }
+
+    /**
+     * Number of keys, including the final id key
+     */
+    public int size() {
+        return vars.size();
+    }
+
+    public String getVar(int i) {
+        return vars.get(i);
+    }
+
+    public boolean isDown(int i) {
+        return down.get(i);
+    }
+
+    /**
+     * Return the value of the i'th key for the last item, null if unbound
+     */
+    public Node getValue(int i) {
+        return values.get(i);
+    }
+
+    /**
+     * Test if the cursor was generated for the given sort keys
+     */
+    public boolean matches(List<SortKey> keys) {
+        if (keys.size() + 1 != vars.size()) {
+            return false;
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            SortKey key = keys.get(i);
+            if (!key.getVarName().equals(vars.get(i)) || key.isDown() != down.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Construct the cursor positioned after the given result, returns null if
+     * the result has no URI identifier to act as the tie breaking key
+     */
+    public static Cursor after(List<SortKey> keys, Result last) {
+        if ( !(last instanceof TreeResult) ) {
+            return null;
+        }
+        TreeResult tree = (TreeResult) last;
+        RDFNode id = tree.getId();
+        if (id == null || !id.isURIResource()) {
+            return null;
+        }
+        List<String> vars = new ArrayList<>( keys.size() + 1 );
+        List<Boolean> down = new ArrayList<>( keys.size() + 1 );
+        List<Node> values = new ArrayList<>( keys.size() + 1 );
+        for (SortKey key : keys) {
+            vars.add( key.getVarName() );
+            down.add( key.isDown() );
+            values.add( lastValue( tree.get(key.getPath()), key.isDown() ) );
+        }
+        vars.add(ROOT_VAR);
+        down.add(false);
+        values.add( id.asNode() );
+        return new Cursor(vars, down, values);
+    }
+
+    private static Node lastValue(Set<RDFNode> values, boolean down) {
+        Node last = null;
+        if (values != null) {
+            for (RDFNode value : values) {
+                Node n = value.asNode();
+                if (last == null) {
+                    last = n;
+                } else {
+                    int c = NodeUtils.compareRDFTerms(n, last);
+                    if (down ? c < 0 : c > 0) {
+                        last = n;
+                    }
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Encode as an opaque URL safe token
+     */
+    public String encode() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < vars.size(); i++) {
+            if (i > 0) {
+                text.append('\n');
+            }
+            text.append( down.get(i) ? '-' : '+' );
+            text.append( vars.get(i) );
+            text.append( ' ' );
+            Node value = values.get(i);
+            if (value != null) {
+                text.append( FmtUtils.stringForNode(value) );
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString( text.toString().getBytes(StandardCharsets.UTF_8) );
+    }
+
+    /**
+     * Decode a token generated by encode
+     * @throws WebApiException if the token is not legal
+     */
+    public static Cursor decode(String token) {
+        try {
+            String text = new String( Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8 );
+            List<String> vars = new ArrayList<>();
+            List<Boolean> down = new ArrayList<>();
+            List<Node> values = new ArrayList<>();
+            for (String line : text.split("\n")) {
+                int split = line.indexOf(' ');
+                if (split < 2 || (line.charAt(0) != '+' && line.charAt(0) != '-')) {
+                    throw new IllegalArgumentException();
+                }
+                down.add( line.charAt(0) == '-' );
+                vars.add( line.substring(1, split) );
+                String value = line.substring(split + 1);
+                values.add( value.isEmpty() ? null : NodeFactoryExtra.parseNode(value) );
+            }
+            Node id = values.get(values.size() - 1);
+            if ( !ROOT_VAR.equals(vars.get(vars.size() - 1)) || id == null || !id.isURI() ) {
+                throw new IllegalArgumentException();
+            }
+            return new Cursor(vars, down, values);
+        } catch (Exception e) {
+            throw new WebApiException(Status.BAD_REQUEST, "Illegal " + CURSOR + " token");
+        }
+    }
+
+    /**
+     * Test if results for this call are paged by cursor
+     */
+    public static boolean isCursorPaged(Call call) {
+        EndpointSpec spec = call.getEndpoint();
+        return spec instanceof ListEndpointSpec && ((ListEndpointSpec)spec).isCursorPaging()
+                && call.getRequest().hasParameter(LimitRequestProcessor.APPLIED_LIMIT);
+    }
+
+    /**
+     * For cursor paged calls, read the page of results so that the token for the
+     * next page, if the page is full, is available to the metadata writers as the
+     * _next_cursor request parameter. A page is bounded by the applied limit.
+     */
+    public static ResultOrStream page(Call call, ResultOrStream results) {
+        if ( !(results instanceof ResultStream) || !isCursorPaged(call) ) {
+            return results;
+        }
+        Request request = call.getRequest();
+        List<Result> page = new ArrayList<>();
+        ResultStream stream = (ResultStream) results;
+        try {
+            for (Result result : stream) {
+                page.add(result);
+            }
+        } finally {
+            stream.close();
+        }
+        long limit = request.getAsLong(LimitRequestProcessor.APPLIED_LIMIT);
+        if (!page.isEmpty() && page.size() >= limit) {
+            List<SortKey> keys = SortRequestProcessor.sortKeys(request, call.getView());
+            Cursor next = after(keys, page.get(page.size() - 1));
+            if (next != null) {
+                request.add(NEXT_CURSOR, next.encode());
+                request.consume(NEXT_CURSOR);
+            }
+        }
+        return new ResultStreamList(page, call);
+    }
+
+    /**
+     * Return the URL for the next page of a request, replacing any _cursor
+     * or _offset parameters by the given token
+     */
+    public static String nextLink(Request request, String token) {
+        String uri = request.getFullRequestedURI();
+        int split = uri.indexOf('?');
+        StringBuilder link = new StringBuilder( split == -1 ? uri : uri.substring(0, split) );
+        char sep = '?';
+        if (split != -1) {
+            for (String param : uri.substring(split + 1).split("&")) {
+                String name = param.contains("=") ? param.substring(0, param.indexOf('=')) : param;
+                if ( !name.isEmpty() && !name.equals(CURSOR) && !name.equals(LimitRequestProcessor.OFFSET) ) {
+                    link.append(sep).append(param);
+                    sep = '&';
+                }
+            }
+        }
+        link.append(sep).append(CURSOR).append('=').append(token);
+        return link.toString();
+    }
+}
@@ -9,12 +9,22 @@
 
 package com.epimorphics.simpleAPI.requests;
 
+import static com.epimorphics.simpleAPI.core.ConfigConstants.ROOT_VAR;
+
+import java.util.List;
+
+import javax.ws.rs.core.Response.Status;
+
+import com.epimorphics.appbase.webapi.WebApiException;
 import com.epimorphics.simpleAPI.endpoints.EndpointSpec;
 import com.epimorphics.simpleAPI.endpoints.ListEndpointSpec;
 import com.epimorphics.simpleAPI.query.ListQueryBuilder;
+import com.epimorphics.simpleAPI.requests.SortRequestProcessor.SortKey;
 
 /**
  * Request processor that handles _limit/_offset requests.
+ * For endpoints with cursor paging enabled also handles _cursor requests, 
+ * adding the item id as a final sort key so that pages can be continued.
  * 
  * @author <a href="mailto:dave@epimorphics.com">Dave Reynolds</a>
  */
@@ -27,6 +37,9 @@ public class LimitRequestProcessor extends RequestProcessorBase {
     public ListQueryBuilder process(Request request, ListQueryBuilder builder, EndpointSpec spec) {
         if (spec instanceof ListEndpointSpec) {
             ListEndpointSpec lspec = (ListEndpointSpec)spec;
+            if (lspec.isCursorPaging()) {
+                builder = processCursor(request, builder, spec);
+            }
             if (request.hasAvailableParameter(LIMIT) || request.hasAvailableParameter(OFFSET)) {
                 long limit = Long.MAX_VALUE;
                 if (request.hasParameter(LIMIT)) {
@@ -63,5 +76,21 @@ public class LimitRequestProcessor extends RequestProcessorBase {
         }
         return builder;
     }
+    
+    protected ListQueryBuilder processCursor(Request request, ListQueryBuilder builder, EndpointSpec spec) {
+        if (request.hasParameter(Cursor.CURSOR)) {
+            if (request.hasParameter(OFFSET)) {
+                throw new WebApiException(Status.BAD_REQUEST, "Can't combine " + OFFSET + " with " + Cursor.CURSOR);
+            }
+            Cursor cursor = Cursor.decode( request.getFirst(Cursor.CURSOR) );
+            List<SortKey> keys = SortRequestProcessor.sortKeys(request, spec.getView( request.getViewName() ));
+            if (!cursor.matches(keys)) {
+                throw new WebApiException(Status.BAD_REQUEST, Cursor.CURSOR + " token does not match the requested sort order");
+            }
+            request.consume(Cursor.CURSOR);
+            builder = builder.after(cursor);
+        }
+        return builder.sort(ROOT_VAR, false);
+    }
 
 }
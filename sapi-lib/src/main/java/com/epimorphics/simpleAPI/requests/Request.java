@@ -48,6 +48,7 @@ import com.epimorphics.util.NameUtils;
  */
 public class Request {
     public static final String VIEW_KEY = "_view";
+    public static final String BATCH_ID_KEY = "_id";    // Item ids for a batch lookup
     
     public static final String BINDING_KEY_URI = "uri";   // base URI as a string
     public static final String BINDING_KEY_URL = "url";   // full URL, with query, as a builder
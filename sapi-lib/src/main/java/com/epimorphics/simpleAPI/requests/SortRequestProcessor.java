@@ -9,6 +9,9 @@
 
 package com.epimorphics.simpleAPI.requests;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.ws.rs.core.Response.Status;
 
 import com.epimorphics.appbase.webapi.WebApiException;
@@ -30,6 +33,22 @@ public class SortRequestProcessor extends RequestProcessorBase {
     public ListQueryBuilder process(Request request, ListQueryBuilder builder,
             EndpointSpec spec) {
         if (request.hasAvailableParameter(SORT)) {
+            ViewMap view = spec.getView( request.getViewName() );
+            for (SortKey key : sortKeys(request, view)) {
+                builder = builder.sort(key.getPath(), view, key.isDown());
+            }
+            request.consume(SORT);
+            return builder;
+        }
+        return builder;
+    }
+    
+    /**
+     * Return the sort keys requested by the _sort parameters, in order
+     */
+    public static List<SortKey> sortKeys(Request request, ViewMap view) {
+        List<SortKey> keys = new ArrayList<>();
+        if (request.hasParameter(SORT)) {
             for (String sort : request.get(SORT)) {
                 boolean down = false;
                 if (sort.startsWith("+")) {
@@ -38,18 +57,40 @@ public class SortRequestProcessor extends RequestProcessorBase {
                     down = true;
                     sort = sort.substring(1).trim();
                 }
-                ViewMap view = spec.getView( request.getViewName() );
                 ViewPath path = view.getTree().pathTo(sort);
                 if (path != null) {
-                    builder = builder.sort(path, view, down);
+                    keys.add( new SortKey(path, down) );
                 } else {
                     throw new WebApiException(Status.BAD_REQUEST, "Did not recognize parameter to sort on: " + sort);
                 }
             }
-            request.consume(SORT);
-            return builder;
         }
-        return builder;
+        return keys;
+    }
+    
+    /**
+     * A single sort directive, a path in the view and a direction
+     */
+    public static class SortKey {
+        protected ViewPath path;
+        protected boolean down;
+        
+        public SortKey(ViewPath path, boolean down) {
+            this.path = path;
+            this.down = down;
+        }
+
+        public ViewPath getPath() {
+            return path;
+        }
+
+        public boolean isDown() {
+            return down;
+        }
+        
+        public String getVarName() {
+            return path.asVariableName();
+        }
     }
     
 }
@@ -0,0 +1,53 @@
+/******************************************************************
+ * File:        FlatResult.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.results;
+
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.rdf.model.RDFNode;
+
+import com.epimorphics.simpleAPI.requests.Call;
+import com.epimorphics.simpleAPI.views.SlotLayout;
+
+/**
+ * A result for a flat view, built directly from a single query row,
+ * with one simple value per slot of the view's layout. The CSV and JSON
+ * writers read the slots directly while the result is unmodified.
+ */
+public class FlatResult extends TreeResult {
+    protected boolean modified = false;
+
+    public FlatResult(Call call, RDFNode id, SlotLayout layout, QuerySolution row) {
+        super(call, id, layout);
+        for (int i = 0; i < size; i++) {
+            slots[i] = row.get( keys[i] );
+        }
+    }
+
+    /**
+     * True if the slots still hold the complete result as single values, 
+     * false once values have been added
+     */
+    public boolean hasSlots() {
+        return !modified && layout != null;
+    }
+
+    /**
+     * Return the value in the given slot, may be null. Only valid if hasSlots() is true.
+     */
+    public RDFNode getSlotValue(int slot) {
+        return (RDFNode) slots[slot];
+    }
+
+    @Override
+    public void add(int slot, Object value) {
+        modified = true;
+        super.add(slot, value);
+    }
+}
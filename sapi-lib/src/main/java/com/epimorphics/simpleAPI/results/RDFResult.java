@@ -24,6 +24,7 @@ import com.epimorphics.simpleAPI.requests.Call;
 import com.epimorphics.simpleAPI.views.PropertySpec;
 import com.epimorphics.simpleAPI.views.ViewMap;
 import com.epimorphics.simpleAPI.views.ClassSpec;
+import com.epimorphics.simpleAPI.writers.JsonEmitter;
 import com.epimorphics.sparql.terms.URI;
 
 /**
@@ -54,6 +55,11 @@ public class RDFResult extends ResultBase implements Result {
     public void writeJson(JSFullWriter out) {
         asTreeResult().writeJson(out);
     }
+
+    @Override
+    public void writeJson(JsonEmitter out) {
+        asTreeResult().writeJson(out);
+    }
     
     public TreeResult asTreeResult() {
         // TODO if there is a view should we limit the describe to that view?
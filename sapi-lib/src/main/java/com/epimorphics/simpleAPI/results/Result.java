@@ -14,6 +14,9 @@ import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.Resource;
 
 import com.epimorphics.json.JSFullWriter;
+import com.epimorphics.simpleAPI.writers.JSFullWriterEmitter;
+import com.epimorphics.simpleAPI.writers.JsonEmitter;
+import com.epimorphics.simpleAPI.writers.JsonWriterUtil;
 
 /**
  * Abstraction for a single result in a result stream. 
@@ -43,6 +46,18 @@ public interface Result extends ResultOrStream {
      * Render the result to a JSON stream
      */
     public void writeJson(JSFullWriter out);
+    
+    /**
+     * Render the result to a JSON emitter, such as the byte level writer used for result streams.
+     * The default renders through the JSFullWriter method, via asJson if the emitter isn't a JSFullWriter.
+     */
+    public default void writeJson(JsonEmitter out) {
+        if (out instanceof JSFullWriterEmitter) {
+            writeJson( ((JSFullWriterEmitter)out).getWriter() );
+        } else {
+            JsonWriterUtil.writeJson(asJson(), out);
+        }
+    }
 
     
     /**
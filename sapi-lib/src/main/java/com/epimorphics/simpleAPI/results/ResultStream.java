@@ -21,5 +21,15 @@ import java.util.Iterator;
 public interface ResultStream extends Iterable<Result>, Iterator<Result>, ResultOrStream {
     
     public void close();
+    
+    /**
+     * Return true if this stream notes the arrival of its first row, and the time spent
+     * fetching rows, in the call metrics itself. Otherwise the results are taken to be
+     * available as soon as the stream is returned by the data source.
+     * Streams which wrap another stream should delegate to it.
+     */
+    public default boolean isTimed() {
+        return false;
+    }
      
 }
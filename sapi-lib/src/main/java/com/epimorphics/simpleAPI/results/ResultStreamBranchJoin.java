@@ -0,0 +1,192 @@
+/******************************************************************
+ * File:        ResultStreamBranchJoin.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.results;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+
+import com.epimorphics.simpleAPI.query.ListQuery;
+import com.epimorphics.util.EpiException;
+
+/**
+ * Wraps the ResultStream from a main list query and fills in properties fetched
+ * by separate branch queries. Results are read from the main stream in batches,
+ * the branch queries for each batch are run in parallel, constrained to the ids
+ * in the batch, and their results merged into the main results by id.
+ * <p>
+ * Only results with URI ids can be joined, other results are passed through
+ * with just the properties from the main query.
+ * </p>
+ * <p>
+ * Branch queries run in the API's bounded branch query pool, or on the calling
+ * thread if the pool is busy. They run under the main query's bulkhead permit,
+ * which is held until this stream is closed, rather than being admitted separately.
+ * </p>
+ */
+public class ResultStreamBranchJoin extends ResultStreamBase implements ResultStream {
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    protected ResultStream stream;
+    protected Function<List<Resource>, List<ListQuery>> branches;
+    protected int batchSize;
+    protected Iterator<Result> batch = Collections.emptyIterator();
+    protected boolean closed = false;
+
+    /**
+     * @param stream the results of the main query
+     * @param branches function which returns the branch queries for a batch of ids
+     * @param batchSize the maximum number of ids in a batch
+     */
+    public ResultStreamBranchJoin(ResultStream stream, Function<List<Resource>, List<ListQuery>> branches, int batchSize) {
+        super(stream.getCall());
+        this.stream = stream;
+        this.branches = branches;
+        this.batchSize = batchSize;
+    }
+
+    public ResultStreamBranchJoin(ResultStream stream, Function<List<Resource>, List<ListQuery>> branches) {
+        this(stream, branches, DEFAULT_BATCH_SIZE);
+    }
+
+    @Override
+    public Iterator<Result> iterator() {
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!batch.hasNext() && !closed) {
+            fill();
+        }
+        return batch.hasNext();
+    }
+
+    @Override
+    public Result next() {
+        return hasNext() ? batch.next() : null;
+    }
+
+    protected void fill() {
+        List<Result> results = new ArrayList<>(batchSize);
+        Map<RDFNode, List<TreeResult>> byId = new HashMap<>();
+        List<Resource> ids = new ArrayList<>();
+        while (results.size() < batchSize && stream.hasNext()) {
+            Result result = stream.next();
+            if (result == null) {
+                break;
+            }
+            results.add(result);
+            if (result instanceof TreeResult) {
+                RDFNode id = ((TreeResult)result).getId();
+                if (id != null && id.isURIResource()) {
+                    List<TreeResult> targets = byId.get(id);
+                    if (targets == null) {
+                        targets = new ArrayList<>(1);
+                        byId.put(id, targets);
+                        ids.add( id.asResource() );
+                    }
+                    targets.add( (TreeResult)result );
+                }
+            }
+        }
+        if ( !ids.isEmpty() ) {
+            join(byId, ids);
+        }
+        batch = results.iterator();
+    }
+
+    protected void join(Map<RDFNode, List<TreeResult>> byId, List<Resource> ids) {
+        ExecutorService executor = call.getAPI().getBranchQueryPool();
+        List<Future<List<Result>>> pending = new ArrayList<>();
+        for (ListQuery query : branches.apply(ids)) {
+            try {
+                pending.add( executor.submit(() -> runBranch(query)) );
+            } catch (RejectedExecutionException e) {
+                // Pool is busy, run this branch ourselves, failures are raised below
+                FutureTask<List<Result>> task = new FutureTask<>(() -> runBranch(query));
+                task.run();
+                pending.add(task);
+            }
+        }
+        long start = System.nanoTime();
+        try {
+            for (Future<List<Result>> branch : pending) {
+                for (Result result : branch.get()) {
+                    TreeResult partial = (TreeResult) result;
+                    List<TreeResult> targets = byId.get( partial.getId() );
+                    if (targets != null) {
+                        for (TreeResult target : targets) {
+                            target.addAll(partial);
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(pending);
+            throw new EpiException("Interrupted while waiting for branch queries");
+        } catch (ExecutionException e) {
+            abort(pending);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new EpiException("Branch query failed", e.getCause());
+        } finally {
+            call.getMetrics().waited(start);
+        }
+    }
+
+    protected List<Result> runBranch(ListQuery query) {
+        List<Result> results = new ArrayList<>();
+        ResultStream branch = call.getDataSource().query(query, call);
+        try {
+            for (Result result : branch) {
+                results.add(result);
+            }
+        } finally {
+            branch.close();
+        }
+        return results;
+    }
+
+    protected void abort(List<Future<List<Result>>> pending) {
+        for (Future<List<Result>> branch : pending) {
+            branch.cancel(true);
+        }
+        close();
+    }
+
+    @Override
+    public boolean isTimed() {
+        return stream.isTimed();
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            batch = Collections.emptyIterator();
+            stream.close();
+        }
+    }
+}
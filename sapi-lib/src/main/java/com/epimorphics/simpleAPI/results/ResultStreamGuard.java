@@ -0,0 +1,76 @@
+/******************************************************************
+ * File:        ResultStreamGuard.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.results;
+
+import java.util.Iterator;
+
+/**
+ * Wraps a ResultStream and runs an action, once, when the stream is closed,
+ * exhausted or fails (e.g. to release resources held for the duration of the query).
+ */
+public class ResultStreamGuard extends ResultStreamBase implements ResultStream {
+    protected ResultStream stream;
+    protected Runnable onClose;
+    protected boolean closed = false;
+
+    public ResultStreamGuard(ResultStream stream, Runnable onClose) {
+        super(stream.getCall());
+        this.stream = stream;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public Iterator<Result> iterator() {
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        boolean hasNext;
+        try {
+            hasNext = stream.hasNext();
+        } catch (RuntimeException | Error e) {
+            close();
+            throw e;
+        }
+        if (!hasNext) {
+            close();
+        }
+        return hasNext;
+    }
+
+    @Override
+    public Result next() {
+        try {
+            return stream.next();
+        } catch (RuntimeException | Error e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean isTimed() {
+        return stream.isTimed();
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            try {
+                stream.close();
+            } finally {
+                onClose.run();
+            }
+        }
+    }
+
+}
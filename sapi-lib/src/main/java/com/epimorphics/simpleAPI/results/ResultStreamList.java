@@ -0,0 +1,44 @@
+/******************************************************************
+ * File:        ResultStreamList.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.results;
+
+import java.util.Iterator;
+import java.util.List;
+
+import com.epimorphics.simpleAPI.requests.Call;
+
+/**
+ * A ResultStream over a list of results which have already been materialized,
+ * for example results replayed from a cache.
+ */
+public class ResultStreamList extends ResultStreamBase implements ResultStream {
+    protected Iterator<Result> results;
+    
+    public ResultStreamList(List<Result> results, Call call) {
+        super(call);
+        this.results = results.iterator();
+    }
+
+    @Override
+    public Iterator<Result> iterator() {
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return results.hasNext();
+    }
+
+    @Override
+    public Result next() {
+        return results.next();
+    }
+
+}
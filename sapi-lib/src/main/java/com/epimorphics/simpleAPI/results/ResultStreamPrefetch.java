@@ -0,0 +1,180 @@
+/******************************************************************
+ * File:        ResultStreamPrefetch.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.results;
+
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epimorphics.util.EpiException;
+
+/**
+ * Wraps a ResultStream and reads it on a background thread, so that parsing and
+ * coalescing of query rows overlaps with serialization of earlier results.
+ * At most a fixed number of results are held ahead of the consumer, the
+ * background thread blocks when the buffer is full.
+ * <p>
+ * Closing the stream (e.g. when the client disconnects) stops the background
+ * thread and closes the wrapped stream, aborting the query. Exceptions raised
+ * while reading the wrapped stream are rethrown to the consumer.
+ * </p>
+ * <p>
+ * Background threads come from a bounded pool, use {@link #prefetch} to fall
+ * back to reading the stream directly when the pool is exhausted.
+ * </p>
+ */
+public class ResultStreamPrefetch extends ResultStreamBase implements ResultStream {
+    static final Logger log = LoggerFactory.getLogger( ResultStreamPrefetch.class );
+
+    protected static final Object END = new Object();
+
+    protected ResultStream stream;
+    protected BlockingQueue<Object> buffer;
+    protected Future<?> producer;
+    protected Object next;
+    protected volatile boolean closed = false;
+
+    /**
+     * @param stream the stream to read
+     * @param size the maximum number of results to read ahead of the consumer
+     * @param executor the pool to run the background reader in
+     * @throws RejectedExecutionException if the pool has no free thread
+     */
+    public ResultStreamPrefetch(ResultStream stream, int size, ExecutorService executor) {
+        super(stream.getCall());
+        this.stream = stream;
+        this.buffer = new ArrayBlockingQueue<>(size);
+        this.producer = executor.submit(this::produce);
+    }
+
+    /**
+     * Wrap the stream to prefetch up to size results in the given pool, or
+     * return the stream unchanged if the pool has no free thread
+     */
+    public static ResultStream prefetch(ResultStream stream, int size, ExecutorService executor) {
+        try {
+            return new ResultStreamPrefetch(stream, size, executor);
+        } catch (RejectedExecutionException e) {
+            log.debug("Prefetch threads busy, streaming results directly");
+            return stream;
+        }
+    }
+
+    protected void produce() {
+        try {
+            while (!closed && stream.hasNext()) {
+                Result result = stream.next();
+                if (result == null) {
+                    break;
+                }
+                buffer.put(result);
+            }
+            buffer.put(END);
+        } catch (InterruptedException e) {
+            // Closed by the consumer
+        } catch (Throwable e) {
+            if (closed) {
+                log.debug("Ignoring error from closed prefetch stream: " + e);
+            } else {
+                try {
+                    buffer.put( new Failure(e) );
+                } catch (InterruptedException ie) {
+                    // Closed by the consumer
+                }
+            }
+        }
+    }
+
+    @Override
+    public Iterator<Result> iterator() {
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = take();
+        }
+        if (next instanceof Failure) {
+            Throwable e = ((Failure)next).error;
+            next = END;
+            close();
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException)e;
+            } else if (e instanceof Error) {
+                throw (Error)e;
+            }
+            throw new EpiException("Results stream aborted", e);
+        }
+        return next != END;
+    }
+
+    @Override
+    public Result next() {
+        if (hasNext()) {
+            Result result = (Result)next;
+            next = null;
+            return result;
+        } else {
+            return null;
+        }
+    }
+
+    protected Object take() {
+        if (closed) {
+            return END;
+        }
+        long start = System.nanoTime();
+        try {
+            return buffer.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new EpiException("Interrupted while waiting for results");
+        } finally {
+            if (call != null) {
+                // Rows are timed by the background thread, only the wait holds up the consumer
+                call.getMetrics().waited(start);
+            }
+        }
+    }
+
+    @Override
+    public boolean isTimed() {
+        return stream.isTimed();
+    }
+
+    /**
+     * Stop the background reader and close the wrapped stream. Safe to call more than once.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            producer.cancel(true);
+            stream.close();
+            buffer.clear();
+        }
+    }
+
+    protected static class Failure {
+        protected final Throwable error;
+
+        protected Failure(Throwable error) {
+            this.error = error;
+        }
+    }
+}
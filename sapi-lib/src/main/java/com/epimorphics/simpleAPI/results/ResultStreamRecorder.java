@@ -0,0 +1,86 @@
+/******************************************************************
+ * File:        ResultStreamRecorder.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.results;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Wraps a ResultStream and records the results as they are consumed. If the
+ * stream is read to completion without exceeding the row limit then the
+ * recorded results are passed to a completion action (e.g. to store them in a cache).
+ * Streams which are closed before they are exhausted are not recorded.
+ */
+public class ResultStreamRecorder extends ResultStreamBase implements ResultStream {
+    protected ResultStream stream;
+    protected List<Result> recorded = new ArrayList<>();
+    protected int maxRows;
+    protected Consumer<List<Result>> onComplete;
+    protected boolean completed = false;
+    protected boolean closed = false;
+    
+    /**
+     * @param stream the stream to record
+     * @param maxRows the maximum number of results to record, longer streams are passed through without recording
+     * @param onComplete action to invoke with the recorded results once the stream has been exhausted
+     */
+    public ResultStreamRecorder(ResultStream stream, int maxRows, Consumer<List<Result>> onComplete) {
+        super(stream.getCall());
+        this.stream = stream;
+        this.maxRows = maxRows;
+        this.onComplete = onComplete;
+    }
+
+    @Override
+    public Iterator<Result> iterator() {
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        boolean hasNext = stream.hasNext();
+        if (!hasNext && !completed) {
+            completed = true;
+            if (recorded != null) {
+                onComplete.accept(recorded);
+            }
+        }
+        return hasNext;
+    }
+
+    @Override
+    public Result next() {
+        Result result = stream.next();
+        if (recorded != null) {
+            if (recorded.size() < maxRows) {
+                recorded.add(result);
+            } else {
+                recorded = null;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isTimed() {
+        return stream.isTimed();
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            stream.close();
+        }
+    }
+    
+}
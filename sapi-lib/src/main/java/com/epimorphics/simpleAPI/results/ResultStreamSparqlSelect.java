@@ -10,6 +10,12 @@
 package com.epimorphics.simpleAPI.results;
 
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.ws.rs.core.Response.Status;
 
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.query.ResultSet;
@@ -17,7 +23,12 @@ import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
 
 import com.epimorphics.appbase.data.ClosableResultSet;
+import com.epimorphics.appbase.webapi.WebApiException;
 import com.epimorphics.simpleAPI.requests.Call;
+import com.epimorphics.simpleAPI.util.QueryWatchdog;
+import com.epimorphics.simpleAPI.util.CallMetrics.Phase;
+import com.epimorphics.simpleAPI.util.SingleFlight.ReplayResultSet;
+import com.epimorphics.simpleAPI.views.SlotLayout;
 import com.epimorphics.simpleAPI.views.PropertySpec;
 import com.epimorphics.simpleAPI.views.ViewMap;
 import com.epimorphics.simpleAPI.views.ClassSpec;
@@ -30,6 +41,18 @@ import static com.epimorphics.simpleAPI.core.ConfigConstants.ROOT_VAR;
  * The query rows are assumed to have a distinguished "id" variable representing
  * the root resource. Neighbouring rows in the ResultSet with the same id
  * are coalesced.
+ * <p>
+ * If the view is flat (no nested or multivalued properties) and the endpoint
+ * doesn't flatten results then rows are mapped directly to FlatResults,
+ * falling back to coalescing into a TreeResult only if an id is repeated.
+ * </p>
+ * <p>
+ * If the endpoint sets a coalesce window then rows are merged by id regardless
+ * of order, holding up to that many partially built results. When a row for a
+ * new id arrives and the window is full the oldest result is emitted. This avoids
+ * the need for an ORDER BY ?id when the store interleaves rows for different ids,
+ * so long as the rows for any one id lie within the window.
+ * </p>
  * 
  * @author <a href="mailto:dave@epimorphics.com">Dave Reynolds</a>
  */
@@ -37,17 +60,45 @@ public class ResultStreamSparqlSelect extends ResultStreamBase implements Result
     protected ResultSet results;
     protected QuerySolution nextRow;
     protected Resource nextID;
+    protected SlotLayout layout;
+    protected boolean flat = false;
+    protected long rowsStart;
+    protected final AtomicBoolean closed = new AtomicBoolean(false);
+    protected volatile boolean timedOut = false;
+    protected volatile ScheduledFuture<?> watchdog;
+    protected int window = 0;
+    protected Map<Resource, TreeResult> open;
     
     public ResultStreamSparqlSelect(ResultSet resultSet, Call call) {
         super(call);
         this.results = resultSet;
         this.call = call;
+        ViewMap view = getView();
+        if (view != null) {
+            layout = view.getTree().getSlotLayout();
+            flat = layout.isFlat() && call.getEndpoint().getFlattenPath() == null;
+        }
+        Integer coalesceWindow = call.getEndpoint() == null ? null : call.getEndpoint().getCoalesceWindow();
+        if (coalesceWindow != null) {
+            window = coalesceWindow;
+            open = new LinkedHashMap<>();
+            flat = false;
+        }
+        Long timeout = call.getEndpoint() == null ? null : call.getEndpoint().getTimeout();
+        if (timeout != null) {
+            watchdog = QueryWatchdog.schedule(timeout, this::timeout);
+        }
     }
 
     public ViewMap getView() {
         return call.getView();
     }
 
+    @Override
+    public boolean isTimed() {
+        return true;
+    }
+
     @Override
     public Iterator<Result> iterator() {
         return this;
@@ -55,50 +106,79 @@ public class ResultStreamSparqlSelect extends ResultStreamBase implements Result
 
     @Override
     public boolean hasNext() {
-        return nextRow != null || results.hasNext();
+        if (nextRow != null) {
+            return true;
+        }
+        if (open != null && !open.isEmpty()) {
+            // Don't return partial results from an aborted query
+            checkTimeout();
+            return true;
+        }
+        boolean more;
+        try {
+            more = !closed.get() && results.hasNext();
+        } catch (RuntimeException e) {
+            checkTimeout();
+            throw e;
+        }
+        if (!more) {
+            // An aborted query may look like the end of the results
+            checkTimeout();
+            endWatch();
+        }
+        return more;
     }
     
     private void step() {
         nextRow = results.next();
+        call.getMetrics().firstRow();
+        call.getMetrics().addRows(1);
+        endWatch();
+        // Wait for the first row is accounted as query time
+        rowsStart = System.nanoTime();
         nextID = nextRow.get(ROOT_VAR) == null ? null : nextRow.getResource(ROOT_VAR);
     }
 
     @Override
     public Result next() {
+        rowsStart = System.nanoTime();
+        try {
+            return nextResult();
+        } finally {
+            call.getMetrics().record(Phase.ROWS, rowsStart);
+        }
+    }
+    
+    protected Result nextResult() {
         if (hasNext()) {
             try {
+                if (open != null) {
+                    return nextWindowed();
+                }
                 if (nextRow == null) {
                     step();
                 }
                 if (nextID == null) {
-                    // Non-id list, count or other random query
-                    TreeResult result = new TreeResult(getCall());
-                    for (Iterator<String> ki = nextRow.varNames(); ki.hasNext();) {
-                        String key = ki.next();
-                        result.add(key, nextRow.get(key));
-                    }
-                    nextRow = null;
-                    return result;
-                } else {
-                    TreeResult result = new TreeResult(getCall(), nextID);
+                    return rowResult();
+                } else if (flat) {
+                    QuerySolution row = nextRow;
                     Resource target = nextID;
-                    while (nextID != null && nextID.equals(target)) {
-                        addRow(result, nextRow);
-                        if (results.hasNext()) {
-                            nextRow = results.next();
-                            nextID = nextRow.getResource(ROOT_VAR);
-                        } else {
-                            nextRow = null;
-                            nextID = null;
-                            close();
-                        }
+                    advance();
+                    if (nextID == null || !nextID.equals(target)) {
+                        return new FlatResult(getCall(), target, layout, row);
                     }
-                    return result;
+                    // Repeated id so data doesn't match the flat view after all
+                    TreeResult result = newResult(target);
+                    addRow(result, row);
+                    return coalesce(result, target);
+                } else {
+                    return coalesce( newResult(nextID), nextID );
                 }
             } catch (Exception e) {
                 // Assume exceptions are fatal and clean up higher up
                 // TODO Does java8 have better mechanisms for things like this?
                 close();
+                checkTimeout();
                 throw new EpiException("Results stream aborted", e);
             }
         } else {
@@ -106,6 +186,75 @@ public class ResultStreamSparqlSelect extends ResultStreamBase implements Result
         }
     }
     
+    /**
+     * Non-id list, count or other random query, map the current row as it stands
+     */
+    private TreeResult rowResult() {
+        TreeResult result = new TreeResult(getCall());
+        for (Iterator<String> ki = nextRow.varNames(); ki.hasNext();) {
+            String key = ki.next();
+            result.add(key, nextRow.get(key));
+        }
+        nextRow = null;
+        return result;
+    }
+    
+    /**
+     * Merge rows into the open results until a new id would overflow the
+     * window or the rows run out, then return the oldest open result.
+     */
+    private Result nextWindowed() {
+        if (nextRow == null && open.isEmpty()) {
+            step();
+        }
+        while (nextRow != null && nextID != null) {
+            TreeResult result = open.get(nextID);
+            if (result == null) {
+                if (open.size() >= window) {
+                    break;
+                }
+                result = newResult(nextID);
+                open.put(nextID, result);
+            }
+            addRow(result, nextRow);
+            advance();
+        }
+        if (open.isEmpty()) {
+            return rowResult();
+        }
+        Iterator<TreeResult> oldest = open.values().iterator();
+        TreeResult result = oldest.next();
+        oldest.remove();
+        return result;
+    }
+    
+    private TreeResult newResult(Resource target) {
+        return layout == null ? new TreeResult(getCall(), target) : new TreeResult(getCall(), target, layout);
+    }
+    
+    /**
+     * Add all the rows for the target id, starting from the current row
+     */
+    private TreeResult coalesce(TreeResult result, Resource target) {
+        while (nextID != null && nextID.equals(target)) {
+            addRow(result, nextRow);
+            advance();
+        }
+        return result;
+    }
+    
+    private void advance() {
+        if (results.hasNext()) {
+            nextRow = results.next();
+            call.getMetrics().addRows(1);
+            nextID = nextRow.getResource(ROOT_VAR);
+        } else {
+            nextRow = null;
+            nextID = null;
+            close();
+        }
+    }
+    
     private void addRow(TreeResult result, QuerySolution row) {
         if (getView() == null) {
             for (Iterator<String> vi = row.varNames(); vi.hasNext();) {
@@ -120,28 +269,73 @@ public class ResultStreamSparqlSelect extends ResultStreamBase implements Result
     }
     
     private void addTree(TreeResult result, ClassSpec tree, QuerySolution row, String path) {
-        for (PropertySpec ve : tree) {
-            String key = ve.getJsonName();
-            String npath = path.isEmpty() ? key : path + "_" + key;
-            RDFNode value = row.get( npath );
+        SlotLayout tlayout = tree.getSlotLayout();
+        String[] vars = tlayout.getVarNames(path);
+        boolean direct = result.getLayout() == tlayout;
+        for (int i = 0; i < vars.length; i++) {
+            RDFNode value = row.get( vars[i] );
             if (value != null) {
+                PropertySpec ve = tlayout.getProperty(i);
                 if (ve.isNested()) {
-                    TreeResult nested = result.getNested(key, value);
+                    TreeResult nested = direct ? result.getNested(i, value) : result.getNested(tlayout.getKey(i), value);
                     if (nested == null) {
-                        nested = new TreeResult(getCall(), value);
-                        result.add(key, nested);
+                        nested = new TreeResult(getCall(), value, ve.getNested().getSlotLayout());
+                        addValue(result, direct, tlayout, i, nested);
                     }
-                    addTree(nested, ve.getNested(), row, npath);
+                    addTree(nested, ve.getNested(), row, vars[i]);
                 } else {
-                    result.add(key, value);
+                    addValue(result, direct, tlayout, i, value);
                 }
             }
         }
     }
     
+    private void addValue(TreeResult result, boolean direct, SlotLayout tlayout, int slot, Object value) {
+        if (direct) {
+            result.add(slot, value);
+        } else {
+            result.add(tlayout.getKey(slot), value);
+        }
+    }
+    
+    /**
+     * Release the underlying result set, aborting the query if it is still running.
+     * May be called more than once and from the query watchdog thread.
+     */
     public void close() {
-        if (results instanceof ClosableResultSet) {
-            ((ClosableResultSet)results).close();
+        if (closed.compareAndSet(false, true)) {
+            endWatch();
+            if (results instanceof ClosableResultSet) {
+                ((ClosableResultSet)results).close();
+            } else if (results instanceof ReplayResultSet) {
+                ((ReplayResultSet)results).close();
+            }
+        }
+    }
+    
+    /**
+     * Called when the endpoint's time limit expires, aborts the query
+     */
+    protected void timeout() {
+        timedOut = true;
+        close();
+    }
+    
+    /**
+     * The time limit only covers the wait for the first result, stop the
+     * watchdog once that has arrived or the results are exhausted
+     */
+    protected void endWatch() {
+        ScheduledFuture<?> w = watchdog;
+        if (w != null) {
+            watchdog = null;
+            w.cancel(false);
+        }
+    }
+    
+    protected void checkTimeout() {
+        if (timedOut) {
+            throw new WebApiException(Status.SERVICE_UNAVAILABLE, "Query timed out");
         }
     }
 }
@@ -9,7 +9,9 @@
 
 package com.epimorphics.simpleAPI.results;
 
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -18,6 +20,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.apache.jena.rdf.model.Literal;
@@ -28,7 +31,9 @@ import org.apache.jena.rdf.model.Resource;
 
 import com.epimorphics.json.JSFullWriter;
 import com.epimorphics.simpleAPI.requests.Call;
+import com.epimorphics.simpleAPI.views.SlotLayout;
 import com.epimorphics.simpleAPI.views.ViewPath;
+import com.epimorphics.simpleAPI.writers.JsonEmitter;
 import com.epimorphics.simpleAPI.writers.JsonWriterUtil;
 import com.epimorphics.simpleAPI.writers.RDFWriterUtil;
 import com.epimorphics.util.EpiException;
@@ -38,11 +43,23 @@ import com.epimorphics.util.EpiException;
  * Comprises an identifier (URI resource or blank node) and a set of key/value bindings.
  * The values are either simple RDFNodes or nested Result trees.
  * The keys are short names as using in JSON, CSV  rendering or a SPARQL result set.
+ * <p>
+ * The bindings are held as parallel arrays of keys and slots, in sorted key order.
+ * A slot holds a single value directly and only becomes a ValueSet once it has
+ * more than one value. Results built for a view share the key array of the
+ * view's SlotLayout, a result detaches from the layout if given a key not in the view.
+ * </p>
  * 
  * @author <a href="mailto:dave@epimorphics.com">Dave Reynolds</a>
  */
 public class TreeResult extends ResultBase implements Result {
-    protected Map<String, Set<Object>> values = new HashMap<>();
+    protected static final String[] NO_KEYS = new String[0];
+    protected static final Object[] NO_SLOTS = new Object[0];
+    
+    protected SlotLayout layout;
+    protected String[] keys = NO_KEYS;
+    protected Object[] slots = NO_SLOTS;
+    protected int size = 0;
     protected RDFNode id = null;
     
     public TreeResult(Call call) {
@@ -54,6 +71,18 @@ public class TreeResult extends ResultBase implements Result {
         this.id = id;
     }
     
+    /**
+     * Construct a result whose keys are laid out according to the given view layout
+     */
+    public TreeResult(Call call, RDFNode id, SlotLayout layout) {
+        super(call);
+        this.id = id;
+        this.layout = layout;
+        this.keys = layout.getKeys();
+        this.size = keys.length;
+        this.slots = new Object[size];
+    }
+    
     public void setId(RDFNode id) {
         this.id = id;
     }
@@ -69,66 +98,147 @@ public class TreeResult extends ResultBase implements Result {
             return null;
         }
     }
+    
+    /**
+     * Return the view layout this result is based on, null if none
+     */
+    public SlotLayout getLayout() {
+        return layout;
+    }
+    
+    /**
+     * Return the raw content of a layout slot, null, a single value or a collection
+     * of values if multivalued.
+     */
+    public Object getSlot(int slot) {
+        return slots[slot];
+    }
+    
+    /**
+     * Number of slots in the result, some of which may be empty
+     */
+    public int getSlotCount() {
+        return size;
+    }
+    
+    /**
+     * Return the key for a slot
+     */
+    public String getKey(int slot) {
+        return keys[slot];
+    }
+    
+    /**
+     * Return the number of values in a slot
+     */
+    public int getValueCount(int slot) {
+        Object value = slots[slot];
+        if (value == null) {
+            return 0;
+        } else if (value instanceof ValueSet) {
+            return ((ValueSet) value).size();
+        } else {
+            return 1;
+        }
+    }
+    
+    /**
+     * Return the i'th value of a slot in rendering order
+     */
+    public Object getSortedValue(int slot, int i) {
+        Object value = slots[slot];
+        if (value instanceof ValueSet) {
+            return ((ValueSet) value).getSorted(i);
+        } else if (i == 0 && value != null) {
+            return value;
+        }
+        throw new IndexOutOfBoundsException("No value " + i + " in slot " + slot);
+    }
 
     public Collection<String> getKeys() {
-        return values.keySet();
+        return getSortedKeys();
     }
     
     /**
      * Return true if the result is a simple leaf result with no property values
      */
     public boolean isSimple() {
-        return values.isEmpty();
+        for (int i = 0; i < size; i++) {
+            if (slots[i] != null) return false;
+        }
+        return true;
     }
     
     /**
      * Return ordered list of keys 
      */
     public List<String> getSortedKeys() {
-        List<String> keys = new ArrayList<String>( values.size() );
-        for (String key : values.keySet()) {
-            keys.add( key );
+        List<String> result = new ArrayList<String>( size );
+        for (int i = 0; i < size; i++) {
+            if (slots[i] != null) {
+                result.add( keys[i] );
+            }
         }
-        Collections.sort(keys);
-        return keys;
+        return result;
     }     
     
     
     public Collection<Object> getValues(String key) {
-        return values.get(key);
+        int slot = slotFor(key);
+        if (slot < 0) {
+            return null;
+        }
+        Object value = slots[slot];
+        if (value == null) {
+            return null;
+        } else if (value instanceof ValueSet) {
+            return (ValueSet) value;
+        } else {
+            return Collections.singleton(value);
+        }
     }
     
     /**
      * Return a nested value for this key corresponding to the given id, if it exists
      */
     public TreeResult getNested(String key, RDFNode id) {
-        Set<Object> bindings = values.get(key);
-        if (bindings != null) {
-            for (Object value : bindings) {
-                if (value instanceof TreeResult) {
-                    TreeResult result = (TreeResult)value;
-                    if (id.equals(result.getId())) {
-                        return result;
-                    }
-                }
-            }
+        int slot = slotFor(key);
+        return slot < 0 ? null : getNested(slot, id);
+    }
+    
+    /**
+     * Return a nested value in the given slot corresponding to the given id, if it exists
+     */
+    public TreeResult getNested(int slot, RDFNode id) {
+        Object value = slots[slot];
+        if (value instanceof ValueSet) {
+            return ((ValueSet) value).getNested(id);
+        } else if (value instanceof TreeResult && id.equals( ((TreeResult)value).getId() )) {
+            return (TreeResult) value;
         }
         return null;
     }
     
     public List<Object> getSortedValues(String key) {
-        List<Object> v = new ArrayList<Object>( values.get(key) );
-        Collections.sort(v, valueComparator);
-        return v;
+        int slot = slotFor(key);
+        Object value = slot < 0 ? null : slots[slot];
+        if (value == null) {
+            return new ArrayList<>();
+        } else if (value instanceof ValueSet) {
+            return ((ValueSet) value).sortedList();
+        } else {
+            List<Object> v = new ArrayList<>(1);
+            v.add(value);
+            return v;
+        }
     }
    
     public void add(String key, Object value) {
-        Set<Object> v = values.get(key);
-        if (v == null) {
-            v = new HashSet<>();
-            values.put(key, v);
+        int slot = slotFor(key);
+        if (slot < 0) {
+            slot = addKey(key);
         }
-        v.add(value);
+        add(slot, value);
     }
     
     public void add(String key, Object...values) {
@@ -136,7 +246,85 @@ public class TreeResult extends ResultBase implements Result {
             add(key, value);
         }
     }
-
+    
+    /**
+     * Add all the values of another result, normally a partial result for the same id, to this one
+     */
+    public void addAll(TreeResult other) {
+        for (String key : other.getSortedKeys()) {
+            for (Object value : other.getValues(key)) {
+                add(key, value);
+            }
+        }
+    }
+    
+    /**
+     * Add a value to the given slot
+     */
+    public void add(int slot, Object value) {
+        Object current = slots[slot];
+        if (current == null) {
+            slots[slot] = value;
+        } else if (current instanceof ValueSet) {
+            ((ValueSet) current).add(value);
+        } else if ( !current.equals(value) ) {
+            slots[slot] = new ValueSet(current, value);
+        }
+    }
+    
+    protected int slotFor(String key) {
+        if (layout != null) {
+            return layout.slotFor(key);
+        }
+        int slot = Arrays.binarySearch(keys, 0, size, key);
+        return slot < 0 ? -1 : slot;
+    }
+    
+    /**
+     * Add a new key, detaching from any layout, and return its slot 
+     */
+    protected int addKey(String key) {
+        if (layout != null) {
+            detach();
+        }
+        int slot = -( Arrays.binarySearch(keys, 0, size, key) + 1 );
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            slots = Arrays.copyOf(slots, capacity);
+        }
+        System.arraycopy(keys, slot, keys, slot + 1, size - slot);
+        System.arraycopy(slots, slot, slots, slot + 1, size - slot);
+        keys[slot] = key;
+        slots[slot] = null;
+        size++;
+        return slot;
+    }
+    
+    /**
+     * Switch from the shared layout keys to a private copy of the occupied keys
+     */
+    protected void detach() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (slots[i] != null) count++;
+        }
+        String[] nkeys = new String[count + 1];
+        Object[] nslots = new Object[count + 1];
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            if (slots[i] != null) {
+                nkeys[j] = keys[i];
+                nslots[j] = slots[i];
+                j++;
+            }
+        }
+        keys = nkeys;
+        slots = nslots;
+        size = count;
+        layout = null;
+    }
+    
     /**
      * Retrieve the values from a location in the tree identified via a path object.
      * Return null if the path is invalid
@@ -206,6 +394,10 @@ public class TreeResult extends ResultBase implements Result {
         JsonWriterUtil.writeResult(this, out);
     }
     
+    public void writeJson(JsonEmitter out) {
+        JsonWriterUtil.writeResult(this, out);
+    }
+    
     
     // --- String rendering for debug --------------------------------------
     
@@ -284,25 +476,22 @@ public class TreeResult extends ResultBase implements Result {
     public TreeResult cloneWithValue(ViewPath path, Object value) {
         TreeResult clone = new TreeResult(call, id);
         String firstStep = path.first();
-        for (String key : values.keySet()) {
-            Set<Object> kv = values.get(key);
+        for (int i = 0; i < size; i++) {
+            Object kv = slots[i];
+            if (kv == null) continue;
+            String key = keys[i];
             if (key.equals(firstStep)) {
                 if ( path.isSingleton() ) {
                     clone.add(key, value);
-                } else if (kv.size() != 1) {
+                } else if (kv instanceof ValueSet) {
                     throw new EpiException("Non-unique path in view clone");
+                } else if (kv instanceof TreeResult) {
+                    clone.add(key, ((TreeResult)kv).cloneWithValue(path.rest(), value));
                 } else {
-                    Object v = kv.iterator().next();
-                    if (v instanceof TreeResult) {
-                        clone.add(key, ((TreeResult)v).cloneWithValue(path.rest(), value));
-                    } else {
-                        throw new EpiException("Path not present in view");
-                    }
+                    throw new EpiException("Path not present in view");
                 }
             } else {
-                for (Object v : kv) {
-                    clone.add(key, v);
-                }
+                clone.addAll(key, kv);
             }
         }
         return clone;
@@ -316,29 +505,60 @@ public class TreeResult extends ResultBase implements Result {
     public TreeResult cloneWithout(ViewPath path) {
         TreeResult clone = new TreeResult(call, id);
         String firstStep = path.first();
-        for (String key : values.keySet()) {
-            Set<Object> kv = values.get(key);
+        for (int i = 0; i < size; i++) {
+            Object kv = slots[i];
+            if (kv == null) continue;
+            String key = keys[i];
             if (key.equals(firstStep)) {
                 if ( path.isSingleton() ) {
                     // Omit
-                } else if (kv.size() != 1) {
+                } else if (kv instanceof ValueSet) {
                     throw new EpiException("Non-unique path in view clone");
+                } else if (kv instanceof TreeResult) {
+                    clone.add(key, ((TreeResult)kv).cloneWithout(path.rest()));
                 } else {
-                    Object v = kv.iterator().next();
-                    if (v instanceof TreeResult) {
-                        clone.add(key, ((TreeResult)v).cloneWithout(path.rest()));
-                    } else {
-                        throw new EpiException("Path not present in view");
-                    }
+                    throw new EpiException("Path not present in view");
                 }
             } else {
-                for (Object v : kv) {
-                    clone.add(key, v);
-                }
+                clone.addAll(key, kv);
             }
         }
         return clone;
     }
+    
+    /**
+     * Return a copy of the tree which answers to the given call, which may be null
+     * to detach it from any call. Nested results are copied as well, so the copy
+     * shares no call or mutable state with the original, leaf values are shared.
+     */
+    public TreeResult copyFor(Call call) {
+        TreeResult copy = layout == null ? new TreeResult(call, id) : new TreeResult(call, id, layout);
+        for (int i = 0; i < size; i++) {
+            Object kv = slots[i];
+            if (kv instanceof ValueSet) {
+                for (Object v : (ValueSet) kv) {
+                    copy.add(keys[i], copyValue(v, call));
+                }
+            } else if (kv != null) {
+                copy.add(keys[i], copyValue(kv, call));
+            }
+        }
+        return copy;
+    }
+    
+    private static Object copyValue(Object value, Call call) {
+        return value instanceof TreeResult ? ((TreeResult)value).copyFor(call) : value;
+    }
+    
+    private void addAll(String key, Object slotValue) {
+        if (slotValue instanceof ValueSet) {
+            for (Object v : (ValueSet) slotValue) {
+                add(key, v);
+            }
+        } else {
+            add(key, slotValue);
+        }
+    }
 
     /**
      * Return a set of cloned trees one with each of the values at the given path.
@@ -356,4 +576,130 @@ public class TreeResult extends ResultBase implements Result {
         return results;
     }
 
+    // --- Multiple values for a single key --------------------------------------
+    
+    /**
+     * Small insertion ordered set of values, used once a slot has more than one value.
+     * Membership is a linear scan until the set grows large enough to need a hash index,
+     * nested results are then also indexed by id.
+     */
+    protected static class ValueSet extends AbstractCollection<Object> {
+        protected static final int INDEX_THRESHOLD = 8;
+        
+        protected Object[] elts;
+        protected int count;
+        protected boolean sorted = false;
+        protected Set<Object> index;
+        protected Map<RDFNode, TreeResult> nested;
+        
+        protected ValueSet(Object first, Object second) {
+            elts = new Object[]{ first, second, null, null };
+            count = 2;
+        }
+        
+        @Override
+        public boolean add(Object value) {
+            if (contains(value)) {
+                return false;
+            }
+            if (count == elts.length) {
+                elts = Arrays.copyOf(elts, count * 2);
+            }
+            elts[count++] = value;
+            sorted = false;
+            if (index != null) {
+                index.add(value);
+            } else if (count > INDEX_THRESHOLD) {
+                index = new HashSet<>( Arrays.asList(elts).subList(0, count) );
+            }
+            if (nested != null && value instanceof TreeResult) {
+                nested.putIfAbsent( ((TreeResult)value).getId(), (TreeResult)value );
+            }
+            return true;
+        }
+        
+        @Override
+        public boolean contains(Object value) {
+            if (index != null) {
+                return index.contains(value);
+            }
+            for (int i = 0; i < count; i++) {
+                if (elts[i].equals(value)) return true;
+            }
+            return false;
+        }
+        
+        protected TreeResult getNested(RDFNode id) {
+            if (nested == null && count > INDEX_THRESHOLD) {
+                nested = new HashMap<>();
+                for (int i = 0; i < count; i++) {
+                    if (elts[i] instanceof TreeResult) {
+                        nested.putIfAbsent( ((TreeResult)elts[i]).getId(), (TreeResult)elts[i] );
+                    }
+                }
+            }
+            if (nested != null) {
+                return nested.get(id);
+            }
+            for (int i = 0; i < count; i++) {
+                if (elts[i] instanceof TreeResult && id.equals( ((TreeResult)elts[i]).getId() )) {
+                    return (TreeResult) elts[i];
+                }
+            }
+            return null;
+        }
+        
+        /**
+         * Return the values in rendering order, the sort is only redone if values have been added
+         */
+        protected List<Object> sortedList() {
+            sort();
+            List<Object> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add( elts[i] );
+            }
+            return result;
+        }
+        
+        protected Object getSorted(int i) {
+            if (i >= count) {
+                throw new IndexOutOfBoundsException("No value " + i);
+            }
+            sort();
+            return elts[i];
+        }
+        
+        protected void sort() {
+            if (!sorted) {
+                Arrays.sort(elts, 0, count, valueComparator);
+                sorted = true;
+            }
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            return new Iterator<Object>() {
+                int next = 0;
+                
+                @Override
+                public boolean hasNext() {
+                    return next < count;
+                }
+
+                @Override
+                public Object next() {
+                    if (next >= count) {
+                        throw new NoSuchElementException();
+                    }
+                    return elts[next++];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+
 }
@@ -0,0 +1,79 @@
+/******************************************************************
+ * File:        WResultStream.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.results.wappers;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.epimorphics.simpleAPI.results.ResultStream;
+import com.epimorphics.util.EpiException;
+
+/**
+ * Wrapped result stream for use in scripting environments, such as velocity, for HTML rendering.
+ * Results are wrapped lazily as the template iterates over them so that memory use does not
+ * grow with the number of results. The stream can only be iterated once, templates which need
+ * random access or a count must explicitly call {@link #asList()}.
+ */
+public class WResultStream implements Iterable<WResult> {
+    protected ResultStream results;
+    protected List<WResult> list;
+    protected boolean started = false;
+    
+    public WResultStream(ResultStream results) {
+        this.results = results;
+    }
+
+    @Override
+    public Iterator<WResult> iterator() {
+        if (list != null) {
+            return list.iterator();
+        }
+        if (started) {
+            throw new EpiException("Results can only be iterated over once, use asList() for repeated access");
+        }
+        started = true;
+        return new Iterator<WResult>() {
+            @Override
+            public boolean hasNext() {
+                return results.hasNext();
+            }
+
+            @Override
+            public WResult next() {
+                return new WResult( results.next() );
+            }
+        };
+    }
+    
+    /**
+     * Test if there are no results, without consuming any
+     */
+    public boolean isEmpty() {
+        return list != null ? list.isEmpty() : !results.hasNext();
+    }
+    
+    /**
+     * Return all the results as a list, giving random access and a count
+     * at the cost of holding all of the results in memory.
+     */
+    public List<WResult> asList() {
+        if (list == null) {
+            if (started) {
+                throw new EpiException("Results have already been iterated over, call asList() before iterating");
+            }
+            list = new ArrayList<>();
+            while (results.hasNext()) {
+                list.add( new WResult( results.next() ) );
+            }
+        }
+        return list;
+    }
+}
@@ -61,6 +61,7 @@ public class BaseEngine implements Engine {
             if (TYPE_ITEM.equals(type)) {
                 try {
                     Sapi2ItemEndpointSpec spec = new Sapi2ItemEndpointSpec(api);
+                    parseItemParameters(api, spec, jo);
                     parseCommonParameters(api, spec, jo);
                     return spec;
                 } catch (Exception e) {
@@ -87,6 +88,19 @@ public class BaseEngine implements Engine {
 
     }
     
+    protected void parseItemParameters(API api, Sapi2ItemEndpointSpec spec, JsonObject jo) {
+        if (jo.hasKey(ITEM_QUERY)) {
+            String mode = JsonUtil.getStringValue(jo, ITEM_QUERY);
+            if (ITEM_QUERY_VIEW.equals(mode)) {
+                spec.setUseViewQuery(true);
+            } else if (ITEM_QUERY_DESCRIBE.equals(mode)) {
+                spec.setUseViewQuery(false);
+            } else {
+                throw new EpiException("itemQuery should be one of " + ITEM_QUERY_DESCRIBE + " or " + ITEM_QUERY_VIEW);
+            }
+        }
+    }
+    
     protected void parseListParameters(API api, Sapi2ListEndpointSpec lspec, JsonObject jo) {
         if (jo.hasKey(BASE_QUERY)) {
             lspec.setBaseQuery( JsonUtil.getStringValue(jo, BASE_QUERY) );
@@ -150,6 +164,15 @@ public class BaseEngine implements Engine {
         if( jo.hasKey( SUPPRESSID ) ) {
             lspec.setSuppressID( JsonUtil.getBooleanValue(jo, SUPPRESSID, false) );
         } 
+        if( jo.hasKey( CURSOR ) ) {
+            lspec.setCursorPaging( JsonUtil.getBooleanValue(jo, CURSOR, false) );
+            if (lspec.isCursorPaging() && !lspec.useNestedSelect()) {
+                throw new EpiException("Cursor paging requires a nested select");
+            }
+        } 
+        if( jo.hasKey( SPLIT_MULTIVALUED ) ) {
+            lspec.setSplitMultivalued( JsonUtil.getBooleanValue(jo, SPLIT_MULTIVALUED, false) );
+        }
         
         if (jo.hasKey(PROCESSORS)) {
             JsonValue jv = jo.get(PROCESSORS);
@@ -258,6 +281,50 @@ public class BaseEngine implements Engine {
                 throw new EpiException("Bindings should be a json object (treated as a map from parameter to value)");
             }
         }
+        
+        if (jo.hasKey(CACHE)) {
+            spec.setUseCache( JsonUtil.getBooleanValue(jo, CACHE, false) );
+        }
+        
+        if (jo.hasKey(TIMEOUT)) {
+            int timeout = JsonUtil.getIntValue(jo, TIMEOUT, 0);
+            if (timeout <= 0) {
+                throw new EpiException("Timeout should be a positive number of milliseconds");
+            }
+            spec.setTimeout(timeout);
+        }
+        
+        if (jo.hasKey(MAX_CONCURRENT)) {
+            int max = JsonUtil.getIntValue(jo, MAX_CONCURRENT, 0);
+            if (max <= 0) {
+                throw new EpiException("maxConcurrent should be a positive number");
+            }
+            spec.setMaxConcurrent(max);
+        }
+        
+        if (jo.hasKey(MAX_QUEUE)) {
+            int max = JsonUtil.getIntValue(jo, MAX_QUEUE, -1);
+            if (max < 0) {
+                throw new EpiException("maxQueue should be a non-negative number");
+            }
+            spec.setMaxQueue(max);
+        }
+        
+        if (jo.hasKey(PREFETCH)) {
+            int prefetch = JsonUtil.getIntValue(jo, PREFETCH, 0);
+            if (prefetch <= 0) {
+                throw new EpiException("prefetch should be a positive number of results");
+            }
+            spec.setPrefetch(prefetch);
+        }
+        
+        if (jo.hasKey(COALESCE_WINDOW)) {
+            int window = JsonUtil.getIntValue(jo, COALESCE_WINDOW, 0);
+            if (window <= 0) {
+                throw new EpiException("coalesceWindow should be a positive number of results");
+            }
+            spec.setCoalesceWindow(window);
+        }
     }
 
     @Override
@@ -9,32 +9,120 @@
 
 package com.epimorphics.simpleAPI.sapi2;
 
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.ws.rs.core.Response.Status;
+
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+
+import com.epimorphics.appbase.webapi.WebApiException;
 import com.epimorphics.simpleAPI.core.API;
+import com.epimorphics.simpleAPI.core.ConfigConstants;
 import com.epimorphics.simpleAPI.endpoints.EndpointSpec;
 import com.epimorphics.simpleAPI.query.QueryBuilder;
 import com.epimorphics.simpleAPI.query.impl.DescribeQueryBuilder;
+import com.epimorphics.simpleAPI.query.impl.ViewItemQueryBuilder;
 import com.epimorphics.simpleAPI.requests.Request;
 import com.epimorphics.simpleAPI.views.ViewMap;
 import com.epimorphics.sparql.query.QueryShape;
 
 /**
  * Encapsulates the specification of a single endpoint.
+ * <p>
+ * A request with one or more <code>_id</code> parameters (or a POSTed <code>_id</code> array)
+ * is a batch lookup, returning a list of the descriptions of all the given items from one query.
+ * Relative ids are resolved against the request URI.
+ * </p>
  */
 public class Sapi2ItemEndpointSpec extends Sapi2BaseEndpointSpec implements EndpointSpec {
+    protected boolean useViewQuery = false;
     
     public Sapi2ItemEndpointSpec(API api) {
         super(api);
     }
 
+    @Override
+    public QueryBuilder getQueryBuilder(Request request) {
+        if ( request.hasAvailableParameter(Request.BATCH_ID_KEY) ) {
+            QueryBuilder builder = getQueryBuilder( request.getViewName(), request );
+            if (completeQueryString != null || !(builder instanceof DescribeQueryBuilder)) {
+                throw new WebApiException(Status.BAD_REQUEST, "Batch lookup not supported by this endpoint");
+            }
+            return ((DescribeQueryBuilder)builder).bindValues(ConfigConstants.ROOT_VAR, getBatchIds(request));
+        }
+        return super.getQueryBuilder(request);
+    }
+    
+    /**
+     * Return the distinct items requested in a batch lookup, consuming the id parameter
+     */
+    protected List<Resource> getBatchIds(Request request) {
+        request.consume(Request.BATCH_ID_KEY);
+        Set<String> ids = new LinkedHashSet<>();
+        // Relative ids are resolved against the request, if there is no request URI ids must be absolute
+        String requested = request.getRequestedURI();
+        URI base = requested == null ? null : URI.create( requested );
+        for (String id : request.get(Request.BATCH_ID_KEY)) {
+            id = id.trim();
+            if (id.isEmpty()) continue;
+            URI uri;
+            try {
+                uri = base == null ? URI.create(id) : base.resolve(id);
+            } catch (IllegalArgumentException e) {
+                throw new WebApiException(Status.BAD_REQUEST, "Illegal id in batch lookup: " + id);
+            }
+            if ( !uri.isAbsolute() ) {
+                throw new WebApiException(Status.BAD_REQUEST, "Illegal id in batch lookup: " + id);
+            }
+            ids.add( uri.toString() );
+        }
+        if (ids.isEmpty()) {
+            throw new WebApiException(Status.BAD_REQUEST, "No ids given for batch lookup");
+        }
+        if (ids.size() > getAPI().getMaxBatchSize()) {
+            throw new WebApiException(Status.BAD_REQUEST, "Too many ids in batch lookup, limit is " + getAPI().getMaxBatchSize());
+        }
+        List<Resource> resources = new ArrayList<>( ids.size() );
+        for (String id : ids) {
+            resources.add( ResourceFactory.createResource(id) );
+        }
+        return resources;
+    }
+
     @Override public QueryBuilder getQueryBuilder(String viewname, Request request) {
         ViewMap view = getView(viewname);
         if (view == null) {
             view = getView(DEFAULT_VIEWNAME);
         }
         
-        QueryShape q = (hasExplicitQuery() || view == null) ? getBaseQuery(request) : view.asDescribe();
+        if (hasExplicitQuery() || view == null) {
+            return new DescribeQueryBuilder(getBaseQuery(request), getPrefixes());
+        } else if (useViewQuery) {
+            QueryShape q = new QueryShape();
+            view.injectTreePatternInfo(q);
+            return new ViewItemQueryBuilder(q, getPrefixes());
+        } else {
+            return new DescribeQueryBuilder(view.asDescribe(), getPrefixes());
+        }
+    }
+    
+    public boolean isUseViewQuery() {
+        return useViewQuery;
+    }
 
-        return new DescribeQueryBuilder(q, getPrefixes());
+    /**
+     * Set to true to fetch items by a select restricted to the properties of the view
+     * rather than by a describe. The item is then rendered from just those properties,
+     * and is not found unless all the required properties of the view are present.
+     * Endpoints with no view, or an explicit query, always use a describe.
+     */
+    public void setUseViewQuery(boolean useViewQuery) {
+        this.useViewQuery = useViewQuery;
     }
 
 }
@@ -10,18 +10,35 @@
 package com.epimorphics.simpleAPI.sapi2;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.sparql.util.FmtUtils;
 
 import com.epimorphics.simpleAPI.core.API;
 import com.epimorphics.simpleAPI.endpoints.ListEndpointSpec;
+import com.epimorphics.simpleAPI.query.ListQuery;
+import com.epimorphics.simpleAPI.query.ListQueryBuilder;
 import com.epimorphics.simpleAPI.query.QueryBuilder;
 import com.epimorphics.simpleAPI.query.impl.NestedSparqlQueryBuilder;
 import com.epimorphics.simpleAPI.query.impl.SparqlQueryBuilder;
+import com.epimorphics.simpleAPI.requests.Call;
 import com.epimorphics.simpleAPI.requests.Request;
 import com.epimorphics.simpleAPI.requests.RequestProcessor;
+import com.epimorphics.simpleAPI.views.ClassSpec;
+import com.epimorphics.simpleAPI.views.PropertySpec;
 import com.epimorphics.simpleAPI.views.ViewMap;
+import com.epimorphics.sparql.graphpatterns.GraphPattern;
+import com.epimorphics.sparql.graphpatterns.GraphPatternText;
 import com.epimorphics.sparql.query.Distinction;
+import com.epimorphics.sparql.query.Order;
 import com.epimorphics.sparql.query.QueryShape;
+import com.epimorphics.sparql.terms.Var;
+
+import static com.epimorphics.simpleAPI.core.ConfigConstants.ROOT_VAR;
 
 /**
  * Endpoints which return lists of results and can have associated hard/soft limits.
@@ -33,8 +50,11 @@ public class Sapi2ListEndpointSpec extends Sapi2BaseEndpointSpec implements List
     protected Long hardLimit;
     protected boolean useNestedSelect = true;
     protected boolean useDistinct = false;
+    protected boolean cursorPaging = false;
+    protected boolean splitMultivalued = false;
     protected List<String> additionalProjectionVars = null;
     protected List<RequestProcessor> requestProcessors = new ArrayList<>();
+    protected Map<ViewMap, CompiledView> compiledViews = new ConcurrentHashMap<>();
     
     public Sapi2ListEndpointSpec(API api) {
         super(api);
@@ -49,17 +69,85 @@ public class Sapi2ListEndpointSpec extends Sapi2BaseEndpointSpec implements List
         if ( useNestedSelect ) {
             QueryShape outerQuery = new QueryShape();
             if (view != null) {
-                outerQuery.addLaterPattern( view.asPattern() );
+                outerQuery.addLaterPattern( getViewPattern(view) );
             }
             return new NestedSparqlQueryBuilder( base, outerQuery, getPrefixes(), additionalProjectionVars );
         } else {
             if (view != null) {
-                view.injectTreePatternInfo(base);
+                base.addEarlyPattern( getViewPattern(view) );
             }
             return SparqlQueryBuilder.fromBaseQuery(base, getPrefixes());
         }
     }
 
+    /**
+     * Return the graph pattern for the given view, reusing the pattern compiled
+     * by an earlier request unless the view's tree has since been reloaded.
+     * Request processors then only add their filter, sort and limit fragments around it.
+     */
+    public GraphPattern getViewPattern(ViewMap view) {
+        return getCompiledView(view).pattern;
+    }
+    
+    protected CompiledView getCompiledView(ViewMap view) {
+        ClassSpec tree = view.getTree();
+        CompiledView compiled = compiledViews.get(view);
+        if (compiled == null || compiled.tree != tree) {
+            compiled = compile(view);
+            compiledViews.put(view, compiled);
+        }
+        return compiled;
+    }
+    
+    protected CompiledView compile(ViewMap view) {
+        ClassSpec tree = view.getTree();
+        List<PropertySpec> split = splitMultivalued ? tree.getMultivaluedBranches() : Collections.emptyList();
+        if (split.isEmpty()) {
+            return new CompiledView(tree, view.asPattern(), Collections.emptyList());
+        }
+        List<GraphPattern> branches = new ArrayList<>( split.size() );
+        for (PropertySpec property : split) {
+            branches.add( tree.buildPatternFor(ROOT_VAR, property) );
+        }
+        return new CompiledView(tree, tree.buildPatternWithout(ROOT_VAR, split), branches);
+    }
+    
+    @Override
+    public boolean hasBranchQueries(ViewMap view) {
+        return splitMultivalued && view != null && !getCompiledView(view).branches.isEmpty();
+    }
+    
+    /**
+     * Return one query for each multivalued branch of the view, restricted to the given ids
+     */
+    @Override
+    public List<ListQuery> getBranchQueries(Call call, List<Resource> ids) {
+        StringBuilder values = new StringBuilder();
+        values.append("VALUES ?").append(ROOT_VAR).append(" {");
+        for (Resource id : ids) {
+            values.append(" ").append( FmtUtils.stringForNode(id.asNode()) );
+        }
+        values.append(" }");
+        List<ListQuery> queries = new ArrayList<>();
+        for (GraphPattern branch : getCompiledView( call.getView() ).branches) {
+            QueryShape q = new QueryShape();
+            q.addEarlyPattern( new GraphPatternText(values.toString()) );
+            q.addLaterPattern( branch );
+            q.addOrder( Order.ASC, new Var(ROOT_VAR) );
+            ListQueryBuilder builder = (ListQueryBuilder) SparqlQueryBuilder.fromBaseQuery(q, getPrefixes());
+            queries.add( builder.build() );
+        }
+        return queries;
+    }
+    
+    /**
+     * Discard any compiled view patterns, called when the configuration is reloaded
+     */
+    @Override
+    public void clearCompiledViews() {
+        compiledViews.clear();
+    }
+    
     /**
      * Return a soft limit value of the number of results allowed.
      * If the query does not state a limit this soft limit is used. 
@@ -118,6 +206,20 @@ public class Sapi2ListEndpointSpec extends Sapi2BaseEndpointSpec implements List
         this.useDistinct = useDistinct;
     }
     
+    @Override
+    public boolean isCursorPaging() {
+        return cursorPaging;
+    }
+
+    /**
+     * Set to true to page limited results using _cursor continuation tokens
+     * which filter on the sort keys of the last item, rather than by _offset.
+     * Requires nested selects so that the limit applies to items.
+     */
+    public void setCursorPaging(boolean cursorPaging) {
+        this.cursorPaging = cursorPaging;
+    }
+    
     /**
      * Local endpoint-specific request processor
      */
@@ -128,5 +230,30 @@ public class Sapi2ListEndpointSpec extends Sapi2BaseEndpointSpec implements List
     public List<RequestProcessor> getRequestProcessors() {
         return requestProcessors;
     }
+    
+    public boolean isSplitMultivalued() {
+        return splitMultivalued;
+    }
+
+    /**
+     * Set to true to fetch optional multivalued properties of the view by separate
+     * queries for each batch of ids, merged with the main results by id. Avoids the
+     * main query returning the cross product of the values of those properties.
+     */
+    public void setSplitMultivalued(boolean splitMultivalued) {
+        this.splitMultivalued = splitMultivalued;
+        compiledViews.clear();
+    }
           
+    protected static class CompiledView {
+        protected final ClassSpec tree;
+        protected final GraphPattern pattern;
+        protected final List<GraphPattern> branches;
+        
+        public CompiledView(ClassSpec tree, GraphPattern pattern, List<GraphPattern> branches) {
+            this.tree = tree;
+            this.pattern = pattern;
+            this.branches = branches;
+        }
+    }
 }
@@ -0,0 +1,274 @@
+/******************************************************************
+ * File:        Bulkhead.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.apache.jena.atlas.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epimorphics.simpleAPI.endpoints.EndpointSpec;
+
+/**
+ * Admission control for queries. Limits the number of queries running
+ * concurrently, both overall and for individual endpoints which set a
+ * <code>maxConcurrent</code> limit, so that expensive endpoints can't starve
+ * the rest of the API. Callers over the limit wait in a fair queue. If the
+ * queue is full, or a caller waits longer than the maximum wait time, the
+ * call is rejected immediately with a 503 and a Retry-After header.
+ */
+public class Bulkhead {
+    static final Logger log = LoggerFactory.getLogger( Bulkhead.class );
+
+    public static final String RETRY_AFTER_HEADER = "Retry-After";
+
+    protected int maxConcurrent = 0;
+    protected int maxQueue = 100;
+    protected long maxWait = 10000;
+    protected int retryAfter = 1;
+
+    protected Lane global;
+    protected final Map<String, Lane> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * Set the maximum number of queries that may run concurrently across all
+     * endpoints, 0 (the default) means no global limit
+     */
+    public void setMaxConcurrent(long maxConcurrent) {
+        this.maxConcurrent = (int) maxConcurrent;
+        global = null;
+    }
+
+    /**
+     * Set the maximum number of calls that may wait for each limit,
+     * endpoints may override this with their own <code>maxQueue</code>
+     */
+    public void setMaxQueue(long maxQueue) {
+        this.maxQueue = (int) maxQueue;
+        global = null;
+    }
+
+    /**
+     * Set the maximum time, in ms, a call will wait in the queues before being rejected,
+     * the limit covers the wait for both the endpoint and global limits
+     */
+    public void setMaxWait(long maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Set the delay, in seconds, suggested to rejected clients
+     */
+    public void setRetryAfter(long retryAfter) {
+        this.retryAfter = (int) retryAfter;
+    }
+
+    /**
+     * Wait for permission to run a query for the given endpoint. The returned permit
+     * must be released once the query's results have been consumed.
+     * @throws WebApplicationException 503 if the call is rejected
+     */
+    public Permit acquire(EndpointSpec spec) {
+        Lane endpoint = laneFor(spec);
+        Lane all = getGlobal();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWait);
+        if (endpoint != null) {
+            endpoint.acquire(deadline);
+        }
+        if (all != null) {
+            try {
+                all.acquire(deadline);
+            } catch (RuntimeException e) {
+                if (endpoint != null) {
+                    endpoint.release();
+                }
+                throw e;
+            }
+        }
+        return new Permit(endpoint, all);
+    }
+
+    protected Lane laneFor(EndpointSpec spec) {
+        Integer limit = spec.getMaxConcurrent();
+        if (limit == null) {
+            return null;
+        }
+        Integer queue = spec.getMaxQueue();
+        int queueLimit = queue == null ? maxQueue : queue;
+        String name = spec.getName() == null ? "default" : spec.getName();
+        return endpoints.compute(name, (k, lane) ->
+            (lane != null && lane.limit == limit && lane.queueLimit == queueLimit) ? lane : new Lane(k, limit, queueLimit) );
+    }
+
+    protected Lane getGlobal() {
+        Lane lane = global;
+        if (lane == null && maxConcurrent > 0) {
+            synchronized (this) {
+                if (global == null) {
+                    global = new Lane("global", maxConcurrent, maxQueue);
+                }
+                lane = global;
+            }
+        }
+        return lane;
+    }
+
+    /**
+     * Return the state of the limits as a JSON object, with the current concurrency
+     * and queue depth and the cumulative admitted and rejected counts of each limit
+     */
+    public JsonObject asJson() {
+        JsonObject jo = new JsonObject();
+        Lane all = getGlobal();
+        if (all != null) {
+            jo.put("global", all.asJson());
+        }
+        JsonObject eps = new JsonObject();
+        for (Map.Entry<String, Lane> e : new TreeMap<>(endpoints).entrySet()) {
+            eps.put(e.getKey(), e.getValue().asJson());
+        }
+        jo.put("endpoints", eps);
+        return jo;
+    }
+
+    /**
+     * Return the limit state for the named endpoint, or null if it has no limit or has not been called
+     */
+    public Lane get(String endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    /**
+     * A single concurrency limit with its wait queue
+     */
+    public class Lane {
+        protected final String name;
+        protected final int limit;
+        protected final int queueLimit;
+        protected final Semaphore permits;
+        protected final AtomicInteger waiting = new AtomicInteger();
+        protected final AtomicLong admitted = new AtomicLong();
+        protected final AtomicLong rejected = new AtomicLong();
+
+        public Lane(String name, int limit, int queueLimit) {
+            this.name = name;
+            this.limit = limit;
+            this.queueLimit = queueLimit;
+            this.permits = new Semaphore(limit, true);
+        }
+
+        /**
+         * Wait for a permit until the deadline, from System.nanoTime
+         */
+        protected void acquire(long deadline) {
+            try {
+                // Timed tryAcquire, unlike the untimed one, doesn't barge ahead of queued callers
+                if ( !permits.tryAcquire(0, TimeUnit.MILLISECONDS) ) {
+                    if (waiting.incrementAndGet() > queueLimit) {
+                        waiting.decrementAndGet();
+                        reject("queue full");
+                    }
+                    try {
+                        if ( !permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS) ) {
+                            reject("wait timed out");
+                        }
+                    } finally {
+                        waiting.decrementAndGet();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                reject("interrupted");
+            }
+            admitted.incrementAndGet();
+        }
+
+        protected void release() {
+            permits.release();
+        }
+
+        protected void reject(String reason) {
+            rejected.incrementAndGet();
+            log.warn("Rejected call for " + name + ": " + reason);
+            throw new WebApplicationException( Response.status(Status.SERVICE_UNAVAILABLE)
+                    .header(RETRY_AFTER_HEADER, retryAfter)
+                    .entity("Server busy, try again later")
+                    .type(MediaType.TEXT_PLAIN_TYPE)
+                    .build() );
+        }
+
+        public int getActive() {
+            return limit - permits.availablePermits();
+        }
+
+        public int getQueueDepth() {
+            return waiting.get();
+        }
+
+        public long getAdmitted() {
+            return admitted.get();
+        }
+
+        public long getRejected() {
+            return rejected.get();
+        }
+
+        public JsonObject asJson() {
+            JsonObject jo = new JsonObject();
+            jo.put("limit", limit);
+            jo.put("active", getActive());
+            jo.put("queued", getQueueDepth());
+            jo.put("admitted", getAdmitted());
+            jo.put("rejected", getRejected());
+            return jo;
+        }
+    }
+
+    /**
+     * Permission to run a query, holds a place in each applicable limit until released
+     */
+    public static class Permit {
+        protected final Lane endpoint;
+        protected final Lane global;
+        protected final AtomicBoolean released = new AtomicBoolean(false);
+
+        protected Permit(Lane endpoint, Lane global) {
+            this.endpoint = endpoint;
+            this.global = global;
+        }
+
+        /**
+         * Give up the permit, may safely be called more than once
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                if (global != null) {
+                    global.release();
+                }
+                if (endpoint != null) {
+                    endpoint.release();
+                }
+            }
+        }
+    }
+}
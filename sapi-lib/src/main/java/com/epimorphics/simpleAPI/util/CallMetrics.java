@@ -0,0 +1,158 @@
+/******************************************************************
+ * File:        CallMetrics.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.util;
+
+/**
+ * Timing breakdown for a single call. Records the time spent building the query,
+ * the time to the first result row, the time spent fetching and coalescing rows
+ * and the time spent serializing, plus the number of rows and bytes written.
+ * Times are held in nanoseconds.
+ * Updates are synchronized since rows may be fetched on a different thread from
+ * the one serializing the results. The time the serializing thread itself spends
+ * fetching rows, or waiting for rows fetched in the background, is tracked
+ * separately so that it can be excluded from the write time.
+ */
+public class CallMetrics {
+
+    public enum Phase {
+        BUILD("build"), QUERY("query"), ROWS("rows"), WRITE("write"), TOTAL("total");
+
+        protected final String label;
+
+        private Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    protected final long start = System.nanoTime();
+    protected final long[] times = new long[ Phase.values().length ];
+    protected long queryStart = -1;
+    protected boolean firstRow = false;
+    protected long rows;
+    protected long bytes;
+    protected Thread writer;
+    protected long writerWait;
+
+    /**
+     * Add the time since the given start time, from System.nanoTime, to a phase
+     */
+    public synchronized void record(Phase phase, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        times[phase.ordinal()] += nanos;
+        if (phase == Phase.ROWS && Thread.currentThread() == writer) {
+            writerWait += nanos;
+        }
+    }
+
+    /**
+     * Add a duration, in nanoseconds, to a phase
+     */
+    public synchronized void add(Phase phase, long nanos) {
+        times[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * Return the time recorded for a phase, in nanoseconds
+     */
+    public synchronized long get(Phase phase) {
+        return times[phase.ordinal()];
+    }
+
+    /**
+     * Note that the query has been issued to the data source
+     */
+    public synchronized void queryStarted() {
+        queryStart = System.nanoTime();
+    }
+
+    /**
+     * Note that the first result is available, only the first call has any effect
+     */
+    public synchronized void firstRow() {
+        if (!firstRow && queryStart >= 0) {
+            firstRow = true;
+            record(Phase.QUERY, queryStart);
+        }
+    }
+
+    /**
+     * Note that serialization of the results has started on the current thread
+     */
+    public synchronized void startWrite() {
+        writer = Thread.currentThread();
+    }
+
+    /**
+     * Note time, since the given start time, spent waiting for results being fetched
+     * on another thread. Only counted if the current thread is the one serializing the results.
+     */
+    public synchronized void waited(long startNanos) {
+        if (Thread.currentThread() == writer) {
+            writerWait += System.nanoTime() - startNanos;
+        }
+    }
+
+    /**
+     * Return the time the serializing thread has spent fetching rows, or waiting for
+     * them, in nanoseconds
+     */
+    public synchronized long getWriterWait() {
+        return writerWait;
+    }
+
+    public synchronized void addRows(long n) {
+        rows += n;
+    }
+
+    public synchronized long getRows() {
+        return rows;
+    }
+
+    public synchronized void addBytes(long n) {
+        bytes += n;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Mark the call as complete, fixing the total time
+     */
+    public synchronized void finish() {
+        times[Phase.TOTAL.ordinal()] = System.nanoTime() - start;
+    }
+
+    /**
+     * Return the phases recorded so far in the format of a Server-Timing header, durations in milliseconds
+     */
+    public synchronized String asServerTiming() {
+        StringBuilder header = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            long t = times[phase.ordinal()];
+            if (t > 0) {
+                if (header.length() > 0) {
+                    header.append(", ");
+                }
+                header.append( String.format("%s;dur=%.1f", phase.getLabel(), t / 1e6) );
+            }
+        }
+        return header.toString();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return asServerTiming() + String.format(" rows=%d bytes=%d", rows, bytes);
+    }
+}
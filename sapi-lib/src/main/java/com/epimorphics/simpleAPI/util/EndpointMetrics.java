@@ -0,0 +1,142 @@
+/******************************************************************
+ * File:        EndpointMetrics.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jena.atlas.json.JsonNumber;
+import org.apache.jena.atlas.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epimorphics.simpleAPI.requests.Call;
+import com.epimorphics.simpleAPI.util.CallMetrics.Phase;
+
+/**
+ * Aggregates the timing breakdown of completed calls into per-endpoint
+ * histograms for each phase, exposed as JSON through the metrics endpoint.
+ * Optionally the phases known before serialization starts are reported to
+ * clients in a Server-Timing response header.
+ */
+public class EndpointMetrics {
+    static final Logger log = LoggerFactory.getLogger( EndpointMetrics.class );
+
+    public static final double[] PERCENTILES = new double[]{ 0.5, 0.95, 0.99 };
+
+    protected boolean serverTiming = false;
+    protected final Map<String, Entry> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * If set to true then responses include a Server-Timing header
+     */
+    public void setServerTiming(boolean serverTiming) {
+        this.serverTiming = serverTiming;
+    }
+
+    public boolean isServerTiming() {
+        return serverTiming;
+    }
+
+    /**
+     * Record the metrics of a completed call
+     */
+    public void record(Call call) {
+        CallMetrics metrics = call.getMetrics();
+        metrics.finish();
+        String name = call.getEndpoint().getName();
+        endpoints.computeIfAbsent(name == null ? "default" : name, k -> new Entry()).record(metrics);
+        if (log.isDebugEnabled()) {
+            log.debug("Timing " + name + " : " + metrics);
+        }
+    }
+
+    /**
+     * Return the aggregated metrics for an endpoint, null if there have been no completed calls to it
+     */
+    public Entry get(String endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    public void clear() {
+        endpoints.clear();
+    }
+
+    /**
+     * Return a JSON summary of all endpoints, times in milliseconds
+     */
+    public JsonObject asJson() {
+        JsonObject summary = new JsonObject();
+        for (Map.Entry<String, Entry> e : new TreeMap<>(endpoints).entrySet()) {
+            summary.put(e.getKey(), e.getValue().asJson());
+        }
+        JsonObject result = new JsonObject();
+        result.put("endpoints", summary);
+        return result;
+    }
+
+    /**
+     * Aggregated metrics for a single endpoint
+     */
+    public static class Entry {
+        protected final LatencyHistogram[] phases = new LatencyHistogram[ Phase.values().length ];
+        protected final AtomicLong rows = new AtomicLong();
+        protected final AtomicLong bytes = new AtomicLong();
+
+        public Entry() {
+            for (int i = 0; i < phases.length; i++) {
+                phases[i] = new LatencyHistogram();
+            }
+        }
+
+        public void record(CallMetrics metrics) {
+            for (Phase phase : Phase.values()) {
+                phases[phase.ordinal()].record( metrics.get(phase) / 1000 );
+            }
+            rows.addAndGet( metrics.getRows() );
+            bytes.addAndGet( metrics.getBytes() );
+        }
+
+        public LatencyHistogram getHistogram(Phase phase) {
+            return phases[phase.ordinal()];
+        }
+
+        public long getCalls() {
+            return getHistogram(Phase.TOTAL).getCount();
+        }
+
+        public long getRows() {
+            return rows.get();
+        }
+
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        public JsonObject asJson() {
+            JsonObject jo = new JsonObject();
+            jo.put("calls", getCalls());
+            jo.put("rows", getRows());
+            jo.put("bytes", getBytes());
+            for (Phase phase : Phase.values()) {
+                LatencyHistogram h = getHistogram(phase);
+                JsonObject ph = new JsonObject();
+                for (double p : PERCENTILES) {
+                    ph.put("p" + Math.round(p * 100), JsonNumber.value( h.getPercentile(p) / 1000.0 ));
+                }
+                ph.put("max", JsonNumber.value( h.getMax() / 1000.0 ));
+                jo.put(phase.getLabel(), ph);
+            }
+            return jo;
+        }
+    }
+}
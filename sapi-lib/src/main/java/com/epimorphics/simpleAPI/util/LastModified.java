@@ -9,15 +9,27 @@
 
 package com.epimorphics.simpleAPI.util;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import org.apache.jena.query.QuerySolution;
 import org.apache.jena.query.ResultSet;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.vocabulary.DCTerms;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.epimorphics.appbase.core.Shutdown;
 import com.epimorphics.rdfutil.RDFUtil;
 import com.epimorphics.simpleAPI.query.impl.SparqlDataSource;
 
@@ -26,83 +38,193 @@ import com.epimorphics.simpleAPI.query.impl.SparqlDataSource;
  * source data was last modified.
  * Assumes that the last modified time is available as the dct:modified property of source base resource.
  * Configure a default resource for getting the time stamp or can provide endpoint specific timestamp sources.
+ * <p>
+ * Timestamps are refreshed by a background thread, every retentionTime ms, using a single query
+ * per data source for all the resources which have been asked for from that source. Requests
+ * just read the most recently published snapshot. The first time a given resource is asked
+ * for it is fetched immediately on the background thread, concurrent first callers all wait,
+ * for up to firstFetchWait ms, on that one fetch. If it fails or takes too long they get null
+ * and the resource is picked up by the next background refresh.
+ * </p>
  */
-public class LastModified {
+public class LastModified implements Shutdown {
     static final Logger log = LoggerFactory.getLogger( LastModified.class );
-    
+
     protected long retentionTime = 10 * 1000;
+    protected long firstFetchWait = 5 * 1000;
     protected String defaultTimestampResource;
-    protected Map<String, LastModifiedRecord> timestamps = new HashMap<>();
+    protected final Map<SparqlDataSource, Timestamps> sources = new ConcurrentHashMap<>();
+    protected volatile Long lastFetched;
+    protected ScheduledExecutorService refresher;
 
     public void setDefaultTimestampResource(String timestampResource) {
         defaultTimestampResource = timestampResource;
     }
-    
+
     public void setRetentionTime(long retentionTime) {
         this.retentionTime = retentionTime;
     }
-    
-    private synchronized LastModifiedRecord getRecord(String timestampResource) {
-        LastModifiedRecord record = timestamps.get(timestampResource);
-        if (record == null) {
-            record = new LastModifiedRecord(timestampResource);
-            timestamps.put(timestampResource, record);
-        }
-        return record;
+
+    /**
+     * Set the maximum time, in ms, a caller will wait for the first fetch of a resource's timestamp
+     */
+    public void setFirstFetchWait(long firstFetchWait) {
+        this.firstFetchWait = firstFetchWait;
     }
-    
+
     /**
      * Return the most recent value of the timestamp of this resource, may be null
      * if no timestamp is available
      */
-    public synchronized Long getTimestamp(String timestampResource, SparqlDataSource source) {
-        return getRecord(timestampResource).getTimestamp(source);
+    public Long getTimestamp(String timestampResource, SparqlDataSource source) {
+        if (timestampResource == null || source == null) return null;
+        Timestamps ts = sources.computeIfAbsent(source, Timestamps::new);
+        Long timestamp = ts.values.get(timestampResource);
+        if (timestamp == null && !ts.resources.contains(timestampResource)) {
+            CompletableFuture<Void> created = new CompletableFuture<>();
+            CompletableFuture<Void> fetching = ts.pending.putIfAbsent(timestampResource, created);
+            if (fetching == null) {
+                fetching = created;
+                startFetch(ts, timestampResource, created);
+            }
+            try {
+                fetching.get(firstFetchWait, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                log.warn("Timed out waiting for last modified time of " + timestampResource);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // First fetch never completes exceptionally, failures are logged
+            }
+            timestamp = ts.values.get(timestampResource);
+        }
+        return timestamp;
     }
-    
+
     /**
      * Return the timestamp of the default resource
      */
-    public synchronized Long getTimestamp(SparqlDataSource source) {
+    public Long getTimestamp(SparqlDataSource source) {
         return getTimestamp(defaultTimestampResource, source);
     }
-    
+
     /**
      * For testing
      */
-    public synchronized Long lastFetched() {
-        LastModifiedRecord record = getRecord(defaultTimestampResource);
-        if (record != null) {
-            return record.lastChecked;
-        } else {
-            return null;
+    public Long lastFetched() {
+        return lastFetched;
+    }
+
+    /**
+     * Stop the background refresh, called when the app shuts down
+     */
+    @Override
+    public synchronized void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
         }
     }
-    
-    class LastModifiedRecord {
-        protected String timestampResource;
-        protected Long   timestamp;
-        protected long   lastChecked;
-        
-        public LastModifiedRecord(String timestampResource) {
-            this.timestampResource = timestampResource;
+
+    protected synchronized void startRefresher() {
+        if (refresher == null) {
+            refresher = Executors.newSingleThreadScheduledExecutor( (Runnable r) -> {
+                Thread t = new Thread(r, "sapi-lastmodified");
+                t.setDaemon(true);
+                return t;
+            });
+            refresher.scheduleWithFixedDelay(this::refresh, retentionTime, retentionTime, TimeUnit.MILLISECONDS);
         }
-        
-        public Long getTimestamp(SparqlDataSource source) {
-            long now = System.currentTimeMillis();
-            if (timestamp == null || now - lastChecked > retentionTime) {
-                log.info("Fetching " + timestampResource);
-                ResultSet result = source.getSource().select( String.format("SELECT ?modified WHERE {<%s> <%s> ?modified}", timestampResource, DCTerms.modified.getURI()) );
-                if (result.hasNext()) {
-                    RDFNode modified = result.next().get("modified");
-                    if (modified != null) {
-                        timestamp = RDFUtil.asTimestamp(modified);
-                        log.info("Last modified updated to: " + modified);
-                        lastChecked = now;
-                    }
+    }
+
+    /**
+     * Fetch the timestamp of a newly requested resource on the background thread, completing
+     * the given future when done. The resource then joins the regular refresh, whether or not
+     * the fetch succeeded.
+     */
+    protected synchronized void startFetch(Timestamps ts, String resource, CompletableFuture<Void> done) {
+        startRefresher();
+        refresher.execute( () -> {
+            try {
+                fetch( ts, Collections.singleton(resource) );
+            } catch (Exception e) {
+                log.warn("Failed to fetch last modified time of " + resource + ": " + e.getMessage());
+            } finally {
+                ts.resources.add(resource);
+                done.complete(null);
+                ts.pending.remove(resource);
+            }
+        } );
+    }
+
+    protected void refresh() {
+        for (Timestamps ts : sources.values()) {
+            try {
+                fetch(ts, ts.resources);
+            } catch (Exception e) {
+                log.warn("Failed to refresh last modified timestamps: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Query the timestamps for a set of resources and publish a new snapshot
+     */
+    protected void fetch(Timestamps ts, Collection<String> fetchResources) {
+        if (fetchResources.isEmpty()) return;
+        StringBuilder query = new StringBuilder();
+        query.append("SELECT ?resource ?modified WHERE { VALUES ?resource {");
+        for (String resource : fetchResources) {
+            query.append(" <").append(resource).append(">");
+        }
+        query.append(String.format(" } ?resource <%s> ?modified }", DCTerms.modified.getURI()));
+        log.debug("Fetching " + fetchResources);
+
+        Map<String, Long> fetched = new HashMap<>();
+        ResultSet result = select( ts.source, query.toString() );
+        while (result.hasNext()) {
+            QuerySolution row = result.next();
+            RDFNode resource = row.get("resource");
+            RDFNode modified = row.get("modified");
+            if (resource != null && resource.isURIResource() && modified != null) {
+                Long timestamp = RDFUtil.asTimestamp(modified);
+                if (timestamp != null) {
+                    fetched.merge(resource.asResource().getURI(), timestamp, Math::max);
                 }
             }
-            return timestamp;
+        }
+        if (!fetched.isEmpty()) {
+            publish(ts, fetched);
+            lastFetched = System.currentTimeMillis();
+        }
+    }
+
+    protected ResultSet select(SparqlDataSource source, String query) {
+        return source.getSource().select(query);
+    }
+
+    protected synchronized void publish(Timestamps ts, Map<String, Long> fetched) {
+        Map<String, Long> updated = new HashMap<>( ts.values );
+        for (Map.Entry<String, Long> entry : fetched.entrySet()) {
+            Long previous = updated.put(entry.getKey(), entry.getValue());
+            if ( !entry.getValue().equals(previous) ) {
+                log.info("Last modified for " + entry.getKey() + " updated to: " + entry.getValue());
+            }
+        }
+        ts.values = Collections.unmodifiableMap(updated);
+    }
+
+    /**
+     * The resources asked for from one data source and their latest timestamps
+     */
+    protected static class Timestamps {
+        protected final SparqlDataSource source;
+        protected final Set<String> resources = ConcurrentHashMap.newKeySet();
+        protected final Map<String, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+        protected volatile Map<String, Long> values = Collections.emptyMap();
+
+        protected Timestamps(SparqlDataSource source) {
+            this.source = source;
         }
     }
-    
 }
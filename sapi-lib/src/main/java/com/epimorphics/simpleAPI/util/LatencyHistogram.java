@@ -0,0 +1,85 @@
+/******************************************************************
+ * File:        LatencyHistogram.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of durations, in microseconds, for percentile estimates.
+ * Buckets are powers of two each split into 8 linear sub-buckets so estimates
+ * are within 12.5% of the true value.
+ */
+public class LatencyHistogram {
+    protected static final int SUB_BITS = 3;
+    protected static final int SUB_BUCKETS = 1 << SUB_BITS;
+    protected static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    protected final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    protected final AtomicLong count = new AtomicLong();
+    protected final AtomicLong max = new AtomicLong();
+
+    public void record(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+        counts.incrementAndGet( bucketFor(micros) );
+        count.incrementAndGet();
+        long m = max.get();
+        while (micros > m && !max.compareAndSet(m, micros)) {
+            m = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Return an estimate of the given quantile (0 to 1), in microseconds, or 0 if nothing has been recorded
+     */
+    public long getPercentile(double quantile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min( upperBound(i), max.get() );
+            }
+        }
+        return max.get();
+    }
+
+    protected static int bucketFor(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    protected static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exp = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        return ((long)(SUB_BUCKETS + sub + 1) << (exp - SUB_BITS)) - 1;
+    }
+}
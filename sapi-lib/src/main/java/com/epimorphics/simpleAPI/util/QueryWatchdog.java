@@ -0,0 +1,36 @@
+/******************************************************************
+ * File:        QueryWatchdog.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.util;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared timer used to abort queries which overrun their endpoint's time limit.
+ * Uses a single daemon thread, the scheduled actions should be quick.
+ */
+public class QueryWatchdog {
+    protected static final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread thread = new Thread(r, "sapi-query-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    static {
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Run the action after the given delay, in milliseconds, unless cancelled first
+     */
+    public static ScheduledFuture<?> schedule(long delay, Runnable action) {
+        return timer.schedule(action, delay, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,293 @@
+/******************************************************************
+ * File:        ResultCache.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epimorphics.simpleAPI.core.API;
+import com.epimorphics.simpleAPI.endpoints.EndpointSpec;
+import com.epimorphics.simpleAPI.query.DataSource;
+import com.epimorphics.simpleAPI.query.Query;
+import com.epimorphics.simpleAPI.query.impl.SparqlDataSource;
+import com.epimorphics.simpleAPI.requests.Call;
+import com.epimorphics.simpleAPI.results.RDFResult;
+import com.epimorphics.simpleAPI.results.Result;
+import com.epimorphics.simpleAPI.results.ResultOrStream;
+import com.epimorphics.simpleAPI.results.ResultStream;
+import com.epimorphics.simpleAPI.results.ResultStreamList;
+import com.epimorphics.simpleAPI.results.ResultStreamRecorder;
+import com.epimorphics.simpleAPI.results.TreeResult;
+
+/**
+ * In-process, size bounded, LRU cache of call results. Entries are keyed on the endpoint,
+ * view and final query so that identical calls can be answered without going back to the
+ * data source. Each entry keeps the materialized results plus the serialized
+ * response bodies, per media type, which have been generated from them.
+ * <p>
+ * If the API has a timestamp service configured then entries are discarded once
+ * the source's last modified time changes, otherwise they can be given a maximum age.
+ * </p>
+ */
+public class ResultCache {
+    static final Logger log = LoggerFactory.getLogger( ResultCache.class );
+
+    protected int maxEntries = 1000;
+    protected int maxRows = 500;
+    protected int maxBodySize = 1024 * 1024;
+    protected long maxAge = 0;
+    protected boolean enabledByDefault = false;
+
+    protected final AtomicLong hits = new AtomicLong();
+    protected final AtomicLong misses = new AtomicLong();
+    protected final AtomicLong evictions = new AtomicLong();
+
+    protected final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    // ---- Configuration --------------------------------------------
+
+    /**
+     * Set the maximum number of calls whose results will be retained
+     */
+    public void setMaxEntries(long maxEntries) {
+        this.maxEntries = (int) maxEntries;
+    }
+
+    /**
+     * Set the maximum number of results in a list response that will be cached,
+     * longer responses are not cached
+     */
+    public void setMaxRows(long maxRows) {
+        this.maxRows = (int) maxRows;
+    }
+
+    /**
+     * Set the maximum size, in bytes, of a serialized response body that will be retained
+     */
+    public void setMaxBodySize(long maxBodySize) {
+        this.maxBodySize = (int) maxBodySize;
+    }
+
+    /**
+     * Set the maximum age (in ms) of a cache entry, 0 means no limit in which case
+     * entries are only invalidated by changes to the source's last modified time.
+     */
+    public void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Set to true to cache the results of all endpoints which don't explicitly disable caching.
+     * By default only endpoints which set "cache: true" are cached.
+     */
+    public void setEnabledByDefault(boolean enabledByDefault) {
+        this.enabledByDefault = enabledByDefault;
+    }
+
+    public int getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    // ---- Statistics --------------------------------------------
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    // ---- Cache access --------------------------------------------
+
+    /**
+     * Test whether the results for the given endpoint should be cached
+     */
+    public boolean isEnabledFor(EndpointSpec endpoint) {
+        Boolean enabled = endpoint.getUseCache();
+        return enabled == null ? enabledByDefault : enabled;
+    }
+
+    /**
+     * Return the cache key for a call with a built query
+     */
+    public String keyFor(Call call, Query query) {
+        return call.getEndpoint().getName()
+                + "@" + System.identityHashCode( call.getEndpoint() )
+                + "|" + call.getRequest().getViewName()
+                + "|" + System.identityHashCode( call.getDataSource() )
+                + "|" + query;
+    }
+
+    /**
+     * Return the cached results for the given key, rebound to the given call,
+     * or null if there are no valid cached results.
+     */
+    public ResultOrStream lookup(String key, Call call) {
+        Long timestamp = currentTimestamp( call.getAPI() );
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && !entry.isValid(timestamp)) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        call.setCacheEntry(entry);
+        return entry.replay(call);
+    }
+
+    /**
+     * Arrange for the results of a call to be cached. Single item results
+     * are cached immediately, result streams are cached once they have been consumed.
+     * @return the results to use in place of the originals
+     */
+    public ResultOrStream record(String key, Call call, ResultOrStream results) {
+        Entry entry = new Entry( currentTimestamp( call.getAPI() ) );
+        call.setCacheEntry(entry);
+        if (results instanceof ResultStream) {
+            return new ResultStreamRecorder((ResultStream) results, maxRows, (List<Result> recorded) -> {
+                List<Result> items = new ArrayList<>( recorded.size() );
+                for (Result result : recorded) {
+                    items.add( rebind(result, null) );
+                }
+                entry.items = items;
+                put(key, entry);
+            });
+        } else {
+            entry.item = rebind( (Result) results, null );
+            put(key, entry);
+            return results;
+        }
+    }
+
+    /**
+     * Return a copy of a result which answers to the given call, or is detached from
+     * any call if that is null, so that cached results don't hold on to the call
+     * which created them and each replay gets its own copy
+     */
+    protected static Result rebind(Result result, Call call) {
+        if (result instanceof TreeResult) {
+            return ((TreeResult)result).copyFor(call);
+        } else if (result instanceof RDFResult) {
+            return new RDFResult( ((RDFResult)result).asResource(), call );
+        } else {
+            return result;
+        }
+    }
+
+    protected synchronized void put(String key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+    protected Long currentTimestamp(API api) {
+        LastModified lm = api.getTimestampService();
+        if (lm != null) {
+            DataSource source = api.getSource();
+            if (source instanceof SparqlDataSource) {
+                return lm.getTimestamp( (SparqlDataSource)source );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The cached state for a single call
+     */
+    public class Entry {
+        protected final Long timestamp;
+        protected final long created = System.currentTimeMillis();
+        protected volatile Result item;
+        protected volatile List<Result> items;
+        protected final Map<String, byte[]> bodies = new ConcurrentHashMap<>();
+
+        public Entry(Long timestamp) {
+            this.timestamp = timestamp;
+        }
+
+        protected boolean isValid(Long currentTimestamp) {
+            if (timestamp == null ? currentTimestamp != null : !timestamp.equals(currentTimestamp)) {
+                return false;
+            }
+            return maxAge <= 0 || System.currentTimeMillis() - created < maxAge;
+        }
+
+        protected ResultOrStream replay(Call call) {
+            List<Result> cached = items;
+            if (cached != null) {
+                List<Result> replayed = new ArrayList<>( cached.size() );
+                for (Result result : cached) {
+                    replayed.add( rebind(result, call) );
+                }
+                return new ResultStreamList(replayed, call);
+            } else {
+                return rebind(item, call);
+            }
+        }
+
+        /**
+         * Test if the entry has been filled and so can hold serialized response bodies
+         */
+        public boolean isComplete() {
+            return item != null || items != null;
+        }
+
+        /**
+         * Return the serialized response for the given media type and request URL, if available
+         */
+        public byte[] getBody(String bodyKey) {
+            return bodies.get(bodyKey);
+        }
+
+        /**
+         * Record a serialized response for the given media type and request URL
+         */
+        public void putBody(String bodyKey, byte[] body) {
+            if (isComplete() && body.length <= maxBodySize) {
+                bodies.put(bodyKey, body);
+            }
+        }
+    }
+}
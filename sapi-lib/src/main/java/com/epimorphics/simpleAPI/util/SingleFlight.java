@@ -0,0 +1,246 @@
+/******************************************************************
+ * File:        SingleFlight.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.sparql.engine.ResultSetStream;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+
+import com.epimorphics.appbase.data.ClosableResultSet;
+import com.epimorphics.util.EpiException;
+
+/**
+ * Coalesces concurrent executions of identical queries so that only one
+ * is sent to the store, the other callers wait for and share its results.
+ * Only queries that are in flight at the same time are shared, nothing
+ * is retained once the query completes.
+ * <p>
+ * Describe results are shared as a single graph, which must then be treated
+ * as read only. Select results are only buffered if another caller is waiting
+ * for them once the query returns, otherwise they are streamed straight to the
+ * first caller and later callers execute the query independently. Buffered
+ * results are limited to a maximum number of rows and replayed to each caller.
+ * If the results exceed that limit then the first caller continues to stream
+ * the rest of the results and the waiting callers fall back to executing the
+ * query independently.
+ * </p>
+ */
+public class SingleFlight {
+    public static final int DEFAULT_MAX_ROWS = 10000;
+
+    protected int maxRows = DEFAULT_MAX_ROWS;
+    protected final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+    protected final AtomicLong executions = new AtomicLong();
+    protected final AtomicLong shared = new AtomicLong();
+
+    /**
+     * Set the maximum number of select rows that will be buffered for sharing,
+     * limits beyond the maximum int value are treated as that value
+     */
+    public void setMaxRows(long maxRows) {
+        if (maxRows < 1) {
+            throw new EpiException("Single flight max rows must be positive: " + maxRows);
+        }
+        this.maxRows = (int) Math.min(maxRows, Integer.MAX_VALUE);
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    /**
+     * Number of queries actually executed
+     */
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    /**
+     * Number of calls which were answered by sharing another call's execution
+     */
+    public long getShared() {
+        return shared.get();
+    }
+
+    /**
+     * Run a describe query, or share the results of an identical one already in flight
+     */
+    public Graph describe(String query, Supplier<Graph> execute) {
+        // Describe flights always accept callers, so the result is always shared
+        return (Graph) share("describe|" + query, flight -> execute.get());
+    }
+
+    /**
+     * Run a select query, or share the results of an identical one already in flight
+     */
+    public ResultSet select(String query, Supplier<ResultSet> execute) {
+        ResultSet[] continued = new ResultSet[1];
+        Rows rows = (Rows) share("select|" + query, flight -> {
+            ResultSet results = execute.get();
+            if (flight.closeIfUnshared()) {
+                // No one waiting, stream the results directly
+                continued[0] = results;
+                return null;
+            }
+            List<Binding> buffer = new ArrayList<>();
+            try {
+                while (results.hasNext()) {
+                    if (buffer.size() >= maxRows) {
+                        continued[0] = new ReplayResultSet(results.getResultVars(),
+                                Iter.concat(buffer.iterator(), new BindingIterator(results)), results);
+                        return new Rows(results.getResultVars(), null);
+                    }
+                    buffer.add( results.nextBinding() );
+                }
+            } catch (RuntimeException e) {
+                close(results);
+                throw e;
+            }
+            close(results);
+            return new Rows(results.getResultVars(), buffer);
+        });
+        if (continued[0] != null) {
+            return continued[0];
+        } else if (rows == null || rows.bindings == null) {
+            // Too large to share, or no longer being shared, run our own copy
+            executions.incrementAndGet();
+            return execute.get();
+        } else {
+            return new ReplayResultSet(rows.vars, rows.bindings.iterator(), null);
+        }
+    }
+
+    /**
+     * Run the execute function, or wait for and share the result of an identical
+     * flight. Returns null if there is an identical flight which is no longer
+     * accepting callers, in which case the caller should execute independently.
+     */
+    protected Object share(String key, Function<Flight, Object> execute) {
+        Flight flight = new Flight();
+        Flight existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            if ( !existing.attach() ) {
+                return null;
+            }
+            shared.incrementAndGet();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : e;
+            }
+        }
+        executions.incrementAndGet();
+        try {
+            Object result = execute.apply(flight);
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    protected static void close(ResultSet results) {
+        if (results instanceof ClosableResultSet) {
+            ((ClosableResultSet)results).close();
+        }
+    }
+
+    /**
+     * A query in flight, tracks whether other callers are waiting for its results
+     */
+    protected static class Flight extends CompletableFuture<Object> {
+        protected int followers = 0;
+        protected boolean open = true;
+
+        /**
+         * Register a caller waiting for the results, returns false if the flight
+         * no longer accepts callers
+         */
+        protected synchronized boolean attach() {
+            if (open) {
+                followers++;
+            }
+            return open;
+        }
+
+        /**
+         * Stop accepting callers if none are waiting, returns true if the flight was closed
+         */
+        protected synchronized boolean closeIfUnshared() {
+            if (followers == 0) {
+                open = false;
+            }
+            return !open;
+        }
+    }
+
+    protected static class Rows {
+        protected final List<String> vars;
+        protected final List<Binding> bindings;
+
+        public Rows(List<String> vars, List<Binding> bindings) {
+            this.vars = vars;
+            this.bindings = bindings;
+        }
+    }
+
+    protected static class BindingIterator implements Iterator<Binding> {
+        protected final ResultSet results;
+
+        public BindingIterator(ResultSet results) {
+            this.results = results;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return results.hasNext();
+        }
+
+        @Override
+        public Binding next() {
+            return results.nextBinding();
+        }
+    }
+
+    /**
+     * A result set over buffered bindings, possibly continuing with
+     * a live result set which is closed along with this one
+     */
+    public static class ReplayResultSet extends ResultSetStream {
+        protected final ResultSet live;
+
+        public ReplayResultSet(List<String> vars, Iterator<Binding> bindings, ResultSet live) {
+            super(vars, null, QueryIterPlainWrapper.create(bindings));
+            this.live = live;
+        }
+
+        public void close() {
+            SingleFlight.close(live);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/******************************************************************
+ * File:        WorkerPool.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pools of named daemon threads for background work on behalf of a call.
+ * Tasks are never queued, once all the threads are busy further submissions are
+ * rejected with a RejectedExecutionException so that the caller can do the work
+ * itself instead. Idle threads are retired after a minute.
+ */
+public class WorkerPool {
+    protected static final long IDLE_TIMEOUT = 60;
+
+    /**
+     * Create a pool of at most the given number of threads, named from the given prefix
+     */
+    public static ExecutorService create(String name, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, IDLE_TIMEOUT, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
@@ -12,6 +12,7 @@ package com.epimorphics.simpleAPI.views;
 import static com.epimorphics.simpleAPI.core.ConfigConstants.*;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -24,6 +25,7 @@ import org.apache.jena.atlas.json.JsonValue;
 
 import com.epimorphics.json.JsonUtil;
 import com.epimorphics.simpleAPI.views.PropertySpec.PV;
+import com.epimorphics.simpleAPI.writers.JsonPlan;
 import com.epimorphics.sparql.exprs.Infix;
 import com.epimorphics.sparql.exprs.Op;
 import com.epimorphics.sparql.graphpatterns.And;
@@ -49,6 +51,8 @@ public class ClassSpec implements Iterable<PropertySpec> {
     protected URI uri;
     protected String jsonname;
     protected Map<String, PropertySpec> children = new LinkedHashMap<>();
+    protected volatile SlotLayout slotLayout;
+    protected volatile JsonPlan jsonPlan;
     
     /**
      * Construct an anonymous class
@@ -101,6 +105,8 @@ public class ClassSpec implements Iterable<PropertySpec> {
     
     public void addChild(PropertySpec entry) {
         children.put(entry.getJsonName(), entry);
+        slotLayout = null;
+        jsonPlan = null;
     }
 
     @Override
@@ -116,6 +122,30 @@ public class ClassSpec implements Iterable<PropertySpec> {
         return children.get(shortname);
     }
     
+    /**
+     * Return the slot layout used for results of this class. Computed once and cached.
+     */
+    public SlotLayout getSlotLayout() {
+        SlotLayout layout = slotLayout;
+        if (layout == null) {
+            layout = SlotLayout.forClass(this);
+            slotLayout = layout;
+        }
+        return layout;
+    }
+    
+    /**
+     * Return the JSON rendering plan for results of this class. Computed once and cached.
+     */
+    public JsonPlan getJsonPlan() {
+        JsonPlan plan = jsonPlan;
+        if (plan == null) {
+            plan = JsonPlan.forClass(this);
+            jsonPlan = plan;
+        }
+        return plan;
+    }
+    
     
     protected GraphPattern buildPattern(String var, String path) {
         return buildPattern(var, path, new HashSet<>(), true);
@@ -167,6 +197,57 @@ public class ClassSpec implements Iterable<PropertySpec> {
     	return new And(patterns);    	
     }
     
+    /**
+     * Return the optional top level properties which can have more than one value,
+     * either directly or through their nested properties. Joining these into a single
+     * query multiplies the number of rows returned for each item.
+     */
+    public List<PropertySpec> getMultivaluedBranches() {
+        List<PropertySpec> branches = new ArrayList<>();
+        for (PropertySpec map : children.values()) {
+            if (map.isOptional() && hasMultivalued(map)) {
+                branches.add(map);
+            }
+        }
+        return branches;
+    }
+    
+    private static boolean hasMultivalued(PropertySpec map) {
+        if (map.isMultivalued()) {
+            return true;
+        }
+        if (map.isNested()) {
+            for (PropertySpec child : map.getNested()) {
+                if (hasMultivalued(child)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Build the pattern for the tree rooted at the given variable leaving out the given top level properties
+     */
+    public GraphPattern buildPatternWithout(String var, Collection<PropertySpec> omit) {
+        ClassSpec subset = clone();
+        for (PropertySpec map : children.values()) {
+            if ( !omit.contains(map) ) {
+                subset.addChild(map);
+            }
+        }
+        return subset.buildPattern(var, "");
+    }
+    
+    /**
+     * Build the pattern for just one top level property of the tree rooted at the given variable
+     */
+    public GraphPattern buildPatternFor(String var, PropertySpec property) {
+        ClassSpec subset = clone();
+        subset.addChild(property);
+        return subset.buildPattern(var, "");
+    }
+    
     protected GraphPattern patternForPath(ViewPath path, String pathSoFar, String priorVar) {
         String var = path.first();
         PropertySpec entry = getEntry(var);
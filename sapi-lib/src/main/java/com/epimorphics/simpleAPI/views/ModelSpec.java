@@ -13,6 +13,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.jena.atlas.json.JsonObject;
 import org.apache.jena.atlas.json.JsonValue;
@@ -36,6 +37,7 @@ public class ModelSpec extends ConfigItem {
     protected PrefixMapping prefixes;
     protected Map<String, PropertySpec> globalProperties = new LinkedHashMap<>();
     protected Map<String, ClassSpec> classes = new LinkedHashMap<>();
+    protected final Map<String, ClassSpec> projections = new ConcurrentHashMap<>();
     
     public ModelSpec(PrefixMapping prefixes) {
         super();
@@ -48,6 +50,7 @@ public class ModelSpec extends ConfigItem {
     
     public void addProperty(PropertySpec prop) {
         globalProperties.put(prop.getProperty().getURI(), prop);
+        projections.clear();
     }
     
     public PropertySpec getProperty(String uri) {
@@ -70,6 +73,7 @@ public class ModelSpec extends ConfigItem {
             throw new EpiException("Can't register an anonymous class");
         }
         classes.put(uri, cspec);
+        projections.clear();
     }
     
     public ClassSpec getClassSpec(String uri) {
@@ -131,24 +135,41 @@ public class ModelSpec extends ConfigItem {
      * Create a view starting from the given root class (may be a curi) showing only those
      * properties in the projection. The projection can unfold recursion so this is not
      * the same as creating a default view then filtering it by a projection.
+     * Projections are memoized, and so shared between views, and must be treated as read only.
      */
     public ClassSpec projectClass(String rootURI, Projection projection) {
-        ClassSpec root = getClassSpec(rootURI);
-        if (root == null) return null;
-        return root.project(this, projection.getRoot());
+        String key = rootURI + " " + projection;
+        ClassSpec view = projections.get(key);
+        if (view == null) {
+            ClassSpec root = getClassSpec(rootURI);
+            if (root == null) return null;
+            view = root.project(this, projection.getRoot());
+            ClassSpec existing = projections.putIfAbsent(key, view);
+            if (existing != null) {
+                view = existing;
+            }
+        }
+        return view;
     }
     
     /**
      * Create a view starting from the given root class (may be a curi) showing all properties in the model.
-     * Blocks recursion.
+     * Blocks recursion. Memoized, the result must be treated as read only.
      */
     public ClassSpec projectClass(String rootClassURI) {
-        ClassSpec rootClass = getClassSpec(rootClassURI);
-        if (rootClass == null) return null;
-        ClassSpec view = new ClassSpec();
-        view.setJsonName( rootClass.getJsonName() );
-        view.setUri( rootClass.getUri() );
-        view.addClosure(this, rootClass, new HashSet<>());
+        ClassSpec view = projections.get(rootClassURI);
+        if (view == null) {
+            ClassSpec rootClass = getClassSpec(rootClassURI);
+            if (rootClass == null) return null;
+            view = new ClassSpec();
+            view.setJsonName( rootClass.getJsonName() );
+            view.setUri( rootClass.getUri() );
+            view.addClosure(this, rootClass, new HashSet<>());
+            ClassSpec existing = projections.putIfAbsent(rootClassURI, view);
+            if (existing != null) {
+                view = existing;
+            }
+        }
         return view;
     }
     
@@ -0,0 +1,114 @@
+/******************************************************************
+ * File:        SlotLayout.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.views;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Slot layout of the properties of a ClassSpec, used to give results for the class
+ * an array indexed, compact representation. Slots are ordered by sorted key, which
+ * is the order used for rendering.
+ * <p>
+ * The layout is flat if the class has no nested or multivalued properties,
+ * in which case query rows can be mapped directly to results without coalescing.
+ * </p>
+ */
+public class SlotLayout {
+    protected final String[] keys;
+    protected final PropertySpec[] properties;
+    protected final Map<String, Integer> index = new HashMap<>();
+    protected final boolean flat;
+    protected final Map<String, String[]> varNames = new ConcurrentHashMap<>();
+
+    protected SlotLayout(List<PropertySpec> children) {
+        int n = children.size();
+        keys = new String[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = children.get(i).getJsonName();
+        }
+        Arrays.sort(keys);
+        properties = new PropertySpec[n];
+        boolean isFlat = true;
+        for (int i = 0; i < n; i++) {
+            index.put(keys[i], i);
+        }
+        for (PropertySpec child : children) {
+            properties[ index.get(child.getJsonName()) ] = child;
+            if (child.isNested() || child.isMultivalued()) {
+                isFlat = false;
+            }
+        }
+        flat = isFlat;
+    }
+
+    /**
+     * Return the layout for the given class
+     */
+    public static SlotLayout forClass(ClassSpec spec) {
+        return new SlotLayout( spec.getChildren() );
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * True if the class has no nested or multivalued properties
+     */
+    public boolean isFlat() {
+        return flat;
+    }
+
+    /**
+     * The key for a slot, for top level results this is also the query variable name
+     */
+    public String getKey(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * The sorted keys, shared so must not be modified
+     */
+    public String[] getKeys() {
+        return keys;
+    }
+
+    public PropertySpec getProperty(int slot) {
+        return properties[slot];
+    }
+
+    /**
+     * Return the slot for a key, or -1 if the key is not part of the layout
+     */
+    public int slotFor(String key) {
+        Integer slot = index.get(key);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Return the query variable names for each slot when the class appears at
+     * the given path (underscore separated) within a view, cached
+     */
+    public String[] getVarNames(String path) {
+        String[] names = varNames.get(path);
+        if (names == null) {
+            names = new String[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                names[i] = path.isEmpty() ? keys[i] : path + "_" + keys[i];
+            }
+            varNames.put(path, names);
+        }
+        return names;
+    }
+}
@@ -61,6 +61,13 @@ public class ViewMap extends ConfigItem {
         return tree;
     }
     
+    /**
+     * Return the name of the view or model this view is derived from, null if it is self contained
+     */
+    public String getReference() {
+        return null;
+    }
+    
     /**
      * Return a SPARQL query string representing the bindings for this map
      */
@@ -9,6 +9,8 @@
 
 package com.epimorphics.simpleAPI.views;
 
+import static com.epimorphics.simpleAPI.core.ConfigConstants.DEFAULT_MODEL;
+
 import com.epimorphics.simpleAPI.core.API;
 import com.epimorphics.util.EpiException;
 
@@ -31,6 +33,11 @@ public class ViewMapModelProjection extends ViewMap {
         }
     }
     
+    @Override
+    public String getReference() {
+        return modelReference == null ? DEFAULT_MODEL : modelReference;
+    }
+    
     @Override
     public ClassSpec getTree() {
         ModelSpec model = modelReference == null ? api.getModel() : api.getModel(modelReference);
@@ -27,6 +27,11 @@ public class ViewMapProjection extends ViewMap {
         this.projection = new Projection(projection);
     }
     
+    @Override
+    public String getReference() {
+        return viewReference;
+    }
+    
     @Override
     public ClassSpec getTree() {
         ViewMap view = api.getView(viewReference);
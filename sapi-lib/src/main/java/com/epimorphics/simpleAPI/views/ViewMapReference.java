@@ -25,6 +25,11 @@ public class ViewMapReference extends ViewMap {
         this.api = api;
     }
     
+    @Override
+    public String getReference() {
+        return viewReference;
+    }
+    
     @Override
     public ClassSpec getTree() {
         ViewMap view = api.getView(viewReference);
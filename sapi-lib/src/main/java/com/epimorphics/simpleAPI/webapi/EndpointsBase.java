@@ -57,12 +57,14 @@ public class EndpointsBase {
     public static final String JSONLD = "application/ld+json";
     public static final String GEO_JSON = "application/geo+json";
     public static final String RDFXML = "application/rdf+xml";
+    public static final String NTRIPLES = "application/n-triples";
     
     public static MediaType TURTLE_TYPE;
     public static MediaType CSV_TYPE;
     public static MediaType JSONLD_TYPE;
     public static MediaType GEO_JSON_TYPE;
     public static MediaType RDFXML_TYPE;
+    public static MediaType NTRIPLES_TYPE;
     public static  List<Variant> nonHtmlVariants;
     public static  List<Variant> htmlVariants;
     
@@ -81,6 +83,7 @@ public class EndpointsBase {
         JSONLD_TYPE = new MediaType("application", "ld+json", nonPreferred);
         GEO_JSON_TYPE = new MediaType("application", "geo+json", nonPreferredUTF8);
         RDFXML_TYPE = new MediaType("application", "rdf+xml", nonPreferred);
+        NTRIPLES_TYPE = new MediaType("application", "n-triples", nonPreferred);
         
         nonHtmlVariants = Variant.mediaTypes(
                 MediaType.APPLICATION_JSON_TYPE,
@@ -88,7 +91,8 @@ public class EndpointsBase {
                 RDFXML_TYPE,
                 JSONLD_TYPE,
                 GEO_JSON_TYPE,
-                CSV_TYPE).build();
+                CSV_TYPE,
+                NTRIPLES_TYPE).build();
         htmlVariants = Variant.mediaTypes( MediaType.TEXT_HTML_TYPE ).build();
     }
     
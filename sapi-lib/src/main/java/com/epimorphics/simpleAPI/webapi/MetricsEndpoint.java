@@ -0,0 +1,46 @@
+/******************************************************************
+ * File:        MetricsEndpoint.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.webapi;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.apache.jena.atlas.json.JsonObject;
+
+import com.epimorphics.simpleAPI.util.Bulkhead;
+import com.epimorphics.simpleAPI.util.EndpointMetrics;
+
+/**
+ * Reports the per-endpoint timing percentiles collected by the API's
+ * metrics collector and the state of the concurrency limits, if any.
+ * Not found if neither is configured.
+ */
+@Path("system/metrics")
+public class MetricsEndpoint extends EndpointsBase {
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getMetrics() {
+        EndpointMetrics metrics = getAPI().getMetrics();
+        Bulkhead bulkhead = getAPI().getBulkhead();
+        if (metrics == null && bulkhead == null) {
+            throw new NotFoundException("No metrics configured");
+        }
+        JsonObject result = metrics == null ? new JsonObject() : metrics.asJson();
+        if (bulkhead != null) {
+            result.put("bulkhead", bulkhead.asJson());
+        }
+        return Response.ok( result.toString(), MediaType.APPLICATION_JSON_TYPE ).build();
+    }
+}
@@ -0,0 +1,48 @@
+/******************************************************************
+ * File:        ReadinessEndpoint.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.webapi;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.apache.jena.atlas.json.JsonObject;
+
+import com.epimorphics.simpleAPI.core.API;
+import com.epimorphics.simpleAPI.core.SpecMonitor;
+
+/**
+ * Readiness probe, returns 200 once the endpoint specifications have been
+ * loaded and 503 until then.
+ */
+@Path("system/ready")
+public class ReadinessEndpoint extends EndpointsBase {
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getReady() {
+        API api = getAPI();
+        boolean ready = api != null && api.isReady();
+        JsonObject status = new JsonObject();
+        status.put("ready", ready);
+        SpecMonitor monitor = api == null ? null : api.getSpecMonitor();
+        if (ready && monitor != null) {
+            status.put("specs", monitor.getEntries().size());
+            status.put("loadTime", monitor.getLoadTime());
+        }
+        return Response.status( ready ? Status.OK : Status.SERVICE_UNAVAILABLE )
+                .entity( status.toString() )
+                .type( MediaType.APPLICATION_JSON_TYPE )
+                .build();
+    }
+}
@@ -0,0 +1,102 @@
+/******************************************************************
+ * File:        CachedBodyInterceptor.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.webapi.marshalling;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import com.epimorphics.simpleAPI.requests.Call;
+import com.epimorphics.simpleAPI.results.ResultOrStream;
+import com.epimorphics.simpleAPI.util.ResultCache;
+
+/**
+ * Serves serialized response bodies from the result cache, when available,
+ * and captures newly serialized bodies into the cache entry for the call.
+ * Bodies are keyed on media type and full request URL since the metadata
+ * in a response includes the request URL.
+ */
+@Provider
+public class CachedBodyInterceptor implements WriterInterceptor {
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+        Object entity = context.getEntity();
+        if ( !(entity instanceof ResultOrStream) ) {
+            context.proceed();
+            return;
+        }
+        Call call = ((ResultOrStream)entity).getCall();
+        ResultCache.Entry entry = call == null ? null : call.getCacheEntry();
+        if (entry == null) {
+            context.proceed();
+            return;
+        }
+        String bodyKey = context.getMediaType() + " " + call.getRequest().getFullRequestedURI();
+        byte[] body = entry.getBody(bodyKey);
+        if (body != null) {
+            context.getOutputStream().write(body);
+            return;
+        }
+        CapturingOutputStream capture = new CapturingOutputStream(context.getOutputStream(), call.getAPI().getResultCache().getMaxBodySize());
+        context.setOutputStream(capture);
+        context.proceed();
+        if (capture.getCaptured() != null) {
+            entry.putBody(bodyKey, capture.getCaptured());
+        }
+    }
+
+    /**
+     * Passes output through while keeping a copy, up to a size limit
+     */
+    static class CapturingOutputStream extends FilterOutputStream {
+        protected ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        protected int limit;
+
+        public CapturingOutputStream(OutputStream out, int limit) {
+            super(out);
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (copy != null) {
+                copy.write(b);
+                checkLimit();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (copy != null) {
+                copy.write(b, off, len);
+                checkLimit();
+            }
+        }
+
+        private void checkLimit() {
+            if (copy.size() > limit) {
+                copy = null;
+            }
+        }
+
+        public byte[] getCaptured() {
+            return copy == null ? null : copy.toByteArray();
+        }
+    }
+}
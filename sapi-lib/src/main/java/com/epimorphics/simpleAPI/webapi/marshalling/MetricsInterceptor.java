@@ -0,0 +1,93 @@
+/******************************************************************
+ * File:        MetricsInterceptor.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.webapi.marshalling;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import com.epimorphics.simpleAPI.requests.Call;
+import com.epimorphics.simpleAPI.results.ResultOrStream;
+import com.epimorphics.simpleAPI.util.CallMetrics;
+import com.epimorphics.simpleAPI.util.CallMetrics.Phase;
+import com.epimorphics.simpleAPI.util.EndpointMetrics;
+
+/**
+ * Times the serialization of call results and counts the bytes written,
+ * completing the call's timing breakdown and passing it to the API's metrics
+ * collector, if one is configured. Time spent fetching rows during streamed
+ * serialization, or waiting for rows fetched in the background, is excluded
+ * from the write time.
+ */
+@Provider
+public class MetricsInterceptor implements WriterInterceptor {
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+        Object entity = context.getEntity();
+        Call call = entity instanceof ResultOrStream ? ((ResultOrStream)entity).getCall() : null;
+        EndpointMetrics collector = call == null ? null : call.getAPI().getMetrics();
+        if (collector == null) {
+            context.proceed();
+            return;
+        }
+        CallMetrics metrics = call.getMetrics();
+        if (collector.isServerTiming()) {
+            // Only the phases before serialization can be reported in a header
+            context.getHeaders().add(SERVER_TIMING_HEADER, metrics.asServerTiming());
+        }
+        CountingOutputStream out = new CountingOutputStream( context.getOutputStream() );
+        context.setOutputStream(out);
+        metrics.startWrite();
+        long waitBefore = metrics.getWriterWait();
+        long start = System.nanoTime();
+        try {
+            context.proceed();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            metrics.add(Phase.WRITE, Math.max(0, elapsed - (metrics.getWriterWait() - waitBefore)));
+            metrics.addBytes(out.getCount());
+            collector.record(call);
+        }
+    }
+
+    /**
+     * Passes output through while counting the bytes
+     */
+    static class CountingOutputStream extends FilterOutputStream {
+        protected long count = 0;
+
+        public CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
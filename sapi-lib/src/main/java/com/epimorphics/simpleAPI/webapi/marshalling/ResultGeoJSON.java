@@ -26,10 +26,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.epimorphics.appbase.webapi.WebApiException;
-import com.epimorphics.json.JSFullWriter;
 import com.epimorphics.simpleAPI.results.Result;
 import com.epimorphics.simpleAPI.results.TreeResult;
 import com.epimorphics.simpleAPI.writers.GeojsonWriter;
+import com.epimorphics.simpleAPI.writers.JsonEmitter;
 
 @Provider
 @Produces("application/geo+json")
@@ -61,7 +61,7 @@ public class ResultGeoJSON implements MessageBodyWriter<Result> {
             OutputStream entityStream)
                     throws IOException, WebApplicationException {
         ResultStreamGeoJSON.injectFilename(result, httpHeaders);
-        JSFullWriter out = new JSFullWriter(entityStream);
+        JsonEmitter out = ResultStreamGeoJSON.emitterFor(result.getCall().getAPI(), entityStream);
         GeojsonWriter writer = new GeojsonWriter(out);
         if (! (result instanceof TreeResult) ) {
             throw new WebApiException(Status.BAD_REQUEST, "Cannot render as GeoJson");
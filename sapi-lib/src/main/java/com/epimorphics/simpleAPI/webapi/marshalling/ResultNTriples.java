@@ -0,0 +1,61 @@
+/******************************************************************
+ * File:        ResultNTriples.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.webapi.marshalling;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epimorphics.simpleAPI.results.Result;
+
+@Provider
+@Produces("application/n-triples")
+public class ResultNTriples implements MessageBodyWriter<Result> {
+    static final Logger log = LoggerFactory.getLogger( ResultNTriples.class );
+    
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType,
+            Annotation[] annotations, MediaType mediaType) {
+        Class<?>[] sigs = type.getInterfaces();
+        for (Class<?> sig: sigs) {
+            if (sig.equals(Result.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public long getSize(Result t, Class<?> type, Type genericType,
+            Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(Result result, Class<?> type, Type genericType,
+            Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders,
+            OutputStream entityStream)
+                    throws IOException, WebApplicationException {
+        ResultTurtle.asModel(result).write(entityStream, "N-TRIPLES");
+    }
+
+}
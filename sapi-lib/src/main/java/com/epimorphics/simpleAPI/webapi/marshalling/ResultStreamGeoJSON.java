@@ -34,6 +34,7 @@ import com.epimorphics.simpleAPI.core.API;
 import com.epimorphics.simpleAPI.query.DataSource;
 import com.epimorphics.simpleAPI.query.impl.SparqlDataSource;
 import com.epimorphics.simpleAPI.requests.Call;
+import com.epimorphics.simpleAPI.requests.Cursor;
 import com.epimorphics.simpleAPI.requests.LimitRequestProcessor;
 import com.epimorphics.simpleAPI.results.Result;
 import com.epimorphics.simpleAPI.results.ResultOrStream;
@@ -41,6 +42,9 @@ import com.epimorphics.simpleAPI.results.ResultStream;
 import com.epimorphics.simpleAPI.results.TreeResult;
 import com.epimorphics.simpleAPI.util.LastModified;
 import com.epimorphics.simpleAPI.writers.GeojsonWriter;
+import com.epimorphics.simpleAPI.writers.JSFullWriterEmitter;
+import com.epimorphics.simpleAPI.writers.JsonEmitter;
+import com.epimorphics.simpleAPI.writers.Utf8JsonWriter;
 
 @Provider
 @Produces("application/geo+json")
@@ -92,7 +96,7 @@ public class ResultStreamGeoJSON implements MessageBodyWriter<ResultStream> {
             OutputStream entityStream)
                     throws IOException, WebApplicationException {
         injectFilename(results, httpHeaders);
-        JSFullWriter out = new JSFullWriter(entityStream);
+        JsonEmitter out = emitterFor(results.getSpec().getAPI(), entityStream);
         GeojsonWriter writer = new GeojsonWriter(out);
         int count = 0;
         out.startOutput();
@@ -115,12 +119,27 @@ public class ResultStreamGeoJSON implements MessageBodyWriter<ResultStream> {
         log.info("Returned " + count + " coalesced rows");
     }
     
+    /**
+     * Return the JSON writer to use for GeoJSON output, pretty printed unless compact GeoJSON is configured
+     */
+    public static JsonEmitter emitterFor(API api, OutputStream entityStream) {
+        if (api.isCompactGeoJson() && !api.isLegacyJsonWriter()) {
+            return new Utf8JsonWriter(entityStream);
+        } else {
+            return new JSFullWriterEmitter( new JSFullWriter(entityStream) );
+        }
+    }
+    
     public static void writeMetadata(ResultOrStream results, JSFullWriter out) {
         API api = results.getSpec().getAPI();
         api.startMetadata(out);
         api.writeFormats(out, results.getRequest().getFullRequestedURI(), "json");
         condOut("limit", LimitRequestProcessor.APPLIED_LIMIT, results, out);
         condOut("offset", LimitRequestProcessor.OFFSET, results, out);
+        String next = results.getRequest().getFirst(Cursor.NEXT_CURSOR);
+        if (next != null) {
+            out.pair("next", Cursor.nextLink(results.getRequest(), next));
+        }
         api.finishMetadata(out);        
     }
     
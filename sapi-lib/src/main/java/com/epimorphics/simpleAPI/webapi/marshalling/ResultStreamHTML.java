@@ -13,8 +13,6 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 
 import javax.ws.rs.Produces;
@@ -34,9 +32,8 @@ import com.epimorphics.appbase.webapi.WebApiException;
 import com.epimorphics.simpleAPI.core.API;
 import com.epimorphics.simpleAPI.requests.Call;
 import com.epimorphics.simpleAPI.requests.Request;
-import com.epimorphics.simpleAPI.results.Result;
 import com.epimorphics.simpleAPI.results.ResultStream;
-import com.epimorphics.simpleAPI.results.wappers.WResult;
+import com.epimorphics.simpleAPI.results.wappers.WResultStream;
 
 @Provider
 @Produces("text/html")
@@ -67,22 +64,20 @@ public class ResultStreamHTML implements MessageBodyWriter<ResultStream> {
             MultivaluedMap<String, Object> httpHeaders,
             OutputStream entityStream)
                     throws IOException, WebApplicationException {
-        List<WResult> wresults = new ArrayList<>();
-        for (Result result : results) {
-            wresults.add( new WResult(result) );
-        }
-        
         Call call = results.getCall();
         Request request = call.getRequest();
         API api = call.getAPI();
         VelocityRender velocity = api.getApp().getA(VelocityRender.class);
         Map<String, Object> bindings = request.getRenderBindings();
         // Add the result in, this side-effects the request render bindings but that's OK, it is use-once
-        bindings.put("results", wresults);
+        // Results are wrapped lazily as the template iterates, templates needing a count or random access use $results.asList()
+        bindings.put("results", new WResultStream(results));
         try {
             velocity.renderTo(entityStream, call.getTemplateName(), AppConfig.getAppConfig().getContext(), bindings);
         } catch (org.apache.velocity.exception.ResourceNotFoundException e) {
             throw new WebApiException(Status.INTERNAL_SERVER_ERROR, "HTML rendering not available");
+        } finally {
+            results.close();
         }
     }
 
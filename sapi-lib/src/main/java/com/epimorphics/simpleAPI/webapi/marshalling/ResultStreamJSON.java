@@ -27,10 +27,14 @@ import org.slf4j.LoggerFactory;
 import com.epimorphics.json.JSFullWriter;
 import com.epimorphics.simpleAPI.core.API;
 import com.epimorphics.simpleAPI.core.ConfigConstants;
+import com.epimorphics.simpleAPI.requests.Cursor;
 import com.epimorphics.simpleAPI.requests.LimitRequestProcessor;
 import com.epimorphics.simpleAPI.results.Result;
 import com.epimorphics.simpleAPI.results.ResultOrStream;
 import com.epimorphics.simpleAPI.results.ResultStream;
+import com.epimorphics.simpleAPI.writers.JSFullWriterEmitter;
+import com.epimorphics.simpleAPI.writers.JsonEmitter;
+import com.epimorphics.simpleAPI.writers.Utf8JsonWriter;
 
 @Provider
 @Produces("application/json")
@@ -61,7 +65,10 @@ public class ResultStreamJSON implements MessageBodyWriter<ResultStream> {
             MultivaluedMap<String, Object> httpHeaders,
             OutputStream entityStream)
                     throws IOException, WebApplicationException {
-        JSFullWriter out = new JSFullWriter(entityStream);
+        API api = results.getSpec().getAPI();
+        JsonEmitter out = api.isLegacyJsonWriter()
+                ? new JSFullWriterEmitter( new JSFullWriter(entityStream) )
+                : new Utf8JsonWriter(entityStream);
         int count = 0;
         out.startOutput();
         out.startObject();
@@ -84,15 +91,23 @@ public class ResultStreamJSON implements MessageBodyWriter<ResultStream> {
     }
     
     public static void writeMetadata(ResultOrStream results, JSFullWriter out) {
+        writeMetadata(results, new JSFullWriterEmitter(out));
+    }
+    
+    public static void writeMetadata(ResultOrStream results, JsonEmitter out) {
         API api = results.getSpec().getAPI();
         api.startMetadata(out);
         api.writeFormats(out, results.getRequest().getFullRequestedURI(), "json");
         condOut("limit", LimitRequestProcessor.APPLIED_LIMIT, results, out);
         condOut("offset", LimitRequestProcessor.OFFSET, results, out);
+        String next = results.getRequest().getFirst(Cursor.NEXT_CURSOR);
+        if (next != null) {
+            out.pair("next", Cursor.nextLink(results.getRequest(), next));
+        }
         api.finishMetadata(out);        
     }
     
-    protected static void condOut(String key, String parameter, ResultOrStream results, JSFullWriter out) {
+    protected static void condOut(String key, String parameter, ResultOrStream results, JsonEmitter out) {
         Long value = results.getRequest().getAsLong(parameter);
         if (value != null) {
             out.pair(key, value.longValue());
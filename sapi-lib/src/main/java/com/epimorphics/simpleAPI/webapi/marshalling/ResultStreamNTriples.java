@@ -0,0 +1,60 @@
+/******************************************************************
+ * File:        ResultStreamNTriples.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.webapi.marshalling;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDFWriter;
+
+import com.epimorphics.simpleAPI.results.ResultStream;
+
+@Provider
+@Produces("application/n-triples")
+public class ResultStreamNTriples implements MessageBodyWriter<ResultStream> {
+    
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType,
+            Annotation[] annotations, MediaType mediaType) {
+        Class<?>[] sigs = type.getInterfaces();
+        for (Class<?> sig: sigs) {
+            if (sig.equals(ResultStream.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public long getSize(ResultStream t, Class<?> type, Type genericType,
+            Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(ResultStream results, Class<?> type, Type genericType,
+            Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders,
+            OutputStream entityStream)
+                    throws IOException, WebApplicationException {
+        ResultStreamTurtle.writeStream(results, StreamRDFWriter.getWriterStream(entityStream, RDFFormat.NTRIPLES), "ttl");
+    }
+    
+}
@@ -25,6 +25,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.epimorphics.simpleAPI.results.ResultStream;
+import com.epimorphics.simpleAPI.writers.RDFXMLStreamWriter;
 
 @Provider
 @Produces("application/rdf+xml")
@@ -55,8 +56,7 @@ public class ResultStreamRDFXML implements MessageBodyWriter<ResultStream> {
             MultivaluedMap<String, Object> httpHeaders,
             OutputStream entityStream)
                     throws IOException, WebApplicationException {
-        
-        ResultStreamTurtle.asModel(results).write(entityStream, "RDF/XML");
+        ResultStreamTurtle.writeStream(results, new RDFXMLStreamWriter(entityStream), "ttl");
     }
     
 }
@@ -15,6 +15,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
@@ -23,11 +24,19 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
 
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.vocabulary.RDF;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,10 +76,73 @@ public class ResultStreamTurtle implements MessageBodyWriter<ResultStream> {
             MultivaluedMap<String, Object> httpHeaders,
             OutputStream entityStream)
                     throws IOException, WebApplicationException {
+        writeStream(results, StreamRDFWriter.getWriterStream(entityStream, RDFFormat.TURTLE_BLOCKS), "ttl");
+    }
+    
+    /**
+     * Stream the results, and the list metadata, to an RDF sink. Each result is sent 
+     * as soon as it is available. The api:items list is built up as a chain of blank
+     * node cells, one per result, terminated after the last result.
+     */
+    public static void writeStream(ResultStream results, StreamRDF out, String... skipFormats) {
+        Call call = results.getCall();
+        out.start();
+        for (Map.Entry<String, String> prefix : call.getEndpoint().getPrefixes().getNsPrefixMap().entrySet()) {
+            out.prefix(prefix.getKey(), prefix.getValue());
+        }
+        
+        Model meta = ModelFactory.createDefaultModel();
+        String requestedURI = call.getRequest().getFullRequestedURI();
+        Resource root = meta.createResource( requestedURI );
+        call.getAPI().addRDFMetadata(root, requestedURI, skipFormats);
+        condOut(LimitRequestProcessor.LIMIT, results, root, LIMIT_PROP);
+        condOut(LimitRequestProcessor.OFFSET, results, root, OFFSET_PROP);
+        sendGraph(meta, out);
         
-        asModel(results).write(entityStream, "Turtle");
+        Node cell = null;
+        int count = 0;
+        try {
+            for (Result result : results) {
+                Model model = ModelFactory.createDefaultModel();
+                Node item = result.asResource(model).asNode();
+                Node next = NodeFactory.createBlankNode();
+                if (cell == null) {
+                    out.triple( Triple.create(root.asNode(), API.items.asNode(), next) );
+                } else {
+                    out.triple( Triple.create(cell, RDF.Nodes.rest, next) );
+                }
+                out.triple( Triple.create(next, RDF.Nodes.first, item) );
+                cell = next;
+                sendGraph(model, out);
+                count++;
+            }
+        } finally {
+            results.close();
+        }
+        if (cell == null) {
+            out.triple( Triple.create(root.asNode(), API.items.asNode(), RDF.Nodes.nil) );
+        } else {
+            out.triple( Triple.create(cell, RDF.Nodes.rest, RDF.Nodes.nil) );
+        }
+        out.finish();
+        log.info("Returned " + count + " Resources");
+    }
+    
+    protected static void sendGraph(Model model, StreamRDF out) {
+        ExtendedIterator<Triple> i = model.getGraph().find(Node.ANY, Node.ANY, Node.ANY);
+        try {
+            while (i.hasNext()) {
+                out.triple( i.next() );
+            }
+        } finally {
+            i.close();
+        }
     }
     
+    /**
+     * Build the results as a single in-memory model. Retained for callers which need
+     * the whole model, the writers stream the results instead.
+     */
     public static Model asModel(ResultStream results) {
         Model model = ModelFactory.createDefaultModel();
         
@@ -27,14 +27,17 @@ import com.epimorphics.util.EpiException;
  */
 public class CSVMap {
     protected List<Entry> columns = new ArrayList<>();
+    protected volatile List<ViewPath> paths;
     
     public class Entry {
         String header;
         String path;
+        ViewPath viewPath;
         
         public Entry(String header, String path) {
             this.header = header;
             this.path = path;
+            this.viewPath = ViewPath.fromDotted(path);
         }
 
         public String getHeader() {
@@ -44,10 +47,18 @@ public class CSVMap {
         public String getPath() {
             return path;
         }
+        
+        /**
+         * The path, precompiled
+         */
+        public ViewPath getViewPath() {
+            return viewPath;
+        }
     }
     
     public void put(String header, String path) {
         columns.add( new Entry(header, path) );
+        paths = null;
     }
     
     public List<Entry> getColumns() {
@@ -58,8 +69,16 @@ public class CSVMap {
         return columns.stream().map(Entry::getHeader).collect(Collectors.toList());
     }
     
+    /**
+     * Return the column paths, a fresh list which callers may modify
+     */
     public List<ViewPath> getPaths() {
-        return columns.stream().map( e -> ViewPath.fromDotted(e.getPath()) ).collect(Collectors.toList());
+        List<ViewPath> result = paths;
+        if (result == null) {
+            result = columns.stream().map(Entry::getViewPath).collect(Collectors.toList());
+            paths = result;
+        }
+        return new ArrayList<>(result);
     }
     
     public static CSVMap parseFromJson(JsonValue spec) {
@@ -9,15 +9,22 @@
 
 package com.epimorphics.simpleAPI.writers;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
+import org.apache.jena.graph.Node;
 import org.apache.jena.rdf.model.RDFNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,10 +32,12 @@ import org.slf4j.LoggerFactory;
 import com.epimorphics.simpleAPI.core.API;
 import com.epimorphics.simpleAPI.endpoints.EndpointSpec;
 import com.epimorphics.simpleAPI.requests.Call;
+import com.epimorphics.simpleAPI.results.FlatResult;
 import com.epimorphics.simpleAPI.results.Result;
 import com.epimorphics.simpleAPI.results.ResultStream;
 import com.epimorphics.simpleAPI.results.TreeResult;
 import com.epimorphics.simpleAPI.views.PropertySpec;
+import com.epimorphics.simpleAPI.views.SlotLayout;
 import com.epimorphics.simpleAPI.views.ViewMap;
 import com.epimorphics.simpleAPI.views.ViewPath;
 import com.epimorphics.util.EpiException;
@@ -46,14 +55,21 @@ public class CSVWriter {
     protected static final String ID_COL = "@id" ;
     protected static final Charset ENC = StandardCharsets.UTF_8;
 
+    protected static final int BUFFER_SIZE = 64 * 1024;
+
     protected List<ViewPath> paths;
     protected OutputStream out;
+    protected Writer writer;
     protected boolean includeID = true;
     protected ViewPath flattenPath;
     protected boolean writtenHeaders = false;
+    protected ColumnAccessor[] columns;
+    protected final List<RDFNode> cellValues = new ArrayList<>();
+    protected final StringBuilder cell = new StringBuilder();
     
     public CSVWriter(OutputStream out) {
         this.out = out;
+        this.writer = new BufferedWriter( new OutputStreamWriter(out, ENC), BUFFER_SIZE );
     }
     
     /**
@@ -74,6 +90,7 @@ public class CSVWriter {
         for (String path : vpaths) {
             paths.add( ViewPath.fromDotted(path) );
         }
+        columns = null;
     }
     
     /**
@@ -93,13 +110,16 @@ public class CSVWriter {
             }
             log.info("Returned " + count + " coalesced rows");
         } finally {
-            out.close();
+            writer.close();
         }
     }
 
+    /**
+     * Flush any buffered output and close the underlying stream
+     */
     public void close() {
         try {
-            out.close();
+            writer.close();
         } catch (IOException e) {
             throw new EpiException(e);
         }
@@ -145,15 +165,16 @@ public class CSVWriter {
             writtenHeaders = true;
         }
         
-        StringBuffer buf = new StringBuffer();
+        if (columns == null) {
+            columns = compileColumns(paths);
+        }
         if ( flattenPath == null) {
-            writeResult(result, buf);
+            writeResult(result);
         } else {
             for (TreeResult r : result.splitAt(flattenPath) ) {
-                writeResult(r, buf);
+                writeResult(r);
             }
         }
-        out.write( buf.toString().getBytes(ENC) );
     }
     
     /**
@@ -167,67 +188,62 @@ public class CSVWriter {
         }
     }
     
-    protected void writeResult(TreeResult result, StringBuffer buf) {
+    protected void writeResult(TreeResult result) throws IOException {
         boolean started = false;
-        for (ViewPath path : paths) {
-            if (path.isEmpty() && !includeID) continue;
-            if (started) { buf.append(SEP); } else { started = true; }
-            Collection<RDFNode> values = result.get(path);
-            if (values == null || values.isEmpty()) {
-                // Optional value
-                buf.append( safeString("") );
-            } else {
-                String v = "";
-                boolean multi = false;
-                for (RDFNode value : values) {
-                    if (multi) v += VALUE_SEP; else multi = true;
-                    v += serializeNode( (RDFNode)value );
-                }
-                buf.append( safeString(v) );
+        for (ColumnAccessor column : columns) {
+            if (started) { writer.write(SEP); } else { started = true; }
+            cellValues.clear();
+            column.collect(result, cellValues);
+            cell.setLength(0);
+            for (int i = 0; i < cellValues.size(); i++) {
+                if (i > 0) cell.append(VALUE_SEP);
+                serializeNode( cellValues.get(i), cell );
             }
+            writeCell(cell);
         }
-        buf.append(LINE_END);
+        writer.write(LINE_END);
     }
     
-    protected String serializeNode(RDFNode node) {
-        if (node.isAnon()) {
-            return "[]";
-        } else if (node.isURIResource()) {
-            return node.asResource().getURI();
+    /**
+     * Append the text for a node to the cell buffer. Works directly on the graph
+     * node, which holds the URI or lexical form, so nothing is allocated per value.
+     */
+    protected void serializeNode(RDFNode node, StringBuilder buf) {
+        Node n = node.asNode();
+        if (n.isBlank()) {
+            buf.append("[]");
+        } else if (n.isURI()) {
+            buf.append( n.getURI() );
         } else {
-            return node.asLiteral().getLexicalForm();
+            buf.append( n.getLiteralLexicalForm() );
         }
     }
     
     protected void writeHeaders(boolean showDotted) throws IOException {
-        StringBuffer buf = new StringBuffer();
         boolean started = false;
         for (ViewPath path : paths) {
-            if (started) { buf.append(SEP); }
+            if (started) { writer.write(SEP); }
             if ( path.isEmpty() ) {
                 if ( includeID ) {
-                    buf.append( ID_COL );
+                    writer.write( ID_COL );
                     started = true;
                 }
             } else {
-                buf.append( safeString( showDotted ? path.asDotted() : path.last() ) );
+                writeCell( showDotted ? path.asDotted() : path.last() );
                 started = true;
             }
         }
-        buf.append(LINE_END);
-        out.write( buf.toString().getBytes(ENC) );
+        writer.write(LINE_END);
     }
     
     protected void writeHeaders(List<String> headers) throws IOException {
-        StringBuffer buf = new StringBuffer();
         boolean started = false;
         for (String header : headers) {
-            if (started) { buf.append(SEP); }
-            buf.append( safeString( header ) );
+            if (started) { writer.write(SEP); }
+            writeCell( header );
             started = true; 
         }
-        buf.append(LINE_END);
-        out.write( buf.toString().getBytes(ENC) );        
+        writer.write(LINE_END);
     }
     
     protected String safeString(String str) {
@@ -239,4 +255,158 @@ public class CSVWriter {
         } 
         return str;
     }
+    
+    /**
+     * Write a cell value to the output, quoting it if necessary. Equivalent to
+     * writing safeString(str) but without any intermediate strings.
+     */
+    protected void writeCell(CharSequence str) throws IOException {
+        int len = str.length();
+        if (len == 0) {
+            writer.write("\"\"");
+            return;
+        }
+        int i = 0;
+        for (; i < len; i++) {
+            char c = str.charAt(i);
+            if (c == '"' || c == ',' || c == '\r' || c == '\n') break;
+        }
+        if (i == len) {
+            writer.append(str);
+            return;
+        }
+        writer.write('"');
+        writer.append(str, 0, i);
+        for (; i < len; i++) {
+            char c = str.charAt(i);
+            if (c == '"') writer.write('"');
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+    
+    // --- Precompiled column access --------------------------------------
+    
+    /**
+     * Compile the column paths into accessors, done once per output stream.
+     * The id column is dropped here if not required.
+     */
+    protected ColumnAccessor[] compileColumns(List<ViewPath> paths) {
+        List<ColumnAccessor> compiled = new ArrayList<>( paths.size() );
+        for (ViewPath path : paths) {
+            if (path.isEmpty()) {
+                if (includeID) {
+                    compiled.add( (TreeResult result, List<RDFNode> values) -> values.add( result.getId() ) );
+                }
+            } else if (path.isSingleton()) {
+                compiled.add( new PropertyAccessor( path.first() ) );
+            } else {
+                compiled.add( new PathAccessor( path.asList() ) );
+            }
+        }
+        return compiled.toArray( new ColumnAccessor[compiled.size()] );
+    }
+    
+    /**
+     * Extracts the distinct values for one column from a result
+     */
+    protected interface ColumnAccessor {
+        public void collect(TreeResult result, List<RDFNode> values);
+    }
+    
+    /**
+     * Return the node to show for a result value
+     */
+    protected static RDFNode asNode(Object value) {
+        if (value instanceof RDFNode) {
+            return (RDFNode) value;
+        } else if (value instanceof TreeResult) {
+            return ((TreeResult)value).getId();
+        } else {
+            throw new EpiException("Can't happen");
+        }
+    }
+    
+    /**
+     * Accessor for a direct property of the result
+     */
+    protected static class PropertyAccessor implements ColumnAccessor {
+        protected final String key;
+        protected SlotLayout layout;
+        protected int slot;
+        
+        public PropertyAccessor(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void collect(TreeResult result, List<RDFNode> values) {
+            if (result instanceof FlatResult && ((FlatResult)result).hasSlots()) {
+                FlatResult flat = (FlatResult) result;
+                if (flat.getLayout() != layout) {
+                    layout = flat.getLayout();
+                    slot = layout.slotFor(key);
+                }
+                RDFNode value = slot == -1 ? null : flat.getSlotValue(slot);
+                if (value != null) {
+                    values.add(value);
+                }
+                return;
+            }
+            Collection<Object> vs = result.getValues(key);
+            if (vs != null) {
+                for (Object v : vs) {
+                    values.add( asNode(v) );
+                }
+            }
+        }
+    }
+    
+    /**
+     * Accessor for a path through nested results. As with TreeResult.get
+     * the column is empty if any of the intermediate results lack the next step.
+     */
+    protected static class PathAccessor implements ColumnAccessor {
+        protected final String[] steps;
+        protected final List<TreeResult> current = new ArrayList<>();
+        protected final Set<TreeResult> next = new LinkedHashSet<>();
+        protected final Set<RDFNode> seen = new HashSet<>();
+        
+        public PathAccessor(List<String> steps) {
+            this.steps = steps.toArray( new String[steps.size()] );
+        }
+
+        @Override
+        public void collect(TreeResult result, List<RDFNode> values) {
+            current.clear();
+            current.add(result);
+            int last = steps.length - 1;
+            for (int s = 0; s < last; s++) {
+                next.clear();
+                for (TreeResult t : current) {
+                    Collection<Object> vs = t.getValues( steps[s] );
+                    if (vs == null) return;
+                    for (Object v : vs) {
+                        if (v instanceof TreeResult) {
+                            next.add( (TreeResult)v );
+                        }
+                    }
+                }
+                current.clear();
+                current.addAll(next);
+            }
+            seen.clear();
+            for (TreeResult t : current) {
+                Collection<Object> vs = t.getValues( steps[last] );
+                if (vs != null) {
+                    for (Object v : vs) {
+                        RDFNode node = asNode(v);
+                        if ( seen.add(node) ) {
+                            values.add(node);
+                        }
+                    }
+                }
+            }
+        }
+    }
 }
@@ -46,9 +46,13 @@ public class GeojsonWriter {
     protected CSVMap csvmap;
     protected String geometryProp;
     protected ViewPath geometryPath;
-    protected JSFullWriter out;
+    protected JsonEmitter out;
     
     public GeojsonWriter(JSFullWriter out) {
+        this( new JSFullWriterEmitter(out) );
+    }
+    
+    public GeojsonWriter(JsonEmitter out) {
         this.out = out;
     }
 
@@ -77,14 +81,13 @@ public class GeojsonWriter {
        init(result);
        out.startObject();
        out.pair("type", "Feature");
-       out.key("geometry");
-       out.print( getGeometry(result) );
+       // Geometry literal is already GeoJSON so written verbatim
+       out.pairJson("geometry", getGeometry(result));
        out.key("properties");
        if ( csvmap != null) {
            writeMappedProperties(result);
        } else {
-           TreeResult woGeom = result.cloneWithout(geometryPath);
-           JsonWriterUtil.writeResult(woGeom, out);
+           JsonWriterUtil.writeResultWithout(result, geometryPath, out);
        }
        out.finishObject();
     }
@@ -94,7 +97,7 @@ public class GeojsonWriter {
         out.startObject();
         for (CSVMap.Entry entry : csvmap.getColumns()) {
             String key = entry.getHeader();
-            Set<RDFNode> values = result.get( ViewPath.fromDotted(entry.getPath()) );
+            Set<RDFNode> values = result.get( entry.getViewPath() );
             int size = values == null ? 0 : values.size();
             if (size == 0) {
                 // skip;
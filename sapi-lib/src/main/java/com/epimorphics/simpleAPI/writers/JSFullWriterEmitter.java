@@ -0,0 +1,103 @@
+/******************************************************************
+ * File:        JSFullWriterEmitter.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.writers;
+
+import com.epimorphics.json.JSFullWriter;
+
+/**
+ * JsonEmitter which delegates to a JSFullWriter
+ */
+public class JSFullWriterEmitter implements JsonEmitter {
+    protected JSFullWriter out;
+
+    public JSFullWriterEmitter(JSFullWriter out) {
+        this.out = out;
+    }
+
+    public JSFullWriter getWriter() {
+        return out;
+    }
+
+    @Override
+    public void startOutput() {
+        out.startOutput();
+    }
+
+    @Override
+    public void finishOutput() {
+        out.finishOutput();
+    }
+
+    @Override
+    public void startObject() {
+        out.startObject();
+    }
+
+    @Override
+    public void finishObject() {
+        out.finishObject();
+    }
+
+    @Override
+    public void startArray() {
+        out.startArray();
+    }
+
+    @Override
+    public void finishArray() {
+        out.finishArray();
+    }
+
+    @Override
+    public void key(String key) {
+        out.key(key);
+    }
+
+    @Override
+    public void pair(String key, String value) {
+        out.pair(key, value);
+    }
+
+    @Override
+    public void pair(String key, Number value) {
+        out.pair(key, value);
+    }
+
+    @Override
+    public void pair(String key, boolean value) {
+        out.pair(key, value);
+    }
+
+    @Override
+    public void pairJson(String key, String json) {
+        out.key(key);
+        out.print(json);
+    }
+
+    @Override
+    public void arrayElementProcess() {
+        out.arrayElementProcess();
+    }
+
+    @Override
+    public void arrayElement(String value) {
+        out.arrayElement(value);
+    }
+
+    @Override
+    public void arrayElement(Number value) {
+        out.arrayElement(value);
+    }
+
+    @Override
+    public void arrayElement(boolean value) {
+        out.arrayElement(value);
+    }
+}
@@ -0,0 +1,58 @@
+/******************************************************************
+ * File:        JsonEmitter.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.writers;
+
+/**
+ * The streaming JSON operations used to render results. Mirrors the subset of
+ * JSFullWriter used by the result writers so that results can be rendered either
+ * through a JSFullWriter or through the byte level Utf8JsonWriter.
+ */
+public interface JsonEmitter {
+
+    public void startOutput();
+
+    public void finishOutput();
+
+    public void startObject();
+
+    public void finishObject();
+
+    public void startArray();
+
+    public void finishArray();
+
+    /**
+     * Start a key/value pair whose value will be an object or array
+     */
+    public void key(String key);
+
+    public void pair(String key, String value);
+
+    public void pair(String key, Number value);
+
+    public void pair(String key, boolean value);
+
+    /**
+     * Write a pair whose value is already serialized JSON text, written verbatim
+     */
+    public void pairJson(String key, String json);
+
+    /**
+     * Separator before an array element which will be an object or array
+     */
+    public void arrayElementProcess();
+
+    public void arrayElement(String value);
+
+    public void arrayElement(Number value);
+
+    public void arrayElement(boolean value);
+
+}
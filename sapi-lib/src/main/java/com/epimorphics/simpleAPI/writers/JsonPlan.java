@@ -0,0 +1,74 @@
+/******************************************************************
+ * File:        JsonPlan.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.writers;
+
+import com.epimorphics.simpleAPI.views.ClassSpec;
+import com.epimorphics.simpleAPI.views.PropertySpec;
+import com.epimorphics.simpleAPI.views.SlotLayout;
+
+/**
+ * Precomputed JSON rendering plan for a ClassSpec. Fixes the key order (that of the
+ * class's SlotLayout) and, for each key, the rendering policy, whether it is
+ * always rendered as an array and the nested class, so that writing a result
+ * laid out against the same class needs no per-key lookups.
+ */
+public class JsonPlan {
+    protected final SlotLayout layout;
+    protected final PropertySpec[] policies;
+    protected final boolean[] multivalued;
+
+    protected JsonPlan(ClassSpec spec) {
+        layout = spec.getSlotLayout();
+        int n = layout.size();
+        policies = new PropertySpec[n];
+        multivalued = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            policies[i] = layout.getProperty(i);
+            multivalued[i] = policies[i].isMultivalued();
+        }
+    }
+
+    /**
+     * Return the plan for the given class
+     */
+    public static JsonPlan forClass(ClassSpec spec) {
+        return new JsonPlan(spec);
+    }
+
+    public SlotLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Return the plan slot for a key, or -1 if the key is not part of the class
+     */
+    public int slotFor(String key) {
+        return layout.slotFor(key);
+    }
+
+    public PropertySpec getPolicy(int slot) {
+        return policies[slot];
+    }
+
+    /**
+     * True if values in this slot should be written as an array even if there is only one
+     */
+    public boolean isMultivalued(int slot) {
+        return multivalued[slot];
+    }
+
+    /**
+     * Return the plan for values nested in this slot, null if the values are not nested
+     */
+    public JsonPlan getNested(int slot) {
+        ClassSpec nested = policies[slot].getNested();
+        return nested == null ? null : nested.getJsonPlan();
+    }
+}
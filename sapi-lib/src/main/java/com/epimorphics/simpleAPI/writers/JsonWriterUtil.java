@@ -9,9 +9,14 @@
 
 package com.epimorphics.simpleAPI.writers;
 
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
-import org.apache.jena.atlas.logging.Log;
+import org.apache.jena.atlas.json.JsonArray;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.atlas.json.JsonValue;
+import org.apache.jena.datatypes.RDFDatatype;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
 import org.apache.jena.rdf.model.Literal;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.vocabulary.RDF;
@@ -21,11 +26,13 @@ import org.slf4j.LoggerFactory;
 import com.epimorphics.json.JSFullWriter;
 import com.epimorphics.simpleAPI.core.API;
 import com.epimorphics.simpleAPI.endpoints.EndpointSpec;
+import com.epimorphics.simpleAPI.results.FlatResult;
 import com.epimorphics.simpleAPI.results.Result;
 import com.epimorphics.simpleAPI.results.TreeResult;
 import com.epimorphics.simpleAPI.views.PropertySpec;
+import com.epimorphics.simpleAPI.views.SlotLayout;
 import com.epimorphics.simpleAPI.views.ViewMap;
-import com.epimorphics.simpleAPI.views.ClassSpec;
+import com.epimorphics.simpleAPI.views.ViewPath;
 
 /**
  * Serialize a result as JSON. Assumes that the shape of the result matches the
@@ -44,44 +51,107 @@ public class JsonWriterUtil {
 
 
     public static void writeResult(TreeResult result, JSFullWriter out) {
+        writeResult(result, new JSFullWriterEmitter(out));
+    }
+    
+    public static void writeResult(TreeResult result, JsonEmitter out) {
         EndpointSpec spec = result.getCall().getEndpoint();
         ViewMap view = result.getCall().getView();
-        writeResult(result, view == null ? null : view.getTree(), spec.getAPI(), out);
+        writeResult(result, view == null ? null : view.getTree().getJsonPlan(), spec.getAPI(), out);
     }
     
-    protected static void writeResult(TreeResult result, ClassSpec tree, API api, JSFullWriter out) {
+    /**
+     * Write a result omitting the value at the given path, equivalent to writing
+     * <code>result.cloneWithout(skip)</code> but without copying the tree
+     */
+    public static void writeResultWithout(TreeResult result, ViewPath skip, JsonEmitter out) {
+        EndpointSpec spec = result.getCall().getEndpoint();
+        ViewMap view = result.getCall().getView();
+        writeResult(result, view == null ? null : view.getTree().getJsonPlan(), spec.getAPI(), out, skip);
+    }
+    
+    /**
+     * Write a result following a precomputed plan for its class, which may be null if there is no view.
+     * If the result is laid out against the same class as the plan then result and plan
+     * slots coincide, otherwise keys are looked up in the plan and then in the default view.
+     */
+    protected static void writeResult(TreeResult result, JsonPlan plan, API api, JsonEmitter out) {
+        writeResult(result, plan, api, out, null);
+    }
+    
+    /**
+     * Write a result following a precomputed plan, omitting the value at the skip path if it is not null
+     */
+    protected static void writeResult(TreeResult result, JsonPlan plan, API api, JsonEmitter out, ViewPath skip) {
+        if (result instanceof FlatResult && ((FlatResult)result).hasSlots()) {
+            writeFlatResult((FlatResult)result, api, out, skip);
+            return;
+        }
         out.startObject();
         String id = result.getStringID();
         if (id != null) {
             out.pair(ID_FIELD, id);
         }
-        for (String key : result.getSortedKeys()) {
-            List<Object> values = result.getSortedValues(key);
-            PropertySpec policy = null;
-            if (tree != null) {
-                policy = tree.getEntry(key);
+        boolean aligned = plan != null && result.getLayout() == plan.getLayout();
+        int slots = result.getSlotCount();
+        for (int slot = 0; slot < slots; slot++) {
+            int count = result.getValueCount(slot);
+            if (count == 0) continue;
+            String key = result.getKey(slot);
+            ViewPath nestedSkip = null;
+            if (skip != null && key.equals(skip.first())) {
+                if (skip.isSingleton()) continue;
+                nestedSkip = skip.rest();
             }
-            if (policy == null) {
-                policy = api.getDefaultViewFor(key);
+            int pslot = aligned ? slot : (plan == null ? -1 : plan.slotFor(key));
+            boolean multivalued;
+            JsonPlan nested = null;
+            if (pslot >= 0) {
+                multivalued = plan.isMultivalued(pslot);
+                nested = plan.getNested(pslot);
+            } else {
+                PropertySpec policy = api.getDefaultViewFor(key);
+                multivalued = policy != null && policy.isMultivalued();
             }
-            if (values.size() > 1 || policy.isMultivalued()) {
+            if (count > 1 || multivalued) {
                 // TODO handle case where we have a showOnlyLang setting and there's multiple different language values here
                 out.key(key);
                 out.startArray();
-                for (Object n : values) {
-                    writeNode(tree, policy, api, key, n, out, true);
+                for (int i = 0; i < count; i++) {
+                    writeNode(nested, api, key, result.getSortedValue(slot, i), out, true, nestedSkip);
                 }
                 out.finishArray();
-            } else if (!values.isEmpty()) {
-                writeNode(tree, policy, api, key, values.get(0), out, false);
+            } else {
+                writeNode(nested, api, key, result.getSortedValue(slot, 0), out, false, nestedSkip);
             }
         }
         out.finishObject();
     }
 
+    
+    /**
+     * Write a flat result directly from its slots, in the same key order as
+     * for the general case. Flat results have single, non-nested, values.
+     */
+    protected static void writeFlatResult(FlatResult result, API api, JsonEmitter out, ViewPath skip) {
+        String skipKey = skip != null && skip.isSingleton() ? skip.first() : null;
+        out.startObject();
+        String id = result.getStringID();
+        if (id != null) {
+            out.pair(ID_FIELD, id);
+        }
+        SlotLayout layout = result.getLayout();
+        for (int slot = 0; slot < layout.size(); slot++) {
+            RDFNode value = result.getSlotValue(slot);
+            if (value != null && (skipKey == null || !skipKey.equals(layout.getKey(slot)))) {
+                writeSimpleNode(layout.getKey(slot), value, out, api, false);
+            }
+        }
+        out.finishObject();
+    }
 
-    protected static void writeNode(ClassSpec tree, PropertySpec policy, API api,
-            String key, Object value, JSFullWriter writer, boolean isArrayElt) {
+    protected static void writeNode(JsonPlan nested, API api,
+            String key, Object value, JsonEmitter writer, boolean isArrayElt, ViewPath skip) {
         if (value instanceof TreeResult) {
             if ( ((TreeResult)value).isSimple() && api.isShowSimpleLinks() ) {
                 // Legacy non-jsonld rendering of leaf resources
@@ -93,25 +163,69 @@ public class JsonWriterUtil {
                 writer.arrayElementProcess();
             else
                 writer.key(key);
-            ClassSpec ntree = null;
-            if (tree != null) {
-                PropertySpec entry = tree.getEntry(key);
-                if (entry != null) {
-                    ntree = entry.getNested();
-                }
-            }
-            writeResult((TreeResult)value, ntree, api, writer);
+            writeResult((TreeResult)value, nested, api, writer, skip);
         } else if (value instanceof RDFNode) {
             writeSimpleNode(key, (RDFNode)value, writer, api, isArrayElt);
         }
     }
     
+    /**
+     * Write an already built JSON object, such as from Result.asJson, to an emitter.
+     * Null array elements are dropped since an emitter has no way to write them.
+     */
+    public static void writeJson(JsonObject obj, JsonEmitter out) {
+        out.startObject();
+        for (String key : obj.keys()) {
+            JsonValue value = obj.get(key);
+            if (value.isObject()) {
+                out.key(key);
+                writeJson(value.getAsObject(), out);
+            } else if (value.isArray()) {
+                out.key(key);
+                writeJson(value.getAsArray(), out);
+            } else if (value.isString()) {
+                out.pair(key, value.getAsString().value());
+            } else if (value.isNumber()) {
+                out.pair(key, value.getAsNumber().value());
+            } else if (value.isBoolean()) {
+                out.pair(key, value.getAsBoolean().value());
+            } else {
+                out.pairJson(key, "null");
+            }
+        }
+        out.finishObject();
+    }
+
+    protected static void writeJson(JsonArray array, JsonEmitter out) {
+        out.startArray();
+        for (JsonValue value : array) {
+            if (value.isObject()) {
+                out.arrayElementProcess();
+                writeJson(value.getAsObject(), out);
+            } else if (value.isArray()) {
+                out.arrayElementProcess();
+                writeJson(value.getAsArray(), out);
+            } else if (value.isString()) {
+                out.arrayElement(value.getAsString().value());
+            } else if (value.isNumber()) {
+                out.arrayElement(value.getAsNumber().value());
+            } else if (value.isBoolean()) {
+                out.arrayElement(value.getAsBoolean().value());
+            }
+        }
+        out.finishArray();
+    }
+
+    public static void writeSimpleNode(String key, RDFNode n, JSFullWriter writer, API api, boolean isArrayElt) {
+        writeSimpleNode(key, n, new JSFullWriterEmitter(writer), api, isArrayElt);
+    }
+    
     /**
      * Write simplified flattened version of a key/node pair.
      * Used in cases where we have no format spec and are just writing leaf values.
      * Silently rites nothing in cases where there's not legal or reasonable JSON representation.
      */
-    public static void writeSimpleNode(String key, RDFNode n, JSFullWriter writer, API api, boolean isArrayElt) {
+    public static void writeSimpleNode(String key, RDFNode n, JsonEmitter writer, API api, boolean isArrayElt) {
         if (n.isURIResource()) {
             String uri = n.asResource().getURI();
             if (isArrayElt) {
@@ -140,11 +254,13 @@ public class JsonWriterUtil {
                     writer.finishObject();
                 }
             } else {
-                Object jv = null;
-                try {
-                    jv = l.getValue();
-                } catch (Exception e) {
-                    log.warn("Error deserializing RDF object, defaulting to lexical form", e);
+                Object jv = valueFromLexicalForm(l.getDatatype(), lex);
+                if (jv == null) {
+                    try {
+                        jv = l.getValue();
+                    } catch (Exception e) {
+                        log.warn("Error deserializing RDF object, defaulting to lexical form", e);
+                    }
                 }
                 if (jv instanceof Number) {
                     if (lex.equals("NaN") || lex.contains("INF")) {
@@ -170,5 +286,66 @@ public class JsonWriterUtil {
             }
         }
     }
+    
+    // --- Literal values without a full parse -----------------------------------
+    
+    protected enum LexicalKind { STRING, INTEGER, BOOLEAN, OTHER }
+    
+    protected static final Map<String, LexicalKind> lexicalKinds = new HashMap<>();
+    static {
+        lexicalKinds.put(XSDDatatype.XSDstring.getURI(), LexicalKind.STRING);
+        lexicalKinds.put(XSDDatatype.XSDboolean.getURI(), LexicalKind.BOOLEAN);
+        for (XSDDatatype dt : new XSDDatatype[]{ XSDDatatype.XSDinteger, XSDDatatype.XSDlong, XSDDatatype.XSDint, 
+                XSDDatatype.XSDshort, XSDDatatype.XSDbyte, XSDDatatype.XSDnonNegativeInteger, XSDDatatype.XSDpositiveInteger,
+                XSDDatatype.XSDnonPositiveInteger, XSDDatatype.XSDnegativeInteger, XSDDatatype.XSDunsignedLong,
+                XSDDatatype.XSDunsignedInt, XSDDatatype.XSDunsignedShort, XSDDatatype.XSDunsignedByte }) {
+            lexicalKinds.put(dt.getURI(), LexicalKind.INTEGER);
+        }
+    }
+    
+    /**
+     * Return the value of a literal of a common datatype directly from its lexical form,
+     * when that is in canonical form, giving the same JSON value as Literal.getValue().
+     * Returns null if the literal needs the general datatype parse.
+     */
+    public static Object valueFromLexicalForm(RDFDatatype dt, String lex) {
+        LexicalKind kind = lexicalKinds.get( dt.getURI() );
+        if (kind == null) {
+            return null;
+        }
+        switch (kind) {
+        case STRING:
+            return lex;
+            
+        case BOOLEAN:
+            if (lex.equals("true") || lex.equals("1")) return Boolean.TRUE;
+            if (lex.equals("false") || lex.equals("0")) return Boolean.FALSE;
+            return null;
+            
+        case INTEGER:
+            return isCanonicalLong(lex) ? Long.parseLong(lex) : null;
+            
+        default:
+            return null;
+        }
+    }
+    
+    /**
+     * True for an optional minus sign followed by up to 18 digits with no
+     * leading zeros, which always fits in a long
+     */
+    private static boolean isCanonicalLong(String lex) {
+        int len = lex.length();
+        int start = (len > 0 && lex.charAt(0) == '-') ? 1 : 0;
+        int digits = len - start;
+        if (digits == 0 || digits > 18 || (lex.charAt(start) == '0' && digits > 1) || (start == 1 && lex.equals("-0"))) {
+            return false;
+        }
+        for (int i = start; i < len; i++) {
+            char c = lex.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
 
 }
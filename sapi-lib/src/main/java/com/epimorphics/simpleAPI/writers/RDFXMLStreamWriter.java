@@ -0,0 +1,200 @@
+/******************************************************************
+ * File:        RDFXMLStreamWriter.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.writers;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.jena.atlas.RuntimeIOException;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.impl.Util;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.vocabulary.RDF;
+
+import com.epimorphics.util.EpiException;
+
+/**
+ * Streaming RDF/XML serializer. Writes each run of triples with the same subject
+ * as a single rdf:Description as the triples arrive, so memory use is independent
+ * of the size of the output. Property namespaces are declared on each property
+ * element rather than on the document element, since they aren't known in advance.
+ */
+public class RDFXMLStreamWriter implements StreamRDF {
+    protected Writer out;
+    protected Node currentSubject;
+
+    public RDFXMLStreamWriter(OutputStream out) {
+        this.out = new BufferedWriter( new OutputStreamWriter(out, StandardCharsets.UTF_8) );
+    }
+
+    @Override
+    public void start() {
+        write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+        write("<rdf:RDF xmlns:rdf=\"" + RDF.getURI() + "\">\n");
+    }
+
+    @Override
+    public void triple(Triple triple) {
+        Node subject = triple.getSubject();
+        if ( !subject.equals(currentSubject) ) {
+            endDescription();
+            write("  <rdf:Description");
+            writeNodeRef(subject, "rdf:about");
+            write(">\n");
+            currentSubject = subject;
+        }
+        String p = triple.getPredicate().getURI();
+        int split = Util.splitNamespaceXML(p);
+        if (split == 0 || split >= p.length()) {
+            throw new EpiException("Can't serialize property as RDF/XML: " + p);
+        }
+        String local = p.substring(split);
+        write("    <p:" + local + " xmlns:p=\"" + escape(p.substring(0, split)) + "\"");
+        Node object = triple.getObject();
+        if (object.isLiteral()) {
+            String lang = object.getLiteralLanguage();
+            String dt = object.getLiteralDatatypeURI();
+            if (lang != null && !lang.isEmpty()) {
+                write(" xml:lang=\"" + escape(lang) + "\"");
+            } else if (dt != null && !dt.equals(XSDDatatype.XSDstring.getURI())) {
+                write(" rdf:datatype=\"" + escape(dt) + "\"");
+            }
+            write(">");
+            write( escape(object.getLiteralLexicalForm()) );
+            write("</p:" + local + ">\n");
+        } else {
+            writeNodeRef(object, "rdf:resource");
+            write("/>\n");
+        }
+    }
+
+    @Override
+    public void quad(Quad quad) {
+        triple( quad.asTriple() );
+    }
+
+    @Override
+    public void base(String base) {
+        // Relative URIs are never written
+    }
+
+    @Override
+    public void prefix(String prefix, String iri) {
+        // Namespaces are declared locally on each property element
+    }
+
+    @Override
+    public void finish() {
+        endDescription();
+        write("</rdf:RDF>\n");
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    protected void endDescription() {
+        if (currentSubject != null) {
+            write("  </rdf:Description>\n");
+            currentSubject = null;
+        }
+    }
+
+    protected void writeNodeRef(Node node, String uriAttribute) {
+        if (node.isBlank()) {
+            write(" rdf:nodeID=\"" + blankID(node) + "\"");
+        } else {
+            write(" " + uriAttribute + "=\"" + escape(node.getURI()) + "\"");
+        }
+    }
+
+    /**
+     * Map a blank node label onto a legal XML name, encoding any characters outside [a-zA-Z0-9]
+     */
+    protected String blankID(Node node) {
+        String label = node.getBlankNodeLabel();
+        StringBuilder id = new StringBuilder(label.length() + 1);
+        id.append('b');
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            if ( (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') ) {
+                id.append(c);
+            } else {
+                id.append('_').append( Integer.toHexString(c) ).append('_');
+            }
+        }
+        return id.toString();
+    }
+
+    /**
+     * Escape XML markup characters. Characters which can't appear in an XML 1.0
+     * document at all, even as character references, are rejected.
+     */
+    protected static String escape(String s) {
+        StringBuilder buf = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            String rep = null;
+            switch (c) {
+            case '&':  rep = "&amp;";  break;
+            case '<':  rep = "&lt;";   break;
+            case '>':  rep = "&gt;";   break;
+            case '"':  rep = "&quot;"; break;
+            case '\r': rep = "&#13;";  break;
+            default:
+                if ( !isLegalXML(s, i) ) {
+                    throw new EpiException( String.format("Can't serialize character U+%04X as RDF/XML", (int)c) );
+                }
+            }
+            if (rep != null) {
+                if (buf == null) {
+                    buf = new StringBuilder(s.length() + 16);
+                    buf.append(s, 0, i);
+                }
+                buf.append(rep);
+            } else if (buf != null) {
+                buf.append(c);
+            }
+        }
+        return buf == null ? s : buf.toString();
+    }
+
+    /**
+     * Test if the character at index i is allowed in XML 1.0, surrogates are only allowed as part of a valid pair
+     */
+    protected static boolean isLegalXML(String s, int i) {
+        char c = s.charAt(i);
+        if (c < 0x20) {
+            return c == '\t' || c == '\n' || c == '\r';
+        } else if (Character.isHighSurrogate(c)) {
+            return i + 1 < s.length() && Character.isLowSurrogate( s.charAt(i + 1) );
+        } else if (Character.isLowSurrogate(c)) {
+            return i > 0 && Character.isHighSurrogate( s.charAt(i - 1) );
+        } else {
+            return c != 0xFFFE && c != 0xFFFF;
+        }
+    }
+
+    protected void write(String s) {
+        try {
+            out.write(s);
+        } catch (IOException e) {
+            throw new RuntimeIOException(e);
+        }
+    }
+}
@@ -0,0 +1,373 @@
+/******************************************************************
+ * File:        Utf8JsonWriter.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.writers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jena.atlas.RuntimeIOException;
+
+/**
+ * Compact JSON writer which encodes directly to UTF-8 bytes in a large buffer,
+ * flushed to the underlying stream when full. Strings are copied byte for byte
+ * until a character which needs escaping or multi-byte encoding is found, the
+ * escaping rules are those of JSFullWriter. Encoded keys are cached across writers.
+ */
+public class Utf8JsonWriter implements JsonEmitter {
+    protected static final int BUFFER_SIZE = 64 * 1024;
+    protected static final int MAX_CACHED_KEYS = 4096;
+    protected static final Map<String, byte[]> encodedKeys = new ConcurrentHashMap<>();
+
+    protected static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    protected static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    protected static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    protected final OutputStream out;
+    protected final byte[] buf;
+    protected int pos = 0;
+
+    // For each open object or array, whether it has no members so far
+    protected boolean[] empty = new boolean[16];
+    protected int depth = 0;
+
+    public Utf8JsonWriter(OutputStream out) {
+        this(out, BUFFER_SIZE);
+    }
+
+    protected Utf8JsonWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buf = new byte[bufferSize];
+    }
+
+    @Override
+    public void startOutput() {
+        depth = 0;
+    }
+
+    @Override
+    public void finishOutput() {
+        flush();
+    }
+
+    /**
+     * Write out any buffered output and flush the underlying stream
+     */
+    public void flush() {
+        try {
+            flushBuffer();
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    @Override
+    public void startObject() {
+        open('{');
+    }
+
+    @Override
+    public void finishObject() {
+        close('}');
+    }
+
+    @Override
+    public void startArray() {
+        open('[');
+    }
+
+    @Override
+    public void finishArray() {
+        close(']');
+    }
+
+    @Override
+    public void key(String key) {
+        separator();
+        byte[] encoded = encodedKeys.get(key);
+        if (encoded == null) {
+            encoded = encodeKey(key);
+            if (encodedKeys.size() < MAX_CACHED_KEYS) {
+                encodedKeys.put(key, encoded);
+            }
+        }
+        writeRaw(encoded);
+    }
+
+    @Override
+    public void pair(String key, String value) {
+        key(key);
+        writeString(value);
+    }
+
+    @Override
+    public void pair(String key, Number value) {
+        key(key);
+        writeAscii( value.toString() );
+    }
+
+    @Override
+    public void pair(String key, boolean value) {
+        key(key);
+        writeRaw(value ? TRUE : FALSE);
+    }
+
+    /**
+     * Write a pair whose value is a preencoded JSON value
+     */
+    public void pairRaw(String key, byte[] value) {
+        key(key);
+        writeRaw(value);
+    }
+
+    @Override
+    public void pairJson(String key, String json) {
+        key(key);
+        writeUtf8(json);
+    }
+
+    @Override
+    public void arrayElementProcess() {
+        separator();
+    }
+
+    @Override
+    public void arrayElement(String value) {
+        separator();
+        writeString(value);
+    }
+
+    @Override
+    public void arrayElement(Number value) {
+        separator();
+        writeAscii( value.toString() );
+    }
+
+    @Override
+    public void arrayElement(boolean value) {
+        separator();
+        writeRaw(value ? TRUE : FALSE);
+    }
+
+    /**
+     * Write preencoded object members, i.e. "key":value pairs separated by commas,
+     * into the current object. An empty fragment writes nothing.
+     */
+    public void members(byte[] fragment) {
+        if (fragment.length > 0) {
+            separator();
+            writeRaw(fragment);
+        }
+    }
+
+    // --- Internals ---------------------------------------------------
+
+    protected void open(char c) {
+        ensure(1);
+        buf[pos++] = (byte) c;
+        if (depth == empty.length) {
+            empty = Arrays.copyOf(empty, depth * 2);
+        }
+        empty[depth++] = true;
+    }
+
+    protected void close(char c) {
+        ensure(1);
+        buf[pos++] = (byte) c;
+        depth--;
+    }
+
+    protected void separator() {
+        if (depth > 0) {
+            if (empty[depth - 1]) {
+                empty[depth - 1] = false;
+            } else {
+                ensure(1);
+                buf[pos++] = ',';
+            }
+        }
+    }
+
+    protected static byte[] encodeKey(String key) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(key.length() + 3);
+        Utf8JsonWriter enc = new Utf8JsonWriter(bytes, 256);
+        enc.writeString(key);
+        enc.ensure(1);
+        enc.buf[enc.pos++] = ':';
+        enc.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encode a string as a quoted JSON string
+     */
+    public static byte[] encodeString(String value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(value.length() + 2);
+        Utf8JsonWriter enc = new Utf8JsonWriter(bytes, 256);
+        enc.writeString(value);
+        enc.flush();
+        return bytes.toByteArray();
+    }
+
+    protected void writeString(String s) {
+        ensure(1);
+        buf[pos++] = '"';
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            if (pos + 12 > buf.length) {
+                flushBufferUnchecked();
+            }
+            char c = s.charAt(i);
+            if (c >= 0x20 && c < 0x7F && c != '"' && c != '\\') {
+                if (c == '/' && i > 0 && s.charAt(i - 1) == '<') {
+                    // Avoid </ which confuses if it's in HTML
+                    buf[pos++] = '\\';
+                }
+                buf[pos++] = (byte) c;
+            } else {
+                i = writeSpecial(s, i, c);
+            }
+        }
+        ensure(1);
+        buf[pos++] = '"';
+    }
+
+    /**
+     * Write a character which needs escaping or multi-byte encoding,
+     * returns the index of the last character consumed
+     */
+    protected int writeSpecial(String s, int i, char c) {
+        switch (c) {
+        case '"':  escape('"');  return i;
+        case '\\': escape('\\'); return i;
+        case '\b': escape('b');  return i;
+        case '\f': escape('f');  return i;
+        case '\n': escape('n');  return i;
+        case '\r': escape('r');  return i;
+        case '\t': escape('t');  return i;
+        default:
+        }
+        if (c < 0x20 || (c >= 0x7F && c <= 0x9F) || (c >= 0x2000 && c < 0x2100)) {
+            unicodeEscape(c);
+        } else if (c < 0x800) {
+            buf[pos++] = (byte) (0xC0 | (c >> 6));
+            buf[pos++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, s.charAt(i + 1));
+            buf[pos++] = (byte) (0xF0 | (cp >> 18));
+            buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+            return i + 1;
+        } else if (Character.isSurrogate(c)) {
+            // Unpaired surrogate, not encodable as UTF-8
+            unicodeEscape(c);
+        } else {
+            buf[pos++] = (byte) (0xE0 | (c >> 12));
+            buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buf[pos++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return i;
+    }
+
+    private void escape(char c) {
+        buf[pos++] = '\\';
+        buf[pos++] = (byte) c;
+    }
+
+    private void unicodeEscape(char c) {
+        buf[pos++] = '\\';
+        buf[pos++] = 'u';
+        buf[pos++] = HEX[(c >> 12) & 0xF];
+        buf[pos++] = HEX[(c >> 8) & 0xF];
+        buf[pos++] = HEX[(c >> 4) & 0xF];
+        buf[pos++] = HEX[c & 0xF];
+    }
+
+    /**
+     * Encode text straight into the buffer as UTF-8 without any escaping
+     */
+    protected void writeUtf8(String s) {
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            if (pos + 4 > buf.length) {
+                flushBufferUnchecked();
+            }
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buf[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buf[pos++] = '?';
+            } else {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    protected void writeAscii(String s) {
+        int len = s.length();
+        ensure(len);
+        for (int i = 0; i < len; i++) {
+            buf[pos++] = (byte) s.charAt(i);
+        }
+    }
+
+    protected void writeRaw(byte[] bytes) {
+        if (bytes.length > buf.length) {
+            flushBufferUnchecked();
+            try {
+                out.write(bytes);
+            } catch (IOException e) {
+                throw new RuntimeIOException(e);
+            }
+        } else {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+    }
+
+    protected void ensure(int n) {
+        if (pos + n > buf.length) {
+            flushBufferUnchecked();
+        }
+    }
+
+    protected void flushBuffer() throws IOException {
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+    }
+
+    protected void flushBufferUnchecked() {
+        try {
+            flushBuffer();
+        } catch (IOException e) {
+            throw new RuntimeIOException(e);
+        }
+    }
+}
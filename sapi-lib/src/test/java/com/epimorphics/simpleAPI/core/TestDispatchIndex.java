@@ -0,0 +1,76 @@
+/******************************************************************
+ * File:        TestDispatchIndex.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.core;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+
+import org.junit.Test;
+
+import com.epimorphics.simpleAPI.endpoints.EndpointSpec;
+import com.epimorphics.simpleAPI.sapi2.Sapi2ListEndpointSpec;
+
+public class TestDispatchIndex {
+    Map<String, EndpointSpec> templates = new LinkedHashMap<>();
+
+    @Test
+    public void testLookup() {
+        add("list", "id/stations");
+        add("item", "id/stations/{id}");
+        add("readings", "/id/stations/{id}/readings/");
+        add("special", "id/stations/special");
+        add("measure", "id/{type}/{id}/measure");
+        DispatchIndex index = new DispatchIndex(templates);
+
+        assertMatch(index, "id/stations", "list");
+        assertMatch(index, "/id/stations/", "list");
+        assertMatch(index, "id/stations/special", "special");
+        assertEquals("s1", assertMatch(index, "id/stations/s1", "item").get("id"));
+        assertEquals("s1", assertMatch(index, "id/stations/s1/readings", "readings").get("id"));
+        Map<String, String> bindings = assertMatch(index, "id/stations/s1/measure", "measure");
+        assertEquals("stations", bindings.get("type"));
+        assertEquals("s1", bindings.get("id"));
+        assertMatch(index, "id/stations/s1/other", null);
+        assertMatch(index, "id", null);
+    }
+
+    @Test
+    public void testRebuild() {
+        add("item", "id/stations/{id}");
+        assertMatch(new DispatchIndex(templates), "id/stations/s1", "item");
+        templates.remove("id/stations/{id}");
+        assertMatch(new DispatchIndex(templates), "id/stations/s1", null);
+    }
+
+    private Map<String, String> assertMatch(DispatchIndex index, String path, String expected) {
+        Map<String, String> bindings = new HashMap<>();
+        EndpointSpec spec = index.lookup(bindings, path, new MultivaluedHashMap<>());
+        if (expected == null) {
+            assertNull(spec);
+            assertTrue( bindings.isEmpty() );
+        } else {
+            assertNotNull(spec);
+            assertEquals(expected, spec.getName());
+        }
+        return bindings;
+    }
+
+    private void add(String name, String url) {
+        Sapi2ListEndpointSpec spec = new Sapi2ListEndpointSpec(null);
+        spec.setName(name);
+        spec.setUrl(url);
+        templates.put(url, spec);
+    }
+}
@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -58,6 +59,32 @@ public class TestSpecAndViews {
         
     }
     
+    @Test
+    public void testDefaultViewEntriesCached() {
+        AtomicInteger lookups = new AtomicInteger();
+        API cached = new API() {
+            @Override
+            protected PropertySpec findDefaultViewFor(String name) {
+                lookups.incrementAndGet();
+                return name.equals("label") ? new PropertySpec(name, null) : null;
+            }
+        };
+        
+        PropertySpec label = cached.getDefaultViewFor("label");
+        assertNotNull( label );
+        assertSame( label, cached.getDefaultViewFor("label") );
+        assertEquals( 1, lookups.get() );
+        
+        // Names missing from the default view are cached too
+        assertNull( cached.getDefaultViewFor("unknown") );
+        assertNull( cached.getDefaultViewFor("unknown") );
+        assertEquals( 2, lookups.get() );
+        
+        cached.clearDefaultViewEntries();
+        assertNull( cached.getDefaultViewFor("unknown") );
+        assertEquals( 3, lookups.get() );
+    }
+    
     @Test
     public void testViewLoading() {
         assertNull( api.getSpec("otherTest") );
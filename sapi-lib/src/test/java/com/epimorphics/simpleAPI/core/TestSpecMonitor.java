@@ -0,0 +1,49 @@
+/******************************************************************
+ * File:        TestSpecMonitor.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.core;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.epimorphics.appbase.core.App;
+
+public class TestSpecMonitor {
+    App app;
+    API api;
+
+    @Before
+    public void setUP() throws IOException {
+        app = new App("test", new File("src/test/testCases/baseRequestTest/app.conf"));
+        api = app.getA(API.class);
+        app.startup();
+    }
+
+    @Test
+    public void testDependents() {
+        SpecMonitor monitor = api.getSpecMonitor();
+
+        Set<String> viewUsers = monitor.dependentsOf( api.getView("compactView") );
+        assertTrue( viewUsers.contains("compactView") );
+        assertTrue( viewUsers.contains("listTest2") );
+        assertTrue( viewUsers.contains("listModelView") );
+        assertFalse( viewUsers.contains("listTest1") );
+
+        Set<String> modelUsers = monitor.dependentsOf( api.getModel("defaultModel") );
+        assertTrue( modelUsers.contains("listModelView") );
+        assertFalse( modelUsers.contains("listTest2") );
+        assertFalse( modelUsers.contains("compactView") );
+    }
+}
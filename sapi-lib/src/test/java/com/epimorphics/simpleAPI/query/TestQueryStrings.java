@@ -11,6 +11,7 @@ package com.epimorphics.simpleAPI.query;
 
 import static com.epimorphics.util.Asserts.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -24,6 +25,7 @@ import org.junit.Test;
 import com.epimorphics.appbase.core.App;
 import com.epimorphics.simpleAPI.core.API;
 import com.epimorphics.simpleAPI.endpoints.EndpointSpec;
+import com.epimorphics.simpleAPI.query.impl.NestedSparqlQueryBuilder;
 import com.epimorphics.vocabs.SKOS;
 import com.epimorphics.webapi.test.MockUriInfo;
 
@@ -141,4 +143,23 @@ public class TestQueryStrings {
         query = queryLines[ queryLines.length -1 ];  // First lines are prefixes then query all on one line
         assertContains( query, "SELECT * WHERE { { SELECT ?id ?distance WHERE {{?id a egn:NestTest .}}} ");
     }
+    
+    @Test
+    public void testDerivedBuildersShareBase() {
+        NestedSparqlQueryBuilder base = (NestedSparqlQueryBuilder) api.getCall("listNestedSelect", new MockUriInfo("test"), null).getQueryBuilder();
+        String baseQuery = base.build().toString();
+        
+        ListQueryBuilder filtered = base.filter("FILTER(?id != <http://example.com/a>)");
+        NestedSparqlQueryBuilder outer = (NestedSparqlQueryBuilder) ((NestedSparqlQueryBuilder)filtered).filterOuter("FILTER(?id != <http://example.com/b>)");
+        String limited = outer.limit(10, 20).build().toString();
+        assertContains( limited, "FILTER(?id != <http://example.com/a>)" );
+        assertContains( limited, "FILTER(?id != <http://example.com/b>)" );
+        assertContains( limited, "LIMIT 10" );
+        
+        String filteredQuery = filtered.build().toString();
+        assertContains( filteredQuery, "FILTER(?id != <http://example.com/a>)" );
+        assertFalse( filteredQuery.contains("http://example.com/b") );
+        assertFalse( filteredQuery.contains("LIMIT") );
+        assertEquals( baseQuery, base.build().toString() );
+    }
 }
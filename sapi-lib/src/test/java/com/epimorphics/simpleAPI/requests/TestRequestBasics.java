@@ -10,31 +10,61 @@
 package com.epimorphics.simpleAPI.requests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.jena.atlas.json.JsonValue;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.ResultSet;
 import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ResultSetStream;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
 import org.junit.Before;
 import org.junit.Test;
 
 import com.epimorphics.appbase.core.App;
+import com.epimorphics.appbase.webapi.WebApiException;
 import com.epimorphics.simpleAPI.core.API;
+import com.epimorphics.simpleAPI.endpoints.impl.EndpointSpecBase;
 import com.epimorphics.simpleAPI.query.DataSource;
+import com.epimorphics.simpleAPI.query.ItemQuery;
+import com.epimorphics.simpleAPI.query.ListQuery;
 import com.epimorphics.simpleAPI.query.impl.SparqlDataSource;
 import com.epimorphics.simpleAPI.results.Result;
 import com.epimorphics.simpleAPI.results.ResultStream;
+import com.epimorphics.simpleAPI.results.ResultStreamBase;
+import com.epimorphics.simpleAPI.results.ResultStreamSparqlSelect;
 import com.epimorphics.simpleAPI.results.TreeResult;
+import com.epimorphics.simpleAPI.sapi2.Sapi2ListEndpointSpec;
+import com.epimorphics.simpleAPI.util.Bulkhead;
 import com.epimorphics.simpleAPI.util.LastModified;
+import com.epimorphics.simpleAPI.util.ResultCache;
+import com.epimorphics.simpleAPI.views.ClassSpec;
+import com.epimorphics.simpleAPI.views.ViewMap;
+import com.epimorphics.sparql.graphpatterns.GraphPattern;
+import com.epimorphics.util.EpiException;
 import com.epimorphics.util.TestUtil;
 
 public class TestRequestBasics {
@@ -122,6 +152,43 @@ public class TestRequestBasics {
         assertEquals(1, numTypesFirst("list-with-exclusion", "notation", "1"));
     }
     
+    @Test
+    public void testCompiledViewPattern() {
+        Sapi2ListEndpointSpec spec = (Sapi2ListEndpointSpec) api.getSpec("listTest2");
+        ViewMap view = spec.getView();
+        
+        // Compiled by the first request and reused by later ones
+        assertEquals(10, getAndCount("listTest2"));
+        GraphPattern pattern = spec.getViewPattern(view);
+        assertEquals(10, getAndCount("listTest2"));
+        assertSame( pattern, spec.getViewPattern(view) );
+        
+        // Recompiled when the split setting changes
+        spec.setSplitMultivalued(true);
+        GraphPattern split = spec.getViewPattern(view);
+        assertNotSame( pattern, split );
+        assertSame( split, spec.getViewPattern(view) );
+        spec.setSplitMultivalued(false);
+        assertEquals(10, getAndCount("listTest2"));
+        
+        // Recompiled when the view's tree is reloaded
+        ReloadableView reloadable = new ReloadableView(api, view.getTree());
+        GraphPattern before = spec.getViewPattern(reloadable);
+        assertSame( before, spec.getViewPattern(reloadable) );
+        reloadable.reload( api.getView("compactView").getTree() );
+        assertNotSame( before, spec.getViewPattern(reloadable) );
+    }
+    
+    static class ReloadableView extends ViewMap {
+        ReloadableView(API api, ClassSpec tree) {
+            super(api, tree);
+        }
+        
+        void reload(ClassSpec tree) {
+            this.tree = tree;
+        }
+    }
+    
     private int numTypesFirst(String endpoint, String...args) {
         ResultStream stream = get(endpoint, makeRequest(args));
         assertTrue( stream.hasNext() );
@@ -162,6 +229,304 @@ public class TestRequestBasics {
 
     }
     
+    @Test
+    public void testResultCache() {
+        ResultCache cache = new ResultCache();
+        cache.setEnabledByDefault(true);
+        api.setResultCache(cache);
+        try {
+            assertEquals(5, getAndCount("listTest1", "_limit", "5"));
+            assertEquals(0, cache.getHits());
+            assertEquals(1, cache.getMisses());
+            assertEquals(1, cache.size());
+            
+            assertEquals(5, getAndCount("listTest1", "_limit", "5"));
+            assertEquals(1, cache.getHits());
+            assertEquals("B1", getFirstLabel("listTest2", "group", "B", "_sort", "label"));
+            assertEquals("B1", getFirstLabel("listTest2", "group", "B", "_sort", "label"));
+            assertEquals(1, cache.getHits());
+            
+            assertEquals(4, getAndCount("listTest1", "_limit", "5", "_offset", "6"));
+            assertEquals(1, cache.getHits());
+            assertEquals(4, cache.getMisses());
+            
+            cache.setMaxEntries(1);
+            assertEquals(4, getAndCount("listTest1"));
+            assertTrue( cache.getEvictions() > 0 );
+        } finally {
+            api.setResultCache(null);
+        }
+    }
+    
+    @Test
+    public void testResultCacheRebinds() {
+        ResultCache cache = new ResultCache();
+        cache.setEnabledByDefault(true);
+        api.setResultCache(cache);
+        try {
+            Call first = new Call(api, "listTest1", makeRequest("_limit", "2"));
+            List<TreeResult> original = drain( (ResultStream)first.getResults() );
+            
+            Call second = new Call(api, "listTest1", makeRequest("_limit", "2"));
+            List<TreeResult> replayed = drain( (ResultStream)second.getResults() );
+            assertEquals(1, cache.getHits());
+            assertEquals(original.size(), replayed.size());
+            for (int i = 0; i < replayed.size(); i++) {
+                assertSame( second, replayed.get(i).getCall() );
+                assertSame( first, original.get(i).getCall() );
+                assertEquals( original.get(i).getId(), replayed.get(i).getId() );
+                assertNotSame( original.get(i), replayed.get(i) );
+            }
+        } finally {
+            api.setResultCache(null);
+        }
+    }
+    
+    private List<TreeResult> drain(ResultStream stream) {
+        List<TreeResult> results = new ArrayList<>();
+        while (stream.hasNext()) {
+            results.add( (TreeResult)stream.next() );
+        }
+        return results;
+    }
+    
+    @Test
+    public void testCursorPaging() {
+        List<String> labels = new ArrayList<>();
+        for (TreeResult r : pageThrough("listCursor", "label")) {
+            labels.add( ((Literal) r.getValues("label").iterator().next()).getLexicalForm() );
+        }
+        assertEquals( getStringValues("listTest2", "label", "_sort", "label"), labels );
+        
+        Set<String> ids = new HashSet<>();
+        List<TreeResult> results = pageThrough("listCursor", "-notation");
+        for (TreeResult r : results) {
+            ids.add( r.getStringID() );
+        }
+        assertEquals( getAndCount("listTest2"), results.size() );
+        assertEquals( results.size(), ids.size() );
+        
+        Request request = makeRequest("_sort", "label");
+        assertEquals(3, getAndCount("listCursor", request));
+        String token = request.getFirst(Cursor.NEXT_CURSOR);
+        assertNotNull(token);
+        try {
+            getAndCount("listCursor", "_sort", "notation", Cursor.CURSOR, token);
+            fail("Cursor for a different sort order should be rejected");
+        } catch (WebApiException e) {
+            assertEquals(400, e.getResponse().getStatus());
+        }
+        try {
+            getAndCount("listCursor", "_sort", "label", Cursor.CURSOR, "not-a-cursor");
+            fail("Illegal cursor should be rejected");
+        } catch (WebApiException e) {
+            assertEquals(400, e.getResponse().getStatus());
+        }
+        
+        request = new Request("http://localhost/test");
+        request.setFullRequestedURI("http://localhost/test?_sort=label&_cursor=abc&_offset=3&group=A");
+        assertEquals("http://localhost/test?_sort=label&group=A&_cursor=xyz", Cursor.nextLink(request, "xyz"));
+    }
+    
+    @Test
+    public void testTimeout() throws InterruptedException {
+        assertEquals(200L, (long) api.getSpec("listTimeout").getTimeout());
+        assertEquals(getAndCount("listTest2"), getAndCount("listTimeout"));
+        
+        // A store which returns nothing until the query is aborted
+        CountDownLatch aborted = new CountDownLatch(1);
+        WatchedStream stream = new WatchedStream( stubResults(aborted), new Call(api, "listTimeout", makeRequest()), aborted );
+        try {
+            stream.hasNext();
+            fail("Query should have been aborted");
+        } catch (WebApiException e) {
+            assertEquals(503, e.getResponse().getStatus());
+        }
+        stream.close();
+    }
+    
+    @Test
+    public void testTimeoutEndsAtFirstRow() {
+        ((EndpointSpecBase) api.getSpec("listTimeout")).setTimeout(60000);
+        Binding row = BindingFactory.binding( Var.alloc("id"), NodeFactory.createURI("http://localhost/example/A1") );
+        WatchedStream stream = new WatchedStream( stubResults(new CountDownLatch(0), row), 
+                new Call(api, "listTimeout", makeRequest()), new CountDownLatch(1) );
+        assertTrue( stream.isWatched() );
+        assertNotNull( stream.next() );
+        // A slow consumer is not timed once the first row has arrived
+        assertFalse( stream.isWatched() );
+        assertFalse( stream.hasNext() );
+        stream.close();
+    }
+    
+    /**
+     * Results from a stubbed store, the end of the rows is only reported once the latch is released
+     */
+    private ResultSet stubResults(CountDownLatch end, Binding... rows) {
+        Iterator<Binding> it = Arrays.asList(rows).iterator();
+        Iterator<Binding> stub = new Iterator<Binding>() {
+            @Override
+            public boolean hasNext() {
+                if (it.hasNext()) {
+                    return true;
+                }
+                try {
+                    end.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return false;
+            }
+
+            @Override
+            public Binding next() {
+                return it.next();
+            }
+        };
+        return new ResultSetStream(Arrays.asList("id"), null, QueryIterPlainWrapper.create(stub));
+    }
+    
+    static class WatchedStream extends ResultStreamSparqlSelect {
+        CountDownLatch closed;
+        
+        WatchedStream(ResultSet results, Call call, CountDownLatch closed) {
+            super(results, call);
+            this.closed = closed;
+        }
+        
+        boolean isWatched() {
+            return watchdog != null;
+        }
+        
+        @Override
+        public void close() {
+            super.close();
+            closed.countDown();
+        }
+    }
+    
+    @Test
+    public void testBulkheadRelease() {
+        Bulkhead bulkhead = new Bulkhead();
+        bulkhead.setMaxConcurrent(1);
+        api.setBulkhead(bulkhead);
+        try {
+            // Released once the results are exhausted
+            assertEquals(4, getAndCount("listTest1"));
+            assertEquals(0, getActive(bulkhead));
+            
+            // Released when the client goes away part way through
+            ResultStream stream = get("listTest1", makeRequest());
+            assertEquals(1, getActive(bulkhead));
+            assertNotNull( stream.next() );
+            stream.close();
+            assertEquals(0, getActive(bulkhead));
+            
+            // Released when the results fail part way through
+            Call call = new Call(api, "listTest1", makeRequest());
+            call.setDataSource( new FailingSource(source, 2) );
+            stream = (ResultStream) call.getResults();
+            assertEquals(1, getActive(bulkhead));
+            try {
+                while (stream.hasNext()) {
+                    stream.next();
+                }
+                fail("Results should have failed");
+            } catch (EpiException e) {
+                // expected
+            }
+            assertEquals(0, getActive(bulkhead));
+            
+            // Released when the query can't be started
+            call = new Call(api, "listTest1", makeRequest());
+            call.setDataSource( new FailingSource(source, 0) );
+            try {
+                call.getResults();
+                fail("Query should have failed");
+            } catch (WebApiException e) {
+                assertEquals(500, e.getResponse().getStatus());
+            }
+            assertEquals(0, getActive(bulkhead));
+            assertEquals(4, bulkhead.asJson().get("global").getAsObject().get("admitted").getAsNumber().value().intValue());
+        } finally {
+            api.setBulkhead(null);
+        }
+    }
+    
+    private int getActive(Bulkhead bulkhead) {
+        return bulkhead.asJson().get("global").getAsObject().get("active").getAsNumber().value().intValue();
+    }
+    
+    /**
+     * Data source whose list results fail after a given number of results,
+     * or which fails to start the query if that number is 0
+     */
+    static class FailingSource implements DataSource {
+        DataSource source;
+        int failAfter;
+        
+        FailingSource(DataSource source, int failAfter) {
+            this.source = source;
+            this.failAfter = failAfter;
+        }
+
+        @Override
+        public Result query(ItemQuery query, Call call) {
+            return source.query(query, call);
+        }
+
+        @Override
+        public ResultStream query(ListQuery query, Call call) {
+            if (failAfter == 0) {
+                throw new EpiException("Query failed");
+            }
+            ResultStream results = source.query(query, call);
+            return new ResultStreamBase(call) {
+                int count = 0;
+                
+                @Override
+                public Iterator<Result> iterator() {
+                    return this;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    if (count >= failAfter) {
+                        throw new EpiException("Results failed");
+                    }
+                    return results.hasNext();
+                }
+
+                @Override
+                public Result next() {
+                    count++;
+                    return results.next();
+                }
+                
+                @Override
+                public void close() {
+                    results.close();
+                }
+            };
+        }
+    }
+    
+    private List<TreeResult> pageThrough(String endpointName, String sort) {
+        List<TreeResult> results = new ArrayList<>();
+        String cursor = null;
+        do {
+            Request request = cursor == null ? makeRequest("_sort", sort) : makeRequest("_sort", sort, Cursor.CURSOR, cursor);
+            int count = 0;
+            for (Result r : get(endpointName, request)) {
+                results.add( (TreeResult) r );
+                count++;
+            }
+            assertTrue( count <= 3 );
+            cursor = request.getFirst(Cursor.NEXT_CURSOR);
+        } while (cursor != null);
+        return results;
+    }
+    
     private Request makeRequest(String... args) {
         Request request = new Request();
         for (int i = 0; i < args.length;) {
@@ -15,13 +15,21 @@ import static com.epimorphics.simpleAPI.util.TreeTestUtil.set;
 import static com.epimorphics.simpleAPI.util.TreeTestUtil.tree;
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Set;
 
+import org.apache.jena.datatypes.xsd.XSDDatatype;
 import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.ResourceFactory;
 import org.junit.Test;
 
+import com.epimorphics.simpleAPI.views.ClassSpec;
+import com.epimorphics.simpleAPI.views.PropertySpec;
+import com.epimorphics.simpleAPI.views.SlotLayout;
 import com.epimorphics.simpleAPI.views.ViewPath;
+import com.epimorphics.simpleAPI.writers.JsonWriterUtil;
+import com.epimorphics.sparql.terms.URI;
 
 public class TestResultAccess {
     static final String NS = "http://localhost/test/";
@@ -96,6 +104,81 @@ public class TestResultAccess {
         assertEquals("{@id:http://localhost/test/A s = c }", Aminus2.toString());
     }
     
+    @Test
+    public void testCompactSlots() {
+        ClassSpec spec = new ClassSpec();
+        spec.addChild( new PropertySpec("b", new URI(NS + "b")) );
+        spec.addChild( new PropertySpec("a", new URI(NS + "a")) );
+        SlotLayout layout = spec.getSlotLayout();
+        assertEquals("a", layout.getKey(0));
+        assertEquals("b", layout.getKey(1));
+        
+        TreeResult A = new TreeResult(null, res("A"), layout);
+        assertTrue( A.isSimple() );
+        A.add("b", lit("v1"));
+        assertSame( layout, A.getLayout() );
+        assertEquals( Arrays.asList("b"), A.getSortedKeys() );
+        A.add("b", lit("v1"));
+        assertEquals( 1, A.getValues("b").size() );
+        A.add("b", lit("v3"), lit("v2"));
+        assertEquals( Arrays.asList(lit("v1"), lit("v2"), lit("v3")), A.getSortedValues("b") );
+        
+        // Key outside the layout
+        A.add("0", lit("z"));
+        assertNull( A.getLayout() );
+        A.add("a", lit("x"));
+        assertEquals( Arrays.asList("0", "a", "b"), A.getSortedKeys() );
+        assertEquals( set(lit("v1"), lit("v2"), lit("v3")), A.get( path("b") ) );
+        
+        // Large sets of nested values are indexed by id
+        for (int i = 0; i < 20; i++) {
+            A.add("c", tree("C" + i));
+        }
+        TreeResult C5 = A.getNested("c", res("C5"));
+        assertNotNull( C5 );
+        assertEquals( res("C5"), C5.getId() );
+        A.add("c", tree("C20"));
+        assertNotNull( A.getNested("c", res("C20")) );
+        assertNull( A.getNested("c", res("C21")) );
+        assertEquals( 21, A.getValues("c").size() );
+        
+        // Allocation free access in rendering order
+        int b = A.getSortedKeys().indexOf("b");
+        assertEquals( "b", A.getKey(b) );
+        assertEquals( 3, A.getValueCount(b) );
+        assertEquals( lit("v2"), A.getSortedValue(b, 1) );
+    }
+    
+    @Test
+    public void testLexicalValues() {
+        checkLexicalValue("42", XSDDatatype.XSDinteger, true);
+        checkLexicalValue("-42", XSDDatatype.XSDint, true);
+        checkLexicalValue("0", XSDDatatype.XSDlong, true);
+        checkLexicalValue("007", XSDDatatype.XSDinteger, false);
+        checkLexicalValue("-0", XSDDatatype.XSDinteger, false);
+        checkLexicalValue("+5", XSDDatatype.XSDinteger, false);
+        checkLexicalValue("12345678901234567890", XSDDatatype.XSDinteger, false);
+        checkLexicalValue("true", XSDDatatype.XSDboolean, true);
+        checkLexicalValue("0", XSDDatatype.XSDboolean, true);
+        checkLexicalValue("1.5", XSDDatatype.XSDdecimal, false);
+        checkLexicalValue("1.5e3", XSDDatatype.XSDdouble, false);
+        checkLexicalValue("a \"string\"", XSDDatatype.XSDstring, true);
+    }
+    
+    private void checkLexicalValue(String lex, XSDDatatype dt, boolean direct) {
+        Object value = JsonWriterUtil.valueFromLexicalForm(dt, lex);
+        if (!direct) {
+            assertNull(value);
+            return;
+        }
+        Object expected = ResourceFactory.createTypedLiteral(lex, dt).getValue();
+        if (expected instanceof Number) {
+            assertEquals( ((Number)expected).toString(), value.toString() );
+        } else {
+            assertEquals( expected, value );
+        }
+    }
+    
     ViewPath path(String dotted) {
         return ViewPath.fromDotted(dotted);
     }
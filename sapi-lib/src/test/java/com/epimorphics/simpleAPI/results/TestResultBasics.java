@@ -12,26 +12,36 @@ package com.epimorphics.simpleAPI.results;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
+import org.apache.jena.atlas.json.JSON;
 import org.apache.jena.atlas.json.JsonObject;
 import org.apache.jena.datatypes.xsd.XSDDatatype;
 import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.util.FileManager;
+import org.apache.jena.vocabulary.SKOS;
 import org.junit.Before;
 import org.junit.Test;
 
 import com.epimorphics.appbase.core.App;
+import com.epimorphics.appbase.webapi.WebApiException;
+import com.epimorphics.json.JSFullWriter;
 import com.epimorphics.simpleAPI.core.API;
 import com.epimorphics.simpleAPI.endpoints.EndpointSpec;
 import com.epimorphics.simpleAPI.query.DataSource;
@@ -45,10 +55,16 @@ import com.epimorphics.simpleAPI.results.wappers.WJSONLangString;
 import com.epimorphics.simpleAPI.results.wappers.WJSONObject;
 import com.epimorphics.simpleAPI.results.wappers.WResult;
 import com.epimorphics.simpleAPI.sapi2.Sapi2ListEndpointSpec;
+import com.epimorphics.simpleAPI.util.Bulkhead;
 import com.epimorphics.simpleAPI.util.JsonComparator;
 import com.epimorphics.simpleAPI.views.PropertySpec;
 import com.epimorphics.simpleAPI.views.ViewMap;
+import com.epimorphics.simpleAPI.views.ViewPath;
 import com.epimorphics.simpleAPI.writers.CSVWriter;
+import com.epimorphics.simpleAPI.writers.JSFullWriterEmitter;
+import com.epimorphics.simpleAPI.writers.JsonEmitter;
+import com.epimorphics.simpleAPI.writers.JsonWriterUtil;
+import com.epimorphics.simpleAPI.writers.Utf8JsonWriter;
 import com.epimorphics.util.Asserts;
 import com.epimorphics.webapi.test.MockUriInfo;
 
@@ -138,6 +154,93 @@ public class TestResultBasics {
         assertTrue( checkCSV( api.getCall("listTest6", new MockUriInfo("test?_sort=@id"), null).getResults(), "csvMulti.csv", "csvMulti-alt.csv") );
     }
     
+    @Test
+    public void testFlatResults() throws IOException {
+        ResultStream stream = (ResultStream) api.getCall("listTestFlat", new MockUriInfo("test?_sort=@id"), null).getResults();
+        for (int i = 1; i <= 2; i++){
+            assertTrue( stream.hasNext() );
+            Result result = stream.next();
+            assertTrue( result instanceof FlatResult );
+            TreeResult tree = (TreeResult) result;
+            assertEquals( "http://localhost/example/A" + i, tree.getStringID() );
+            assertEquals( "" + i + 1, asLex( tree.getValues("notation").iterator().next() ) );
+            JsonObject json = result.asJson();
+            assertEquals( "" + i + 1, json.get("notation").getAsString().value() );
+        }
+        assertFalse( stream.hasNext() );
+        
+        String csv = asCSV( api.getCall("listTestFlat", new MockUriInfo("test?_sort=@id"), null).getResults() );
+        assertEquals( "@id,notation\r\nhttp://localhost/example/A1,11\r\nhttp://localhost/example/A2,21\r\n", csv );
+        
+        // Flat view but the data has multiple labels so falls back to coalescing
+        stream = (ResultStream) api.getCall("listTest1", new MockUriInfo("test?_sort=@id"), null).getResults();
+        Result result = stream.next();
+        assertFalse( result instanceof FlatResult );
+        checkEntryRoot( (TreeResult)result, 1 );
+    }
+    
+    @Test
+    public void testWindowedCoalesce() {
+        // Sorting on the nested resources interleaves the rows for each root
+        Sapi2ListEndpointSpec spec = (Sapi2ListEndpointSpec) api.getSpec("listTest2");
+        ListQuery query = ((ListQueryBuilder) spec.getQueryBuilder()).sort("narrower", false).build();
+        ResultStream stream = source.query(query, new Call(spec, null));
+        int count = 0;
+        while (stream.hasNext()) {
+            stream.next();
+            count++;
+        }
+        assertEquals( 4, count );
+        
+        spec.setCoalesceWindow(2);
+        stream = source.query(query, new Call(spec, null));
+        for (int i = 1; i <= 2; i++){
+            assertTrue( stream.hasNext() );
+            TreeResult r = (TreeResult) stream.next();
+            checkEntryRoot( r, i );
+            assertEquals( 2, r.getValues("narrower").size() );
+        }
+        assertFalse( stream.hasNext() );
+    }
+    
+    @Test
+    public void testSplitMultivalued() {
+        Sapi2ListEndpointSpec spec = (Sapi2ListEndpointSpec) api.getSpec("listTestSplit");
+        assertTrue( spec.isSplitMultivalued() );
+        assertTrue( spec.hasBranchQueries( spec.getView() ) );
+        checkSplitResults();
+    }
+    
+    @Test
+    public void testSplitMultivaluedBulkhead() {
+        // Branch queries run under the main query's permit so don't wait for a second one
+        Bulkhead bulkhead = new Bulkhead();
+        bulkhead.setMaxConcurrent(1);
+        bulkhead.setMaxWait(100);
+        api.setBulkhead(bulkhead);
+        try {
+            checkSplitResults();
+            JsonObject global = bulkhead.asJson().get("global").getAsObject();
+            assertEquals(0, global.get("active").getAsNumber().value().intValue());
+            assertEquals(1, global.get("admitted").getAsNumber().value().intValue());
+            assertEquals(0, global.get("rejected").getAsNumber().value().intValue());
+        } finally {
+            api.setBulkhead(null);
+        }
+    }
+    
+    private void checkSplitResults() {
+        ResultStream stream = (ResultStream) api.getCall("listTestSplit", new MockUriInfo("test?_sort=@id"), null).getResults();
+        for (int i = 1; i <= 2; i++){
+            assertTrue( stream.hasNext() );
+            TreeResult r = (TreeResult) stream.next();
+            checkEntryRoot( r, i );
+            String children = r.getSortedValues("narrower").stream().map(v -> ((TreeResult)v).getId().toString()).collect(Collectors.joining(","));
+            assertEquals( "http://localhost/example/B%,http://localhost/example/C%".replace("%", Integer.toString(i)), children );
+        }
+        assertFalse( stream.hasNext() );
+    }
+    
     @Test
     public void testWJSONwrapping() {
         WJSONObject actual = getFirstWrapped("listTest3");
@@ -204,6 +307,23 @@ public class TestResultBasics {
         return array;
     }
     
+    @Test
+    public void testCSVCells() throws IOException {
+        Call call = api.getCall("listTest1", new MockUriInfo("test"), null);
+        TreeResult quoted = new TreeResult(call, ResourceFactory.createResource("http://localhost/example/X"));
+        quoted.add("label", ResourceFactory.createPlainLiteral("a, \"quoted\"\nlabel"));
+        quoted.add("notation", ResourceFactory.createTypedLiteral("42", XSDDatatype.XSDinteger));
+        TreeResult blank = new TreeResult(call, ResourceFactory.createResource());
+        blank.add("label", ResourceFactory.createPlainLiteral(""));
+        blank.add("notation", ResourceFactory.createResource("http://localhost/example/N"));
+        
+        String actual = asCSV( new ResultStreamList(Arrays.<Result>asList(quoted, blank), call) );
+        assertEquals(
+                "@id,label,notation\r\n" +
+                "http://localhost/example/X,\"a, \"\"quoted\"\"\nlabel\",42\r\n" +
+                "[],\"\",http://localhost/example/N\r\n", actual);
+    }
+    
     protected String asCSV( ResultOrStream stream ) throws IOException {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         CSVWriter writer = new CSVWriter(bos);
@@ -249,6 +369,75 @@ public class TestResultBasics {
         assertTrue( JsonComparator.equal("src/test/testCases/baseResultTest/expected/itemTest2.json", result.asJson()) );
     }
     
+    @Test
+    public void testViewItemQuery() {
+        EndpointSpec spec = api.getSpec("itemTestView");
+        Request request = new Request("http://localhost/example/A2");
+        ItemQuery query = (ItemQuery) spec.getQueryBuilder( request ).build();
+        assertFalse( query.toString().contains("DESCRIBE") );
+        
+        Result result = source.query(query, new Call(spec, request) );
+        assertTrue( result instanceof TreeResult );
+        TreeResult tree = (TreeResult) result;
+        checkEntryRoot( tree, 2 );
+        // Only the properties in the view are fetched
+        assertNull( tree.getValues("type") );
+        assertEquals( 2, tree.getSortedValues("narrower").size() );
+        for (Object child : tree.getSortedValues("narrower")) {
+            assertNotNull( ((TreeResult)child).getValues("notation") );
+            assertNull( ((TreeResult)child).getValues("label") );
+        }
+        
+        request = new Request("http://localhost/example/A2");
+        request.add(Request.BATCH_ID_KEY, "A1");
+        request.add(Request.BATCH_ID_KEY, "A2");
+        ResultStream stream = (ResultStream) new Call(spec, request).getResults();
+        checkEntryRoot( (TreeResult) stream.next(), 1 );
+        checkEntryRoot( (TreeResult) stream.next(), 2 );
+        assertFalse( stream.hasNext() );
+    }
+    
+    @Test
+    public void testBatchDescribe() {
+        EndpointSpec spec = api.getSpec("itemTest3");
+        Request request = new Request("http://localhost/example/A2");
+        request.add(Request.BATCH_ID_KEY, "A1");
+        request.add(Request.BATCH_ID_KEY, "http://localhost/example/A2");
+        request.add(Request.BATCH_ID_KEY, "A1");
+        request.add(Request.BATCH_ID_KEY, "notThere");
+        ResultOrStream results = new Call(spec, request).getResults();
+        assertTrue( results instanceof ResultStream );
+        ResultStream stream = (ResultStream) results;
+        
+        Resource a1 = stream.next().asResource();
+        assertEquals( "http://localhost/example/A1", a1.getURI() );
+        assertTrue( a1.hasProperty(SKOS.notation, "11") );
+        // Other items in the batch are described separately
+        assertFalse( a1.getModel().contains(ResourceFactory.createResource("http://localhost/example/A2"), SKOS.notation) );
+        
+        Resource a2 = stream.next().asResource();
+        assertEquals( "http://localhost/example/A2", a2.getURI() );
+        assertTrue( a2.hasProperty(SKOS.notation, "21") );
+        assertFalse( stream.hasNext() );
+    }
+    
+    @Test
+    public void testBatchWithoutRequestURI() {
+        EndpointSpec spec = api.getSpec("itemTest3");
+        Request request = new Request();
+        request.add(Request.BATCH_ID_KEY, "http://localhost/example/A1");
+        Asserts.assertContains( spec.getQueryBuilder(request).build().toString(), "<http://localhost/example/A1>" );
+        
+        request = new Request();
+        request.add(Request.BATCH_ID_KEY, "A1");
+        try {
+            spec.getQueryBuilder(request);
+            fail("Relative id should be rejected when there is no request URI");
+        } catch (WebApiException e) {
+            assertEquals(400, e.getResponse().getStatus());
+        }
+    }
+    
     @Test
     public void testNestedDescribe() {
         Request request = new Request( "http://localhost/example/reg1" );
@@ -276,6 +465,128 @@ public class TestResultBasics {
         assertEquals("Some body", jo.get("organization_name").getAsString().value());
     }
     
+    @Test
+    public void testUtf8JsonWriter() {
+        // Same structure as the JSFullWriter rendering
+        assertEquals( renderJson(false, "listTest4"), renderJson(true, "listTest4") );
+        assertEquals( renderJson(false, "listTest2"), renderJson(true, "listTest2") );
+        
+        // Escaping and multi-byte characters
+        String text = "a\"b\\c\n\t\u0001</x caf\u00e9 \u20ac \ud83d\ude00 \u2028";
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Utf8JsonWriter out = new Utf8JsonWriter(bytes);
+        out.startOutput();
+        out.startObject();
+        out.pair("text", text);
+        out.pair("n", 42);
+        out.pair("b", true);
+        out.finishObject();
+        out.finishOutput();
+        String json = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        assertFalse( json.contains("</") );
+        JsonObject jo = JSON.parse(json);
+        assertEquals( text, jo.get("text").getAsString().value() );
+        assertEquals( 42, jo.get("n").getAsNumber().value().intValue() );
+        assertTrue( jo.get("b").getAsBoolean().value() );
+    }
+    
+    @Test
+    public void testDefaultEmitterRendering() {
+        // Results which only implement the JSFullWriter rendering still work with any emitter
+        BiConsumer<Result, JsonEmitter> legacy = (result, out) -> new LegacyResult(result).writeJson(out);
+        assertEquals( renderJson(false, "listTest2"), renderJson(true, "listTest2", legacy) );
+        assertEquals( renderJson(false, "listTest2"), renderJson(false, "listTest2", legacy) );
+    }
+    
+    @Test
+    public void testWriteResultWithout() {
+        String[][] cases = new String[][]{
+            {"listTest4", "label"}, {"listTest4", "child"}, {"listTest4", "child.clabel"}, {"listTest2", "notation"}
+        };
+        for (String[] c : cases) {
+            ViewPath skip = ViewPath.fromDotted(c[1]);
+            for (boolean utf8 : new boolean[]{ true, false }) {
+                String expected = renderJson(utf8, c[0], (result, out) -> ((TreeResult)result).cloneWithout(skip).writeJson(out));
+                assertEquals( expected, renderJson(utf8, c[0], (result, out) -> JsonWriterUtil.writeResultWithout((TreeResult)result, skip, out)) );
+                assertFalse( expected.equals( renderJson(utf8, c[0]) ) );
+            }
+        }
+        
+        // Flat results are written directly from their slots
+        String flat = renderJson(true, "listTestFlat", (result, out) -> {
+            assertTrue( result instanceof FlatResult );
+            JsonWriterUtil.writeResultWithout((TreeResult)result, ViewPath.fromDotted("notation"), out);
+        });
+        assertTrue( flat.contains("@id") );
+        assertFalse( flat.contains("notation") );
+    }
+    
+    @Test
+    public void testPairJson() {
+        String geometry = "{ \"type\" : \"Point\" , \"coordinates\" : [ -1.5 , 52.25 ] }";
+        for (boolean utf8 : new boolean[]{ true, false }) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            JsonEmitter out = utf8 ? new Utf8JsonWriter(bytes) : new JSFullWriterEmitter( new JSFullWriter(bytes) );
+            out.startOutput();
+            out.startObject();
+            out.pair("type", "Feature");
+            out.pairJson("geometry", geometry);
+            out.pair("id", 1);
+            out.finishObject();
+            out.finishOutput();
+            JsonObject jo = JSON.parse( new String(bytes.toByteArray(), StandardCharsets.UTF_8) );
+            assertEquals( "Feature", jo.get("type").getAsString().value() );
+            assertEquals( JSON.parse(geometry).toString(), jo.get("geometry").toString() );
+            assertEquals( 1, jo.get("id").getAsNumber().value().intValue() );
+        }
+    }
+    
+    private String renderJson(boolean utf8, String endpoint) {
+        return renderJson(utf8, endpoint, (result, out) -> result.writeJson(out));
+    }
+    
+    private String renderJson(boolean utf8, String endpoint, BiConsumer<Result, JsonEmitter> write) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JsonEmitter out = utf8 ? new Utf8JsonWriter(bytes) : new JSFullWriterEmitter( new JSFullWriter(bytes) );
+        out.startOutput();
+        out.startArray();
+        ResultStream stream = (ResultStream) api.getCall(endpoint, new MockUriInfo("test?_sort=@id"), null).getResults();
+        for (Result result : stream) {
+            out.arrayElementProcess();
+            write.accept(result, out);
+        }
+        out.finishArray();
+        out.finishOutput();
+        return JSON.parseAny( new String(bytes.toByteArray(), StandardCharsets.UTF_8) ).toString();
+    }
+    
+    /**
+     * Result implementation which predates the JsonEmitter rendering
+     */
+    static class LegacyResult extends ResultBase {
+        Result result;
+        
+        LegacyResult(Result result) {
+            super( result.getCall() );
+            this.result = result;
+        }
+
+        @Override
+        public Resource asResource() {
+            return result.asResource();
+        }
+
+        @Override
+        public Resource asResource(Model model) {
+            return result.asResource(model);
+        }
+
+        @Override
+        public void writeJson(JSFullWriter out) {
+            result.writeJson(out);
+        }
+    }
+    
     private void checkEntryRoot(TreeResult result, int index) {
         assertEquals( "http://localhost/example/A" + index, result.getId().asResource().getURI() );
         assertEquals( "" + index + 1, asLex( result.getValues("notation").iterator().next() ) );
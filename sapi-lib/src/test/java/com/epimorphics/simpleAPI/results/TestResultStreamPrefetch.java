@@ -0,0 +1,126 @@
+/******************************************************************
+ * File:        TestResultStreamPrefetch.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.results;
+
+import static com.epimorphics.simpleAPI.util.TreeTestUtil.res;
+import static com.epimorphics.simpleAPI.util.TreeTestUtil.tree;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.epimorphics.simpleAPI.util.WorkerPool;
+import com.epimorphics.util.EpiException;
+
+public class TestResultStreamPrefetch {
+    static final ExecutorService pool = WorkerPool.create("test-prefetch", 4);
+
+    @Test
+    public void testOrderAndBackpressure() throws InterruptedException {
+        TestStream source = new TestStream(100, -1);
+        ResultStreamPrefetch stream = new ResultStreamPrefetch(source, 4, pool);
+        Thread.sleep(100);
+        // Buffer of 4 plus the one blocked waiting to be added
+        assertTrue( source.read.get() <= 5 );
+
+        int count = 0;
+        for (Result result : stream) {
+            assertEquals( res("R" + count), ((TreeResult)result).getId() );
+            count++;
+        }
+        assertEquals(100, count);
+        assertFalse( stream.hasNext() );
+        assertNull( stream.next() );
+        stream.close();
+        assertTrue( source.closed );
+    }
+
+    @Test
+    public void testClose() throws InterruptedException {
+        TestStream source = new TestStream(100, -1);
+        ResultStreamPrefetch stream = new ResultStreamPrefetch(source, 2, pool);
+        assertTrue( stream.hasNext() );
+        stream.next();
+        stream.close();
+        assertTrue( source.closed );
+        assertFalse( stream.hasNext() );
+        Thread.sleep(100);
+        assertTrue( source.read.get() < 100 );
+    }
+
+    @Test
+    public void testError() {
+        ResultStreamPrefetch stream = new ResultStreamPrefetch(new TestStream(10, 3), 2, pool);
+        int count = 0;
+        try {
+            while (stream.hasNext()) {
+                stream.next();
+                count++;
+            }
+            fail("Error should have been passed to consumer");
+        } catch (EpiException e) {
+            assertEquals("Test failure", e.getMessage());
+        }
+        assertEquals(3, count);
+        assertFalse( stream.hasNext() );
+    }
+
+    @Test
+    public void testPoolExhausted() {
+        ExecutorService single = WorkerPool.create("test-prefetch-single", 1);
+        TestStream first = new TestStream(100, -1);
+        ResultStream busy = ResultStreamPrefetch.prefetch(first, 2, single);
+        assertTrue( busy instanceof ResultStreamPrefetch );
+
+        // The only thread is blocked on the full buffer so the second stream is read directly
+        TestStream second = new TestStream(10, -1);
+        assertSame( second, ResultStreamPrefetch.prefetch(second, 2, single) );
+
+        busy.close();
+        single.shutdownNow();
+    }
+
+    static class TestStream extends ResultStreamList {
+        AtomicInteger read = new AtomicInteger();
+        int failAt;
+        volatile boolean closed = false;
+
+        TestStream(int size, int failAt) {
+            super(results(size), null);
+            this.failAt = failAt;
+        }
+
+        @Override
+        public Result next() {
+            if (read.get() == failAt) {
+                throw new EpiException("Test failure");
+            }
+            read.incrementAndGet();
+            return super.next();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        static List<Result> results(int size) {
+            List<Result> results = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                results.add( tree("R" + i) );
+            }
+            return results;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/******************************************************************
+ * File:        TestWResultStream.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.results.wappers;
+
+import static com.epimorphics.simpleAPI.util.TreeTestUtil.res;
+import static com.epimorphics.simpleAPI.util.TreeTestUtil.tree;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.epimorphics.simpleAPI.results.Result;
+import com.epimorphics.simpleAPI.results.ResultStreamList;
+import com.epimorphics.simpleAPI.results.TreeResult;
+import com.epimorphics.util.EpiException;
+
+public class TestWResultStream {
+
+    @Test
+    public void testLazyIteration() {
+        CountingStream source = new CountingStream(3);
+        WResultStream stream = new WResultStream(source);
+        assertFalse( stream.isEmpty() );
+        assertEquals(0, source.read);
+
+        int count = 0;
+        for (WResult result : stream) {
+            assertEquals(count + 1, source.read);
+            assertEquals( res("R" + count), ((TreeResult)result.asResult()).getId() );
+            count++;
+        }
+        assertEquals(3, count);
+
+        try {
+            stream.iterator();
+            fail("Second iteration should be rejected");
+        } catch (EpiException e) {
+            // expected
+        }
+        try {
+            stream.asList();
+            fail("asList after iteration should be rejected");
+        } catch (EpiException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testAsList() {
+        WResultStream stream = new WResultStream( new CountingStream(3) );
+        List<WResult> list = stream.asList();
+        assertEquals(3, list.size());
+        assertSame(list, stream.asList());
+
+        int count = 0;
+        for (WResult result : stream) {
+            assertSame(list.get(count++), result);
+        }
+        for (WResult result : stream) {
+            assertNotNull(result);
+        }
+        assertEquals(3, count);
+    }
+
+    @Test
+    public void testEmpty() {
+        WResultStream stream = new WResultStream( new CountingStream(0) );
+        assertTrue( stream.isEmpty() );
+        assertFalse( stream.iterator().hasNext() );
+    }
+
+    static class CountingStream extends ResultStreamList {
+        int read = 0;
+
+        CountingStream(int size) {
+            super(results(size), null);
+        }
+
+        @Override
+        public Result next() {
+            read++;
+            return super.next();
+        }
+
+        static List<Result> results(int size) {
+            List<Result> results = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                results.add( tree("R" + i) );
+            }
+            return results;
+        }
+    }
+}
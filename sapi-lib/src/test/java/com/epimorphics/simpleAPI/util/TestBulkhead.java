@@ -0,0 +1,84 @@
+/******************************************************************
+ * File:        TestBulkhead.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.util;
+
+import static org.junit.Assert.*;
+
+import javax.ws.rs.WebApplicationException;
+
+import org.junit.Test;
+
+import com.epimorphics.simpleAPI.sapi2.Sapi2ListEndpointSpec;
+import com.epimorphics.simpleAPI.util.Bulkhead.Permit;
+
+public class TestBulkhead {
+
+    @Test
+    public void testEndpointLimit() {
+        Bulkhead bulkhead = new Bulkhead();
+        Sapi2ListEndpointSpec spec = makeSpec("limited", 1, 0);
+        Sapi2ListEndpointSpec other = makeSpec("unlimited", 0, 0);
+
+        Permit permit = bulkhead.acquire(spec);
+        assertEquals(1, bulkhead.get("limited").getActive());
+        assertRejected(bulkhead, spec);
+        assertEquals(1, bulkhead.get("limited").getRejected());
+
+        // Other endpoints are unaffected
+        bulkhead.acquire(other).release();
+
+        permit.release();
+        permit.release();
+        assertEquals(0, bulkhead.get("limited").getActive());
+        bulkhead.acquire(spec).release();
+        assertEquals(2, bulkhead.get("limited").getAdmitted());
+    }
+
+    @Test
+    public void testGlobalLimit() {
+        Bulkhead bulkhead = new Bulkhead();
+        bulkhead.setMaxConcurrent(2);
+        bulkhead.setMaxWait(20);
+        Sapi2ListEndpointSpec spec = makeSpec("a", 0, 0);
+
+        Permit p1 = bulkhead.acquire(spec);
+        Permit p2 = bulkhead.acquire(spec);
+        // Waits in the queue then times out
+        assertRejected(bulkhead, spec);
+        p1.release();
+        bulkhead.acquire(spec).release();
+        p2.release();
+        Bulkhead.Lane global = bulkhead.getGlobal();
+        assertEquals(0, global.getActive());
+        assertEquals(0, global.getQueueDepth());
+        assertEquals(3, global.getAdmitted());
+        assertEquals(1, global.getRejected());
+    }
+
+    private void assertRejected(Bulkhead bulkhead, Sapi2ListEndpointSpec spec) {
+        try {
+            bulkhead.acquire(spec);
+            fail("Call should have been rejected");
+        } catch (WebApplicationException e) {
+            assertEquals(503, e.getResponse().getStatus());
+            assertEquals("1", e.getResponse().getHeaderString(Bulkhead.RETRY_AFTER_HEADER));
+        }
+    }
+
+    private Sapi2ListEndpointSpec makeSpec(String name, int maxConcurrent, int maxQueue) {
+        Sapi2ListEndpointSpec spec = new Sapi2ListEndpointSpec(null);
+        spec.setName(name);
+        if (maxConcurrent > 0) {
+            spec.setMaxConcurrent(maxConcurrent);
+            spec.setMaxQueue(maxQueue);
+        }
+        return spec;
+    }
+}
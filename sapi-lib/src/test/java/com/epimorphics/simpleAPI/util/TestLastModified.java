@@ -0,0 +1,129 @@
+/******************************************************************
+ * File:        TestLastModified.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.util;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.query.ResultSetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.DCTerms;
+import org.junit.After;
+import org.junit.Test;
+
+import com.epimorphics.simpleAPI.query.impl.SparqlDataSource;
+import com.epimorphics.util.EpiException;
+
+public class TestLastModified {
+    static final String DATASET = "http://example.com/dataset";
+
+    TestService service = new TestService();
+
+    @After
+    public void shutdown() {
+        service.shutdown();
+        assertNull( service.refresher );
+    }
+
+    @Test
+    public void testFailedFirstFetch() {
+        SparqlDataSource source = new SparqlDataSource();
+        service.models.put(source, model("2016-09-22T20:05:05Z"));
+        service.failures = 1;
+        assertNull( service.getTimestamp(DATASET, source) );
+        assertNotNull( service.refresher );
+        assertNull( service.getTimestamp(DATASET, source) );
+        assertEquals( 1, service.selects.get() );
+
+        service.refresh();
+        assertEquals( Long.valueOf(1474574705000L), service.getTimestamp(DATASET, source) );
+    }
+
+    @Test
+    public void testTimestampsPerSource() {
+        SparqlDataSource first = new SparqlDataSource();
+        SparqlDataSource second = new SparqlDataSource();
+        service.models.put(first, model("2016-09-22T20:05:05Z"));
+        service.models.put(second, model("2016-09-23T20:05:05Z"));
+
+        Long ts1 = service.getTimestamp(DATASET, first);
+        Long ts2 = service.getTimestamp(DATASET, second);
+        assertEquals( Long.valueOf(1474574705000L), ts1 );
+        assertEquals( Long.valueOf(1474661105000L), ts2 );
+
+        service.models.put(first, model("2016-09-24T20:05:05Z"));
+        service.refresh();
+        assertEquals( Long.valueOf(1474747505000L), service.getTimestamp(DATASET, first) );
+        assertEquals( ts2, service.getTimestamp(DATASET, second) );
+    }
+
+    @Test
+    public void testConcurrentFirstFetch() throws Exception {
+        SparqlDataSource source = new SparqlDataSource();
+        service.models.put(source, model("2016-09-22T20:05:05Z"));
+        service.gate = new CountDownLatch(1);
+
+        CompletableFuture<Long> first = CompletableFuture.supplyAsync( () -> service.getTimestamp(DATASET, source) );
+        CompletableFuture<Long> second = CompletableFuture.supplyAsync( () -> service.getTimestamp(DATASET, source) );
+        Thread.sleep(100);
+        // Both callers are waiting on the one background fetch
+        assertFalse( first.isDone() );
+        assertFalse( second.isDone() );
+        service.gate.countDown();
+
+        assertEquals( Long.valueOf(1474574705000L), first.get(1, TimeUnit.SECONDS) );
+        assertEquals( Long.valueOf(1474574705000L), second.get(1, TimeUnit.SECONDS) );
+        assertEquals( 1, service.selects.get() );
+        assertEquals( "sapi-lastmodified", service.selectThread );
+    }
+
+    private Model model(String modified) {
+        Model model = ModelFactory.createDefaultModel();
+        Resource dataset = model.createResource(DATASET);
+        dataset.addProperty(DCTerms.modified, model.createTypedLiteral(modified, "http://www.w3.org/2001/XMLSchema#dateTime"));
+        return model;
+    }
+
+    static class TestService extends LastModified {
+        Map<SparqlDataSource, Model> models = new HashMap<>();
+        volatile int failures = 0;
+        volatile CountDownLatch gate;
+        volatile String selectThread;
+        AtomicInteger selects = new AtomicInteger();
+
+        @Override
+        protected ResultSet select(SparqlDataSource source, String query) {
+            selects.incrementAndGet();
+            selectThread = Thread.currentThread().getName();
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    throw new EpiException(e);
+                }
+            }
+            if (failures > 0) {
+                failures--;
+                throw new EpiException("Store unavailable");
+            }
+            return ResultSetFactory.copyResults( QueryExecutionFactory.create(query, models.get(source)).execSelect() );
+        }
+    }
+}
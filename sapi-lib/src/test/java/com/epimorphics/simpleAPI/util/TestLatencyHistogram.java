@@ -0,0 +1,72 @@
+/******************************************************************
+ * File:        TestLatencyHistogram.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestLatencyHistogram {
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getPercentile(0.5));
+        for (long i = 1; i <= 1000; i++) {
+            h.record(i);
+        }
+        assertEquals(1000, h.getCount());
+        assertEquals(1000, h.getMax());
+        assertWithin(500, h.getPercentile(0.5));
+        assertWithin(950, h.getPercentile(0.95));
+        assertWithin(990, h.getPercentile(0.99));
+        assertEquals(1000, h.getPercentile(1.0));
+        
+        h.record(5_000_000_000L);
+        assertEquals(5_000_000_000L, h.getPercentile(1.0));
+    }
+    
+    @Test
+    public void testServerTiming() {
+        CallMetrics metrics = new CallMetrics();
+        metrics.add(CallMetrics.Phase.BUILD, 1_500_000);
+        metrics.add(CallMetrics.Phase.QUERY, 20_000_000);
+        assertEquals("build;dur=1.5, query;dur=20.0", metrics.asServerTiming());
+    }
+
+    @Test
+    public void testWriterWait() throws InterruptedException {
+        CallMetrics metrics = new CallMetrics();
+        metrics.startWrite();
+
+        // Rows fetched in the background don't hold up the writer
+        Thread background = new Thread( () -> {
+            metrics.record(CallMetrics.Phase.ROWS, System.nanoTime() - 5_000_000);
+            metrics.waited(System.nanoTime() - 5_000_000);
+        } );
+        background.start();
+        background.join();
+        assertTrue( metrics.get(CallMetrics.Phase.ROWS) >= 5_000_000 );
+        assertEquals(0, metrics.getWriterWait());
+
+        long rows = metrics.get(CallMetrics.Phase.ROWS);
+        metrics.waited(System.nanoTime() - 2_000_000);
+        assertTrue( metrics.getWriterWait() >= 2_000_000 );
+        assertEquals(rows, metrics.get(CallMetrics.Phase.ROWS));
+
+        long wait = metrics.getWriterWait();
+        metrics.record(CallMetrics.Phase.ROWS, System.nanoTime() - 1_000_000);
+        assertTrue( metrics.getWriterWait() >= wait + 1_000_000 );
+    }
+
+    private void assertWithin(long expected, long actual) {
+        assertTrue( actual >= expected && actual <= expected * 1.125 );
+    }
+}
@@ -0,0 +1,139 @@
+/******************************************************************
+ * File:        TestSingleFlight.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.util;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import com.epimorphics.util.EpiException;
+
+public class TestSingleFlight {
+    static final String QUERY = "SELECT ?s ?o WHERE {?s <http://example.com/p> ?o} ORDER BY ?o";
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSharedSelect() throws Exception {
+        SingleFlight flight = new SingleFlight();
+        assertEquals(5, runConcurrently(flight, 5));
+        assertEquals(1, flight.getExecutions());
+        assertEquals(1, flight.getShared());
+
+        // Once complete nothing is retained
+        assertEquals(5, count( flight.select(QUERY, () -> select(5)) ));
+        assertEquals(2, flight.getExecutions());
+    }
+
+    @Test
+    public void testOversizeSelect() throws Exception {
+        SingleFlight flight = new SingleFlight();
+        flight.setMaxRows(3);
+        assertEquals(5, runConcurrently(flight, 5));
+        assertEquals(2, flight.getExecutions());
+        assertEquals(1, flight.getShared());
+    }
+
+    @Test
+    public void testUnsharedSelectStreams() {
+        SingleFlight flight = new SingleFlight();
+        flight.setMaxRows(3);
+        ResultSet live = select(5);
+        ResultSet results = flight.select(QUERY, () -> live);
+        // Nothing buffered when no other caller is waiting
+        assertSame(live, results);
+        assertEquals(5, count(results));
+        assertEquals(1, flight.getExecutions());
+        assertEquals(0, flight.getShared());
+    }
+
+    @Test
+    public void testMaxRowsLimits() {
+        SingleFlight flight = new SingleFlight();
+        flight.setMaxRows(Long.MAX_VALUE);
+        assertEquals(Integer.MAX_VALUE, flight.getMaxRows());
+        try {
+            flight.setMaxRows(0);
+            fail("Non-positive max rows should be rejected");
+        } catch (EpiException e) {
+            // expected
+        }
+        assertEquals(Integer.MAX_VALUE, flight.getMaxRows());
+    }
+
+    /**
+     * Run two identical selects, the second issued while the first is in flight,
+     * check both see the same results and return the row count
+     */
+    private int runConcurrently(SingleFlight flight, int rows) throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executed = new AtomicInteger();
+        Supplier<ResultSet> slowQuery = () -> {
+            executed.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return select(rows);
+        };
+        Future<Integer> leader = executor.submit( () -> count( flight.select(QUERY, slowQuery) ) );
+        started.await();
+        Future<Integer> follower = executor.submit( () -> count( flight.select(QUERY, slowQuery) ) );
+        while (flight.getShared() == 0) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        int n = leader.get();
+        assertEquals(n, (int) follower.get());
+        assertEquals(executed.get(), flight.getExecutions());
+        return n;
+    }
+
+    private ResultSet select(int rows) {
+        Model model = ModelFactory.createDefaultModel();
+        for (int i = 0; i < rows; i++) {
+            model.createResource("http://example.com/i" + i)
+                .addLiteral(model.createProperty("http://example.com/p"), i);
+        }
+        return QueryExecutionFactory.create(QUERY, model).execSelect();
+    }
+
+    private int count(ResultSet results) {
+        int n = 0;
+        int last = -1;
+        while (results.hasNext()) {
+            int o = results.next().getLiteral("o").getInt();
+            assertTrue(o > last);
+            last = o;
+            n++;
+        }
+        return n;
+    }
+}
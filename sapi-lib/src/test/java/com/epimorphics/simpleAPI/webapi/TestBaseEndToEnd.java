@@ -10,6 +10,7 @@
 package com.epimorphics.simpleAPI.webapi;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -90,6 +91,9 @@ public class TestBaseEndToEnd extends TomcatTestBase {
         // RDF serialization
         checkGetTtl("basetest/list?_limit=2&_sort=@id", EXPECTED + "list-limit2-id.ttl");
         checkGetTtl("example/A2", EXPECTED + "describe-A2.ttl");
+        checkGetRDF("basetest/list?_limit=2&_sort=@id", "application/n-triples", Lang.NTRIPLES, EXPECTED + "list-limit2-id.ttl");
+        checkGetRDF("example/A2", "application/n-triples", Lang.NTRIPLES, EXPECTED + "describe-A2.ttl");
+        checkGetRDF("basetest/list?_limit=2&_sort=@id", "application/rdf+xml", Lang.RDFXML, EXPECTED + "list-limit2-id.ttl");
 
         // CSV serialization
         checkGetCSV("basetest/list?_limit=2&_sort=@id", EXPECTED + "list-limit2-id.csv");
@@ -117,6 +121,26 @@ public class TestBaseEndToEnd extends TomcatTestBase {
                 getResponse(BASE_URL + "basetest/listGeo?_view=csv&_sort=@id", "application/geo+json"),
                 EXPECTED + "listGeo-csv.json");
         
+        // Timing metrics
+        response = getResponse(BASE_URL + "basetest/list?_limit=2&_sort=@id", "application/json");
+        checkStatus(response);
+        String timing = response.getHeaderString("Server-Timing");
+        assertNotNull(timing);
+        assertTrue( timing.contains("build;dur=") );
+        response = getResponse(BASE_URL + "system/metrics", "application/json");
+        checkStatus(response);
+        JsonObject metrics = JSON.parseAny( response.readEntity(String.class) ).getAsObject();
+        JsonObject list = metrics.get("endpoints").getAsObject().get("listTest2").getAsObject();
+        assertTrue( list.get("calls").getAsNumber().value().longValue() > 0 );
+        assertTrue( list.get("bytes").getAsNumber().value().longValue() > 0 );
+        assertTrue( list.hasKey("total") );
+        
+        // Readiness
+        response = getResponse(BASE_URL + "system/ready", "application/json");
+        checkStatus(response);
+        JsonObject ready = JSON.parseAny( response.readEntity(String.class) ).getAsObject();
+        assertTrue( ready.get("ready").getAsBoolean().value() );
+        assertTrue( ready.get("specs").getAsNumber().value().longValue() > 0 );
     }
     
     protected void checkGet(String url, String expectedF) {
@@ -127,6 +151,10 @@ public class TestBaseEndToEnd extends TomcatTestBase {
         checkResponseTtl( getResponse( BASE_URL + url, "text/turtle"), expectedF );
     }
     
+    protected void checkGetRDF(String url, String mediaType, Lang lang, String expectedF) {
+        checkResponseRDF( getResponse( BASE_URL + url, mediaType), lang, expectedF );
+    }
+    
     protected void checkGetCSV(String url, String expectedF) {
         checkResponseCSV( getResponse( BASE_URL + url, "text/csv"), expectedF );
     }
@@ -162,10 +190,14 @@ public class TestBaseEndToEnd extends TomcatTestBase {
     }
     
     protected void checkResponseTtl(Response response, String expectedF) {
+        checkResponseRDF(response, Lang.TTL, expectedF);
+    }
+    
+    protected void checkResponseRDF(Response response, Lang lang, String expectedF) {
         checkStatus(response);
         InputStream in = response.readEntity(InputStream.class);
         Model actual = ModelFactory.createDefaultModel();
-        RDFDataMgr.read(actual, in, Lang.TTL);
+        RDFDataMgr.read(actual, in, lang);
         if (expectedF == null) {
             System.out.println("Test incomplete, actual was:\n");
             actual.write(System.out, "Turtle");
@@ -0,0 +1,73 @@
+/******************************************************************
+ * File:        TestRDFXMLStreamWriter.java
+ * Created by:  Epimorphics
+ * Created on:  18 Oct 2026
+ * 
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.simpleAPI.writers;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.Test;
+
+import com.epimorphics.util.EpiException;
+
+public class TestRDFXMLStreamWriter {
+    static final String NS = "http://example.com/def#";
+
+    @Test
+    public void testRoundTrip() {
+        Model model = ModelFactory.createDefaultModel();
+        Property p = model.createProperty(NS, "p");
+        Resource a = model.createResource("http://example.com/a?x=1&y=2");
+        Resource b = model.createResource();
+        a.addProperty(RDFS.label, "A <label> & \"quotes\"\r\nover two lines");
+        a.addProperty(RDFS.label, "un libell\u00E9", "fr");
+        a.addLiteral(p, model.createTypedLiteral("42", XSDDatatype.XSDinteger));
+        a.addProperty(p, "emoji \uD83D\uDE00");
+        a.addProperty(p, b);
+        b.addProperty(RDFS.label, "blank");
+        b.addProperty(p, model.createResource("http://example.com/b"));
+
+        Model actual = ModelFactory.createDefaultModel();
+        RDFDataMgr.read(actual, new ByteArrayInputStream( write(model) ), Lang.RDFXML);
+        assertTrue( actual.isIsomorphicWith(model) );
+    }
+
+    @Test
+    public void testIllegalCharacters() {
+        for (String lex : new String[]{ "bell \u0007", "lone \uD83D surrogate", "not a char \uFFFF" }) {
+            Model model = ModelFactory.createDefaultModel();
+            model.createResource("http://example.com/a").addProperty(RDFS.label, lex);
+            try {
+                write(model);
+                fail("Should reject illegal XML character in: " + lex);
+            } catch (EpiException e) {
+                // expected
+            }
+        }
+    }
+
+    private byte[] write(Model model) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFXMLStreamWriter writer = new RDFXMLStreamWriter(out);
+        writer.start();
+        model.getGraph().find().forEachRemaining( writer::triple );
+        writer.finish();
+        return out.toByteArray();
+    }
+}